@@ -197,6 +197,11 @@ public class CommonConfig implements WebMvcConfigurer {
         return new UploadDataUseCase();
     }
 
+    @Bean
+    public PointCloudConvertRenderUseCase pointCloudConvertRenderUseCase() {
+        return new PointCloudConvertRenderUseCase();
+    }
+
     @Bean
     public PointCloudUploadUseCase pointCloudUploadUseCase() {
         return new PointCloudUploadUseCase();
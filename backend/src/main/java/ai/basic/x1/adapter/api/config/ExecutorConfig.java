@@ -0,0 +1,21 @@
+package ai.basic.x1.adapter.api.config;
+
+import ai.basic.x1.util.executor.ExecutorProp;
+import ai.basic.x1.util.executor.ExecutorRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Executor config
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ExecutorProp.class)
+public class ExecutorConfig {
+
+    @Bean
+    public ExecutorRegistry executorRegistry(ExecutorProp executorProp, MeterRegistry meterRegistry) {
+        return new ExecutorRegistry(executorProp, meterRegistry);
+    }
+}
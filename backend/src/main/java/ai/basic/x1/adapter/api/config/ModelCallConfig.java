@@ -0,0 +1,20 @@
+package ai.basic.x1.adapter.api.config;
+
+import ai.basic.x1.adapter.port.rpc.ModelCallGuard;
+import ai.basic.x1.adapter.port.rpc.ModelCallProp;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Model call config
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ModelCallProp.class)
+public class ModelCallConfig {
+
+    @Bean
+    public ModelCallGuard modelCallGuard(ModelCallProp modelCallProp) {
+        return new ModelCallGuard(modelCallProp);
+    }
+}
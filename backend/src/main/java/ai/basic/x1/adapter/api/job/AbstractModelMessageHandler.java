@@ -13,10 +13,12 @@ import ai.basic.x1.adapter.port.dao.redis.ModelSerialNoCountDAO;
 import ai.basic.x1.adapter.port.dao.redis.ModelSerialNoIncrDAO;
 import ai.basic.x1.adapter.port.minio.MinioProp;
 import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.adapter.port.rpc.ModelCallGuard;
 import ai.basic.x1.adapter.port.rpc.dto.*;
 import ai.basic.x1.entity.*;
 import ai.basic.x1.entity.enums.ModelCodeEnum;
 import ai.basic.x1.entity.enums.RunStatusEnum;
+import ai.basic.x1.usecase.ModelUseCase;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.DefaultConverter;
@@ -35,10 +37,13 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
 import ai.basic.x1.entity.enums.DataAnnotationObjectSourceTypeEnum;
 
 import javax.annotation.PostConstruct;
@@ -46,7 +51,9 @@ import java.io.File;
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -82,6 +89,24 @@ public abstract class AbstractModelMessageHandler<T> {
     @Autowired
     protected MinioProp minioProp;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    protected ModelCallGuard modelCallGuard;
+
+    @Autowired
+    protected ModelUseCase modelUseCase;
+
+    /**
+     * Contexts of the running model runs by model serial no, evicted when the run completes. A run completed
+     * by another instance expires after it is no longer accessed.
+     */
+    private final Cache<Long, ModelRunContext> modelRunContexts = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
     @Value("${file.tempPath:/tmp/xtreme1/}")
     protected String tempPath;
 
@@ -121,7 +146,15 @@ public abstract class AbstractModelMessageHandler<T> {
      */
     abstract ApiResult<T> callRemoteService(ModelMessageBO modelMessageBO);
 
-    abstract void syncModelAnnotationResult(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage);
+    /**
+     * Assemble the annotation objects of a successful model result, implement by subClass
+     *
+     * @param modelTaskInfo Model result
+     * @param modelMessage  Model message
+     * @param sourceId      Model run record id
+     * @return Annotation objects
+     */
+    abstract List<DataAnnotationObjectBO> assembleModelAnnotationObjects(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage, Long sourceId);
 
     abstract void assembleCalculateMetricsData(List<ModelDatasetResult> modelDatasetResults, List<DataAnnotationObject> dataAnnotationObjectList,
                                                String groundTruthFilePath, String modelRunFilePath);
@@ -137,15 +170,10 @@ public abstract class AbstractModelMessageHandler<T> {
 
     public ApiResult<T> getRetryAbleApiResult(ModelMessageBO modelMessageBO) {
         ApiResult<T> apiResult = null;
-        int count = 0;
-        while (count <= RETRY_COUNT && ObjectUtil.isNull(apiResult)) {
-            try {
-                apiResult = callRemoteService(modelMessageBO);
-                break;
-            } catch (Throwable throwable) {
-                log.error("call remote service is error", throwable);
-            }
-            count++;
+        try {
+            apiResult = modelCallGuard.call(getModelCodeEnum(), () -> callRemoteService(modelMessageBO));
+        } catch (Throwable throwable) {
+            log.error("call remote service is error", throwable);
         }
         if (apiResult != null && apiResult.getCode() == UsecaseCode.OK) {
             return apiResult;
@@ -165,6 +193,9 @@ public abstract class AbstractModelMessageHandler<T> {
         } catch (Exception e) {
             log.error("{} handleDataModelRun exception: {}", getModelCodeEnum(), e);
             return false;
+        } finally {
+            // The run of a single data has one message
+            modelRunContexts.invalidate(modelMessageBO.getModelSerialNo());
         }
     }
 
@@ -175,32 +206,14 @@ public abstract class AbstractModelMessageHandler<T> {
             }
             updateModelRunRecordStatus(modelMessageBOList.get(0), RunStatusEnum.RUNNING, null, null);
             var modelResults = modelRunBatch(modelMessageBOList); // List<ModelTaskInfoBO>
-            // log.info("modelResults size: {}", modelResults.size());
-            // log.info("modelResults: {}", JSONUtil.toJsonStr(modelResults));
-            for (int i = 0; i < modelResults.size(); i++) {
-                
-                ModelTaskInfoBO modelResult = modelResults.get(i);
-                ModelMessageBO modelMessageBO = modelMessageBOList.get(i);
-                // log.info("i th processing: {}", i);
-                // log.info("modelResult: {}", JSONUtil.toJsonStr(modelResult));
-                // log.info("model Message BO name: {}", modelMessageBO.getDataInfo().getName());
-                // log.info("model Message BO id: {}", modelMessageBO.getDataInfo().getId());
-                // log.info("==============================================");
-                if (UsecaseCode.OK.getCode().equals(modelResult.getCode())) {
-                    // log.info("modelResult is OK, syncModelAnnotationResult");
-                    syncModelAnnotationResult(modelResult, modelMessageBO);
-                }
-                else{
-                    log.warn("modelResult is not OK, skip syncModelAnnotationResult, modelResult: {}", JSONUtil.toJsonStr(modelResult));
-                }
-                if (saveToModelDatasetResult(modelMessageBO, modelResult)) {
-                    // log.info("saveToModelDatasetResult is OK, updateProgress");
-                    updateProgress(modelMessageBO);
-                } else {
-                    log.warn("update model_dataset_result fail! modelMessageBO is {} ",
-                            JSONUtil.toJsonStr(modelMessageBO));
-                    updateModelRunRecordStatus(modelMessageBO, RunStatusEnum.FAILURE, "DB save failed", null);
-                }
+            var savedNum = saveToModelDatasetResultBatch(modelMessageBOList, modelResults);
+            if (savedNum < modelResults.size()) {
+                log.warn("update model_dataset_result fail! modelSerialNo is {}, saved {} of {}",
+                        modelMessageBOList.get(0).getModelSerialNo(), savedNum, modelResults.size());
+                updateModelRunRecordStatus(modelMessageBOList.get(0), RunStatusEnum.FAILURE, "DB save failed", null);
+            }
+            if (savedNum > 0) {
+                updateProgress(modelMessageBOList.get(0), savedNum);
             }
             return true;
         } catch (Exception e) {
@@ -251,6 +264,99 @@ public abstract class AbstractModelMessageHandler<T> {
         return true;
     }
 
+    public void syncModelAnnotationResult(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage) {
+        var dataAnnotationObjectBOList = assembleModelAnnotationObjects(modelTaskInfo, modelMessage, getModelRunRecordId(modelMessage));
+        if (CollUtil.isNotEmpty(dataAnnotationObjectBOList)) {
+            dataAnnotationObjectDAO.saveBatch(DefaultConverter.convert(dataAnnotationObjectBOList, DataAnnotationObject.class));
+        }
+    }
+
+    /**
+     * Save the results of a batch of messages of one model run in one transaction: one select of the
+     * model_dataset_result rows still without result, one insert of all annotation objects and one upsert
+     * of the rows. Rows that already have a result, e.g. of a redelivered message, are skipped with their
+     * annotation objects.
+     *
+     * @param modelMessageList Model messages of the batch
+     * @param modelTaskInfos   Model results, in the order of the messages
+     * @return Number of saved results
+     */
+    public int saveToModelDatasetResultBatch(List<ModelMessageBO> modelMessageList, List<ModelTaskInfoBO> modelTaskInfos) {
+        if (CollUtil.isEmpty(modelTaskInfos)) {
+            return 0;
+        }
+        var modelMessageMap = new HashMap<Long, ModelMessageBO>(modelTaskInfos.size());
+        var modelTaskInfoMap = new HashMap<Long, ModelTaskInfoBO>(modelTaskInfos.size());
+        for (int i = 0; i < modelTaskInfos.size(); i++) {
+            var modelMessage = modelMessageList.get(i);
+            modelMessageMap.put(modelMessage.getDataId(), modelMessage);
+            modelTaskInfoMap.put(modelMessage.getDataId(), modelTaskInfos.get(i));
+        }
+        var firstMessage = modelMessageList.get(0);
+        var sourceId = modelTaskInfos.stream().anyMatch(modelTaskInfo -> UsecaseCode.OK.getCode().equals(modelTaskInfo.getCode()))
+                ? getModelRunRecordId(firstMessage) : null;
+        var savedNum = transactionTemplate.execute(status -> {
+            var modelDatasetResults = modelDatasetResultDAO.list(Wrappers.lambdaQuery(ModelDatasetResult.class)
+                    .eq(ModelDatasetResult::getModelSerialNo, firstMessage.getModelSerialNo())
+                    .in(ModelDatasetResult::getDataId, modelTaskInfoMap.keySet())
+                    .isNull(ModelDatasetResult::getModelResult)
+                    .last("for update"));
+            if (CollUtil.isEmpty(modelDatasetResults)) {
+                return 0;
+            }
+            var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>();
+            var now = OffsetDateTime.now();
+            modelDatasetResults.forEach(modelDatasetResult -> {
+                var modelMessage = modelMessageMap.get(modelDatasetResult.getDataId());
+                var modelTaskInfo = modelTaskInfoMap.get(modelDatasetResult.getDataId());
+                var isSuccess = UsecaseCode.OK.getCode().equals(modelTaskInfo.getCode());
+                if (isSuccess) {
+                    dataAnnotationObjectBOList.addAll(assembleModelAnnotationObjects(modelTaskInfo, modelMessage, sourceId));
+                } else {
+                    log.warn("modelResult is not OK, skip syncModelAnnotationResult, modelResult: {}", JSONUtil.toJsonStr(modelTaskInfo));
+                }
+                modelDatasetResult.setModelResult(JSONUtil.parseObj(modelTaskInfo));
+                modelDatasetResult.setIsSuccess(isSuccess);
+                modelDatasetResult.setErrorMessage(isSuccess ? null : modelTaskInfo.getMessage());
+                modelDatasetResult.setDataConfidence(modelTaskInfo.getConfidence());
+                modelDatasetResult.setUpdatedBy(modelMessage.getCreatedBy());
+                modelDatasetResult.setUpdatedAt(now);
+            });
+            if (CollUtil.isNotEmpty(dataAnnotationObjectBOList)) {
+                dataAnnotationObjectDAO.getBaseMapper().insertBatch(DefaultConverter.convert(dataAnnotationObjectBOList, DataAnnotationObject.class));
+            }
+            modelDatasetResultDAO.getBaseMapper().mysqlInsertOrUpdateBatch(modelDatasetResults);
+            return modelDatasetResults.size();
+        });
+        return savedNum == null ? 0 : savedNum;
+    }
+
+    private Long getModelRunRecordId(ModelMessageBO modelMessage) {
+        var modelRunRecord = getModelRunContext(modelMessage).getModelRunRecord();
+        return modelRunRecord == null ? null : modelRunRecord.getId();
+    }
+
+    /**
+     * Get the context of the model run of a message, loaded by the first message of the run
+     *
+     * @param modelMessage Model message
+     * @return Model run context
+     */
+    protected ModelRunContext getModelRunContext(ModelMessageBO modelMessage) {
+        var modelSerialNo = modelMessage.getModelSerialNo();
+        var modelRunContext = modelRunContexts.getIfPresent(modelSerialNo);
+        if (modelRunContext == null) {
+            var lambdaQueryWrapper = Wrappers.lambdaQuery(ModelRunRecord.class);
+            lambdaQueryWrapper.eq(ModelRunRecord::getModelSerialNo, modelSerialNo);
+            lambdaQueryWrapper.last("limit 1");
+            var modelRunRecord = modelRunRecordDAO.getOne(lambdaQueryWrapper);
+            modelRunContext = new ModelRunContext(modelRunRecord, modelUseCase.getModelClassMapByModelId(modelMessage.getModelId()),
+                    modelMessage.getResultFilterParam());
+            modelRunContexts.put(modelSerialNo, modelRunContext);
+        }
+        return modelRunContext;
+    }
+
     public boolean saveToModelDatasetResult(ModelMessageBO modelMessage, ModelTaskInfoBO modelTaskInfo) {
         return modelDatasetResultDAO.update(Wrappers.lambdaUpdate(ModelDatasetResult.class)
                 .set(ModelDatasetResult::getModelResult, JSONUtil.toJsonStr(modelTaskInfo))
@@ -266,13 +372,25 @@ public abstract class AbstractModelMessageHandler<T> {
     }
 
     public void updateProgress(ModelMessageBO modelMessage) {
+        updateProgress(modelMessage, 1);
+    }
+
+    /**
+     * Add the saved results of a model run to its progress with one increment, the batch that reaches
+     * the data count completes the run
+     *
+     * @param modelMessage Model message of the run
+     * @param savedNum     Number of saved results
+     */
+    public void updateProgress(ModelMessageBO modelMessage, int savedNum) {
         Long key = modelMessage.getModelSerialNo();
-        int currentPosition = modelSerialNoIncrDAO.incrModelSerialNo(key);
+        int currentPosition = modelSerialNoIncrDAO.incrModelSerialNo(key, savedNum);
+        int previousPosition = currentPosition - savedNum;
         Integer lastPosition = modelSerialNoCountDAO.getCount(key);
-        if (currentPosition == 1) {
+        if (previousPosition == 0) {
             modelRunRecordStart(modelMessage);
         }
-        if (currentPosition == lastPosition) {
+        if (previousPosition < lastPosition && currentPosition >= lastPosition) {
             long sizeFailure = getSizeFailure(modelMessage);
             if (sizeFailure > 0) {
                 RunStatusEnum runStatus = sizeFailure == currentPosition ? RunStatusEnum.FAILURE : RunStatusEnum.SUCCESS_WITH_ERROR;
@@ -281,6 +399,7 @@ public abstract class AbstractModelMessageHandler<T> {
                 modelRunRecordSuccess(modelMessage);
             }
             removeCounter(key);
+            modelRunContexts.invalidate(key);
         }
     }
 
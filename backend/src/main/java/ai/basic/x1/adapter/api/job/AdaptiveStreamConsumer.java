@@ -0,0 +1,288 @@
+package ai.basic.x1.adapter.api.job;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.stream.StreamListener;
+import org.springframework.util.ErrorHandler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes a redis stream with a concurrency that follows the handling time of the messages. Messages are only
+ * read while a worker is free, a read takes as many messages as there are free workers, so no backlog is queued
+ * in memory and the reads pause while all workers are busy.
+ * <p>
+ * The concurrency grows by one while the workers are all busy and the average handling time is below the target,
+ * and shrinks by a quarter while it is above, e.g. when the model service slows down. The pending messages of the
+ * group (XPENDING), the stream length and how far the group is behind the newest message (XINFO) are published as
+ * stream.consumer.* meters.
+ */
+@Slf4j
+public class AdaptiveStreamConsumer {
+
+    /**
+     * Weight of the latest message in the average handling time
+     */
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private static final long LAG_REFRESH_SECONDS = 10;
+
+    private final String streamKey;
+
+    private final Consumer consumer;
+
+    private final RedisTemplate<String, Object> streamRedisTemplate;
+
+    private final StreamListener<String, ObjectRecord<String, String>> listener;
+
+    private final ErrorHandler errorHandler;
+
+    private final Options options;
+
+    private final ExecutorService workerExecutor;
+
+    private final ScheduledExecutorService lagScheduler;
+
+    private final AtomicLong pendingNum = new AtomicLong();
+
+    private final AtomicLong streamLength = new AtomicLong();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread readerThread;
+
+    private int concurrency;
+
+    private int inFlight;
+
+    /**
+     * Average handling millis of a message, negative before the first one
+     */
+    private double latencyMillis = -1;
+
+    private long lastAdjustAt;
+
+    public AdaptiveStreamConsumer(String streamKey, Consumer consumer, RedisTemplate<String, Object> streamRedisTemplate,
+                                  StreamListener<String, ObjectRecord<String, String>> listener, ErrorHandler errorHandler,
+                                  Options options, MeterRegistry meterRegistry) {
+        this.streamKey = streamKey;
+        this.consumer = consumer;
+        this.streamRedisTemplate = streamRedisTemplate;
+        this.listener = listener;
+        this.errorHandler = errorHandler;
+        this.options = options;
+        var maxConcurrency = Math.max(1, options.getMaxConcurrency());
+        this.concurrency = Math.min(maxConcurrency, Math.max(1, options.getInitialConcurrency()));
+        this.workerExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("x1-stream-" + consumer.getName() + "-", true));
+        this.lagScheduler = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("x1-stream-lag-" + consumer.getName() + "-", true));
+        var tags = Tags.of("stream", streamKey, "group", consumer.getGroup());
+        meterRegistry.gauge("stream.consumer.pending", tags, pendingNum);
+        meterRegistry.gauge("stream.consumer.length", tags, streamLength);
+        meterRegistry.gauge("stream.consumer.lag", tags, lagMillis);
+        meterRegistry.gauge("stream.consumer.concurrency", tags, this, AdaptiveStreamConsumer::getConcurrency);
+        meterRegistry.gauge("stream.consumer.in.flight", tags, this, AdaptiveStreamConsumer::getInFlight);
+    }
+
+    public void start() {
+        running = true;
+        readerThread = new NamedThreadFactory("x1-stream-reader-" + consumer.getName() + "-", true).newThread(this::read);
+        readerThread.start();
+        lagScheduler.scheduleWithFixedDelay(this::refreshLag, 0, LAG_REFRESH_SECONDS, TimeUnit.SECONDS);
+        log.info("Start stream consumer {},group:{},concurrency:{}", streamKey, consumer.getGroup(), concurrency);
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        lagScheduler.shutdown();
+        if (readerThread != null) {
+            readerThread.interrupt();
+            readerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        workerExecutor.shutdown();
+        if (!workerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Stream consumer {} did not terminate in time", streamKey);
+        }
+    }
+
+    private void read() {
+        while (running) {
+            try {
+                var count = Math.min(awaitFreeWorkers(), Math.max(1, options.getMaxBatchSize()));
+                List<ObjectRecord<String, String>> records = streamRedisTemplate.opsForStream().read(String.class, consumer,
+                        StreamReadOptions.empty().count(count).block(options.getPollTimeout()),
+                        StreamOffset.create(streamKey, ReadOffset.lastConsumed()));
+                if (CollUtil.isEmpty(records)) {
+                    continue;
+                }
+                records.forEach(this::dispatch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Read stream {} error", streamKey, e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Wait until a worker is free
+     *
+     * @return Number of free workers
+     */
+    private synchronized int awaitFreeWorkers() throws InterruptedException {
+        while (inFlight >= concurrency) {
+            wait();
+        }
+        return concurrency - inFlight;
+    }
+
+    private void dispatch(ObjectRecord<String, String> record) {
+        synchronized (this) {
+            inFlight++;
+        }
+        try {
+            workerExecutor.execute(() -> handle(record));
+        } catch (RejectedExecutionException e) {
+            // Stopping, the message stays pending
+            onCompleted(-1, false);
+        }
+    }
+
+    private void handle(ObjectRecord<String, String> record) {
+        var start = System.currentTimeMillis();
+        try {
+            listener.onMessage(record);
+        } catch (Throwable throwable) {
+            errorHandler.handleError(throwable);
+        } finally {
+            onCompleted(System.currentTimeMillis() - start, true);
+        }
+    }
+
+    private synchronized void onCompleted(long millis, boolean handled) {
+        var saturated = inFlight >= concurrency;
+        inFlight--;
+        if (handled) {
+            latencyMillis = latencyMillis < 0 ? millis : LATENCY_WEIGHT * millis + (1 - LATENCY_WEIGHT) * latencyMillis;
+            adjustConcurrency(saturated);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Change the concurrency at most once per average handling time, so that the messages handled with the
+     * previous concurrency are measured first
+     */
+    private void adjustConcurrency(boolean saturated) {
+        var now = System.currentTimeMillis();
+        if (now - lastAdjustAt < Math.max(latencyMillis, options.getMinAdjustIntervalMillis())) {
+            return;
+        }
+        var maxConcurrency = Math.max(1, options.getMaxConcurrency());
+        var newConcurrency = concurrency;
+        if (latencyMillis > options.getTargetLatencyMillis()) {
+            newConcurrency = Math.max(1, Math.min(concurrency - 1, concurrency * 3 / 4));
+        } else if (saturated) {
+            newConcurrency = Math.min(maxConcurrency, concurrency + 1);
+        }
+        if (newConcurrency != concurrency) {
+            log.info("Stream consumer {} concurrency {} -> {}, average handling time {}ms", streamKey, concurrency,
+                    newConcurrency, (long) latencyMillis);
+            concurrency = newConcurrency;
+        }
+        lastAdjustAt = now;
+    }
+
+    private void refreshLag() {
+        try {
+            var streamOperations = streamRedisTemplate.opsForStream();
+            var pendingSummary = streamOperations.pending(streamKey, consumer.getGroup());
+            pendingNum.set(pendingSummary == null ? 0 : pendingSummary.getTotalPendingMessages());
+            var streamInfo = streamOperations.info(streamKey);
+            streamLength.set(streamInfo.streamLength());
+            streamOperations.groups(streamKey).stream()
+                    .filter(group -> consumer.getGroup().equals(group.groupName()))
+                    .findFirst()
+                    .ifPresent(group -> lagMillis.set(getLagMillis(streamInfo.lastGeneratedId(), group.lastDeliveredId())));
+        } catch (Exception e) {
+            log.debug("Refresh stream {} lag error: {}", streamKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Time between the newest message and the last message delivered to the group, from the timestamps of their ids
+     */
+    private static long getLagMillis(String lastGeneratedId, String lastDeliveredId) {
+        if (lastGeneratedId == null || lastDeliveredId == null || lastGeneratedId.equals(lastDeliveredId)) {
+            return 0;
+        }
+        return Math.max(0, RecordId.of(lastGeneratedId).getTimestamp() - RecordId.of(lastDeliveredId).getTimestamp());
+    }
+
+    private synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    private synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(options.getPollTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Data
+    public static class Options {
+
+        /**
+         * Most messages handled at the same time
+         */
+        private int maxConcurrency = 4;
+
+        /**
+         * Concurrency before the handling time is measured
+         */
+        private int initialConcurrency = 1;
+
+        /**
+         * Most messages of a read
+         */
+        private int maxBatchSize = 10;
+
+        /**
+         * Average handling time above which the concurrency shrinks
+         */
+        private long targetLatencyMillis = 60000;
+
+        /**
+         * Least time between two concurrency changes
+         */
+        private long minAdjustIntervalMillis = 1000;
+
+        /**
+         * Block time of a read, less than `spring.redis.timeout`
+         */
+        private Duration pollTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -6,28 +6,30 @@ import ai.basic.x1.adapter.dto.ApiResult;
 import ai.basic.x1.adapter.dto.PreModelParamDTO;
 import ai.basic.x1.adapter.port.dao.mybatis.model.DataAnnotationObject;
 import ai.basic.x1.adapter.port.dao.mybatis.model.ModelDatasetResult;
-import ai.basic.x1.adapter.port.dao.mybatis.model.ModelRunRecord;
 import ai.basic.x1.adapter.port.rpc.ImageDetectionModelHttpCaller;
 import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionMetricsReqDTO;
 import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionObject;
+import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionReqDTO;
 import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionRespDTO;
 import ai.basic.x1.entity.*;
 import ai.basic.x1.entity.enums.DataAnnotationObjectSourceTypeEnum;
 import ai.basic.x1.entity.enums.ModelCodeEnum;
-import ai.basic.x1.usecase.ModelUseCase;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.DefaultConverter;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -40,9 +42,6 @@ public class ImageDetectionModelHandler extends AbstractModelMessageHandler<Imag
     @Autowired
     private ImageDetectionModelHttpCaller modelHttpCaller;
 
-    @Autowired
-    private ModelUseCase modelUseCase;
-
     @Value("${image.resultEvaluate.url}")
     private String resultEvaluateUrl;
 
@@ -51,17 +50,77 @@ public class ImageDetectionModelHandler extends AbstractModelMessageHandler<Imag
         log.info("start model run. dataId: {}, modelSerialNo: {}", message.getDataId(),
                 message.getModelSerialNo());
         var apiResult = getRetryAbleApiResult(message);
-        var systemModelClassMap = modelUseCase.getModelClassMapByModelId(message.getModelId());
-        var filterCondition = JSONUtil.toBean(message.getResultFilterParam(),
+        var modelRunContext = getModelRunContext(message);
+        var systemModelClassMap = modelRunContext.getModelClassMap();
+        var filterCondition = JSONUtil.toBean(modelRunContext.getResultFilterParam(),
                 PreModelParamDTO.class);
         return ModelCocoResponseConverter.convert(apiResult, systemModelClassMap, filterCondition);
     }
 
-    //To-DO: need to be develpoed batch run function
+    /**
+     * Run the images of the messages in requests of batchSize images. The results are in the order of the messages,
+     * an image without response or whose request failed gets an error result, the other images are not affected.
+     */
     @Override
     public List<ModelTaskInfoBO> modelRunBatch(List<ModelMessageBO> modelMessageBOList) {
-        // 단일 객체 반환이라면 빈 리스트로 초기화
-        return new ArrayList<>();
+        var firstMessage = modelMessageBOList.get(0);
+        log.info("start model batch run. size: {}, modelSerialNo: {}", modelMessageBOList.size(), firstMessage.getModelSerialNo());
+        var modelRunContext = getModelRunContext(firstMessage);
+        var systemModelClassMap = modelRunContext.getModelClassMap();
+        var filterCondition = JSONUtil.toBean(modelRunContext.getResultFilterParam(), PreModelParamDTO.class);
+        var batchSize = Math.max(1, modelCallGuard.getPolicy(getModelCodeEnum()).getBatchSize());
+        var results = new ArrayList<ModelTaskInfoBO>(modelMessageBOList.size());
+        ListUtil.partition(modelMessageBOList, batchSize).forEach(subMessageList -> {
+            var imageDataMap = new LinkedHashMap<Long, ImageDetectionReqDTO.ImageData>(subMessageList.size());
+            var errorMap = new HashMap<Long, String>();
+            subMessageList.forEach(message -> {
+                try {
+                    imageDataMap.put(message.getDataId(), ModelCocoRequestConverter.convertImageData(message));
+                } catch (IllegalArgumentException e) {
+                    errorMap.put(message.getDataId(), e.getMessage());
+                }
+            });
+            var responseMap = new HashMap<Long, ImageDetectionRespDTO>(imageDataMap.size());
+            if (!imageDataMap.isEmpty()) {
+                var apiResult = getRetryAbleBatchApiResult(new ArrayList<>(imageDataMap.values()), firstMessage.getUrl());
+                if (apiResult.getCode() == UsecaseCode.OK && CollUtil.isNotEmpty(apiResult.getData())) {
+                    apiResult.getData().stream().filter(response -> response.getId() != null)
+                            .forEach(response -> responseMap.put(response.getId(), response));
+                } else {
+                    imageDataMap.keySet().forEach(dataId -> errorMap.put(dataId, apiResult.getMessage()));
+                }
+            }
+            subMessageList.forEach(message -> {
+                var dataId = message.getDataId();
+                var response = responseMap.get(dataId);
+                if (response != null) {
+                    results.add(ModelCocoResponseConverter.convert(new ApiResult<>(UsecaseCode.OK, "success", response),
+                            systemModelClassMap, filterCondition));
+                } else {
+                    results.add(ImageDetectionObjectBO.builder().code(UsecaseCode.ERROR.getCode()).dataId(dataId)
+                            .message(errorMap.getOrDefault(dataId, "no result of the data")).build());
+                }
+            });
+        });
+        return results;
+    }
+
+    private ApiResult<List<ImageDetectionRespDTO>> getRetryAbleBatchApiResult(List<ImageDetectionReqDTO.ImageData> imageDataList, String url) {
+        try {
+            var apiResult = modelCallGuard.call(getModelCodeEnum(), () -> {
+                try {
+                    return modelHttpCaller.callPredImageModel(ImageDetectionReqDTO.builder().datas(imageDataList).build(), url);
+                } catch (IOException e) {
+                    throw new UsecaseException(UsecaseCode.UNKNOWN, e.getMessage());
+                }
+            });
+            if (apiResult != null) {
+                return apiResult;
+            }
+        } catch (Exception e) {
+            log.error("call image batch error", e);
+        }
+        return new ApiResult<>(UsecaseCode.UNKNOWN, "service is busy");
     }
 
     @Override
@@ -82,23 +141,19 @@ public class ImageDetectionModelHandler extends AbstractModelMessageHandler<Imag
     }
 
     @Override
-    public void syncModelAnnotationResult(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage) {
+    public List<DataAnnotationObjectBO> assembleModelAnnotationObjects(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage, Long sourceId) {
         var modelResult = (ImageDetectionObjectBO) modelTaskInfo;
-        if (CollUtil.isNotEmpty(modelResult.getObjects())) {
-            var lambdaQueryWrapper = Wrappers.lambdaQuery(ModelRunRecord.class);
-            lambdaQueryWrapper.eq(ModelRunRecord::getModelSerialNo,modelMessage.getModelSerialNo());
-            lambdaQueryWrapper.last("limit 1");
-            var modelRunRecord = modelRunRecordDAO.getOne(lambdaQueryWrapper);
-            var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>(modelResult.getObjects().size());
-            modelResult.getObjects().forEach(o -> {
-                var dataAnnotationObjectBO = DataAnnotationObjectBO.builder()
-                        .datasetId(modelMessage.getDatasetId()).dataId(modelResult.getDataId()).classAttributes(JSONUtil.parseObj(o))
-                        .sourceType(DataAnnotationObjectSourceTypeEnum.MODEL).sourceId(modelRunRecord.getId()).build();
-                dataAnnotationObjectBOList.add(dataAnnotationObjectBO);
-            });
-
-            dataAnnotationObjectDAO.saveBatch(DefaultConverter.convert(dataAnnotationObjectBOList, DataAnnotationObject.class));
+        if (CollUtil.isEmpty(modelResult.getObjects())) {
+            return List.of();
         }
+        var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>(modelResult.getObjects().size());
+        modelResult.getObjects().forEach(o -> {
+            var dataAnnotationObjectBO = DataAnnotationObjectBO.builder()
+                    .datasetId(modelMessage.getDatasetId()).dataId(modelResult.getDataId()).classAttributes(JSONUtil.parseObj(o))
+                    .sourceType(DataAnnotationObjectSourceTypeEnum.MODEL).sourceId(sourceId).build();
+            dataAnnotationObjectBOList.add(dataAnnotationObjectBO);
+        });
+        return dataAnnotationObjectBOList;
     }
 
     @Override
@@ -0,0 +1,24 @@
+package ai.basic.x1.adapter.api.job;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.ModelClass;
+import ai.basic.x1.adapter.port.dao.mybatis.model.ModelRunRecord;
+import cn.hutool.json.JSONObject;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * What the messages of one model run share and do not change while it runs, loaded once per model serial no
+ */
+@Value
+public class ModelRunContext {
+
+    ModelRunRecord modelRunRecord;
+
+    /**
+     * Model classes by code
+     */
+    Map<String, ModelClass> modelClassMap;
+
+    JSONObject resultFilterParam;
+}
@@ -6,7 +6,6 @@ import ai.basic.x1.adapter.dto.ApiResult;
 import ai.basic.x1.adapter.port.dao.mybatis.model.DataAnnotationObject;
 import ai.basic.x1.adapter.port.dao.mybatis.model.ModelClass;
 import ai.basic.x1.adapter.port.dao.mybatis.model.ModelDatasetResult;
-import ai.basic.x1.adapter.port.dao.mybatis.model.ModelRunRecord;
 import ai.basic.x1.adapter.port.rpc.PointCloudDetectionModelHttpCaller;
 import ai.basic.x1.adapter.port.rpc.dto.PointCloudDetectionMetricsReqDTO;
 import ai.basic.x1.adapter.port.rpc.dto.PointCloudDetectionObject;
@@ -17,7 +16,6 @@ import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.entity.*;
 import ai.basic.x1.entity.enums.DataAnnotationObjectSourceTypeEnum;
 import ai.basic.x1.entity.enums.ModelCodeEnum;
-import ai.basic.x1.usecase.ModelUseCase;
 import ai.basic.x1.util.DefaultConverter;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
@@ -26,7 +24,6 @@ import cn.hutool.json.JSONUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONArray;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -46,9 +43,6 @@ public class PointCloudDetectionModelMessageHandler extends AbstractModelMessage
     @Autowired
     private PointCloudDetectionModelHttpCaller preLabelModelHttpCaller;
 
-    @Autowired
-    private ModelUseCase modelUseCase;
-
     @Value("${pointCloud.resultEvaluate.url}")
     private String resultEvaluateUrl;
 
@@ -56,9 +50,10 @@ public class PointCloudDetectionModelMessageHandler extends AbstractModelMessage
     @Override
     public ModelTaskInfoBO modelRun(ModelMessageBO modelMessageBO) {
         ApiResult<List<PointCloudDetectionRespDTO>> apiResult = getRetryAbleApiResult(modelMessageBO);
-        Map<String, ModelClass> modelClassMap = modelUseCase.getModelClassMapByModelId(modelMessageBO.getModelId());
+        ModelRunContext modelRunContext = getModelRunContext(modelMessageBO);
+        Map<String, ModelClass> modelClassMap = modelRunContext.getModelClassMap();
         PointCloudDetectionObjectBO preLabelModelObjectBO = ModelResultConverter.preModelResultConverter(apiResult,
-                JSONUtil.toBean(modelMessageBO.getResultFilterParam(), PointCloudDetectionParamBO.class), modelClassMap);
+                JSONUtil.toBean(modelRunContext.getResultFilterParam(), PointCloudDetectionParamBO.class), modelClassMap);
         return preLabelModelObjectBO;
     }
     
@@ -67,10 +62,11 @@ public class PointCloudDetectionModelMessageHandler extends AbstractModelMessage
         try {
             // log.info("modelRunBatch modelSerialNo: {}", modelMessageBOList.get(0).getModelSerialNo());
             ApiResult<List<PointCloudDetectionExtendedRespDTO>> apiResult = getModelRunBatchApiResult(modelMessageBOList);
-            Map<String, ModelClass> modelClassMap = modelUseCase.getModelClassMapByModelId(modelMessageBOList.get(0).getModelId());
+            ModelRunContext modelRunContext = getModelRunContext(modelMessageBOList.get(0));
+            Map<String, ModelClass> modelClassMap = modelRunContext.getModelClassMap();
             // log.info("model id: {}, modelClassMap: {}", modelMessageBOList.get(0).getModelId(), modelClassMap);
             List<PointCloudDetectionObjectBO> preLabelModelObjectBO = ModelResultConverter.preModelBatchResultConverter(apiResult,
-                    JSONUtil.toBean(modelMessageBOList.get(0).getResultFilterParam(), PointCloudDetectionParamBO.class), modelClassMap);
+                    JSONUtil.toBean(modelRunContext.getResultFilterParam(), PointCloudDetectionParamBO.class), modelClassMap);
             return new ArrayList<ModelTaskInfoBO>(preLabelModelObjectBO);
         } catch (Exception e) {
             log.error("modelRunBatch 실행 중 오류 발생", e);
@@ -87,46 +83,43 @@ public class PointCloudDetectionModelMessageHandler extends AbstractModelMessage
     }
 
     @Override
-    public void syncModelAnnotationResult(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage) {
+    public List<DataAnnotationObjectBO> assembleModelAnnotationObjects(ModelTaskInfoBO modelTaskInfo, ModelMessageBO modelMessage, Long sourceId) {
         var modelResult = (PointCloudDetectionObjectBO) modelTaskInfo;
-        if (CollUtil.isNotEmpty(modelResult.getObjects())) {
-            var lambdaQueryWrapper = Wrappers.lambdaQuery(ModelRunRecord.class);
-            lambdaQueryWrapper.eq(ModelRunRecord::getModelSerialNo,modelMessage.getModelSerialNo());
-            lambdaQueryWrapper.last("limit 1");
-            var modelRunRecord = modelRunRecordDAO.getOne(lambdaQueryWrapper);
-            var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>(modelResult.getObjects().size());
-            modelResult.getObjects().forEach(o -> {
-                // 원본 객체 JSON 변환
-                var objJson = JSONUtil.parseObj(o);
-
-                // contour 생성
-                var contour = new JSONObject();
-                contour.set("pointN", objJson.getInt("pointN"));
-                contour.set("points", new JSONArray()); // 빈 배열
-                contour.set("size3D", objJson.getJSONObject("size3D"));
-                contour.set("center3D", objJson.getJSONObject("center3D"));
-                contour.set("rotation3D", objJson.getJSONObject("rotation3D"));
-
-                // 원본 JSON에서 contour 관련 필드 제거
-                objJson.remove("pointN");
-                objJson.remove("size3D");
-                objJson.remove("center3D");
-                objJson.remove("rotation3D");
-
-                // contour 삽입
-                objJson.set("contour", contour);
-
-                var dataAnnotationObjectBO = DataAnnotationObjectBO.builder()
-                        .datasetId(modelMessage.getDatasetId())
-                        .dataId(modelResult.getDataId())
-                        .classAttributes(objJson)
-                        .sourceType(DataAnnotationObjectSourceTypeEnum.MODEL)
-                        .sourceId(modelRunRecord.getId())
-                        .build();
-                dataAnnotationObjectBOList.add(dataAnnotationObjectBO);
-            });
-            dataAnnotationObjectDAO.saveBatch(DefaultConverter.convert(dataAnnotationObjectBOList, DataAnnotationObject.class));
+        if (CollUtil.isEmpty(modelResult.getObjects())) {
+            return List.of();
         }
+        var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>(modelResult.getObjects().size());
+        modelResult.getObjects().forEach(o -> {
+            // 원본 객체 JSON 변환
+            var objJson = JSONUtil.parseObj(o);
+
+            // contour 생성
+            var contour = new JSONObject();
+            contour.set("pointN", objJson.getInt("pointN"));
+            contour.set("points", new JSONArray()); // 빈 배열
+            contour.set("size3D", objJson.getJSONObject("size3D"));
+            contour.set("center3D", objJson.getJSONObject("center3D"));
+            contour.set("rotation3D", objJson.getJSONObject("rotation3D"));
+
+            // 원본 JSON에서 contour 관련 필드 제거
+            objJson.remove("pointN");
+            objJson.remove("size3D");
+            objJson.remove("center3D");
+            objJson.remove("rotation3D");
+
+            // contour 삽입
+            objJson.set("contour", contour);
+
+            var dataAnnotationObjectBO = DataAnnotationObjectBO.builder()
+                    .datasetId(modelMessage.getDatasetId())
+                    .dataId(modelResult.getDataId())
+                    .classAttributes(objJson)
+                    .sourceType(DataAnnotationObjectSourceTypeEnum.MODEL)
+                    .sourceId(sourceId)
+                    .build();
+            dataAnnotationObjectBOList.add(dataAnnotationObjectBO);
+        });
+        return dataAnnotationObjectBOList;
     }
 
 
@@ -211,7 +204,7 @@ public class PointCloudDetectionModelMessageHandler extends AbstractModelMessage
     public ApiResult<List<PointCloudDetectionExtendedRespDTO>> getModelRunBatchApiResult(List<ModelMessageBO> modelMessageBOList) {
         try {
             ApiResult<List<PointCloudDetectionExtendedRespDTO>> apiResult =
-                    callRemoteBatchRunService(modelMessageBOList);
+                    modelCallGuard.call(getModelCodeEnum(), () -> callRemoteBatchRunService(modelMessageBOList));
 
             if (apiResult != null && apiResult.getCode() == UsecaseCode.OK) {
                 return apiResult;
@@ -15,6 +15,16 @@ import static ai.basic.x1.util.Constants.FILE;
 public class ModelCocoRequestConverter {
 
     public static ImageDetectionReqDTO convert(ModelMessageBO message) {
+        return ImageDetectionReqDTO.builder().datas(List.of(convertImageData(message))).build();
+    }
+
+    /**
+     * Image of a message, several of them make the request of a batched run
+     *
+     * @param message Model message
+     * @return Image data
+     */
+    public static ImageDetectionReqDTO.ImageData convertImageData(ModelMessageBO message) {
         var dataInfo = message.getDataInfo();
         if (dataInfo == null) {
             throw new IllegalArgumentException(String.format("%s data is not found",
@@ -34,8 +44,7 @@ public class ModelCocoRequestConverter {
         if (StrUtil.isEmpty(url)) {
             throw new IllegalArgumentException("file url is empty");
         }
-        return ImageDetectionReqDTO.builder().datas(List.of(ImageDetectionReqDTO.ImageData.builder()
-                .id(dataInfo.getId()).url(url).build())).build();
+        return ImageDetectionReqDTO.ImageData.builder().id(dataInfo.getId()).url(url).build();
     }
 
 }
@@ -6,7 +6,7 @@ import ai.basic.x1.entity.DataInfoBO;
 import ai.basic.x1.entity.FileBO;
 import ai.basic.x1.entity.ModelMessageBO;
 import ai.basic.x1.entity.RelationFileBO;
-import ai.basic.x1.util.DefaultConverter;
+import ai.basic.x1.entity.enums.RelationEnum;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -84,21 +84,20 @@ public class PointCloudDetectionModelReqConverter {
 
 
     private static FileBO getFileBO(RelationFileBO relationFileBO) {
-        FileBO fileBO = DefaultConverter.convert(relationFileBO, FileBO.class);
         if (relationFileBO.getPath().toUpperCase().endsWith(PCD_SUFFIX)) {
             var relationFileBos = relationFileBO.getRelationFiles();
             if (CollectionUtil.isNotEmpty(relationFileBos)) {
+                FileBO binaryFileBO = null;
                 for (FileBO rf : relationFileBos) {
-                    switch (rf.getRelation()) {
-                        case BINARY:
-                            fileBO = DefaultConverter.convert(rf, FileBO.class);
-                            break;
-                        default:
-                            break;
+                    if (RelationEnum.BINARY.equals(rf.getRelation())) {
+                        binaryFileBO = rf;
                     }
                 }
+                if (binaryFileBO != null) {
+                    return binaryFileBO;
+                }
             }
         }
-        return fileBO;
+        return relationFileBO;
     }
 }
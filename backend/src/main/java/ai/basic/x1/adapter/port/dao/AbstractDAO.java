@@ -84,6 +84,37 @@ public abstract class AbstractDAO<M extends BaseMapper<T>, T> {
                 .list();
     }
 
+    /**
+     * Delete all rows of a field value in chunks. The ids of one chunk are selected and removed with one
+     * DELETE ... WHERE id IN statement, so a large delete never holds the locks of all its rows at once
+     * and never loads all their ids.
+     *
+     * @param idGetter    Id of the rows
+     * @param fieldGetter Field to match
+     * @param value       Field value
+     * @param batchSize   Number of rows per statement
+     * @return Number of deleted rows
+     */
+    public long removeAllByFieldInBatches(SFunction<T, ?> idGetter, SFunction<T, ?> fieldGetter, Object value, int batchSize) {
+        var removedCount = 0L;
+        while (true) {
+            var ids = this.lambdaQuery()
+                    .select(idGetter)
+                    .eq(fieldGetter, value)
+                    .last("LIMIT " + batchSize)
+                    .list().stream().map(idGetter).collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return removedCount;
+            }
+            var batchRemovedCount = getBaseMapper().deleteBatchIds(ids);
+            removedCount += batchRemovedCount;
+            // A chunk that removed nothing would be selected again
+            if (ids.size() < batchSize || batchRemovedCount == 0) {
+                return removedCount;
+            }
+        }
+    }
+
     /**
      * batch sql SqlSession
      *
@@ -2,8 +2,13 @@ package ai.basic.x1.adapter.port.dao;
 
 import ai.basic.x1.adapter.port.dao.mybatis.mapper.DataAnnotationObjectMapper;
 import ai.basic.x1.adapter.port.dao.mybatis.model.DataAnnotationObject;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * @author chenchao
  * @date 2022/8/26
@@ -11,6 +16,35 @@ import org.springframework.stereotype.Component;
 @Component
 public class DataAnnotationObjectDAO extends AbstractDAO<DataAnnotationObjectMapper, DataAnnotationObject>{
 
+    /**
+     * Indexes added by V3__Add_data_annotation_object_indexes.sql, the data_id, dataset_id, source_id
+     * and class_id filters of this table fall back to full scans without them
+     */
+    private static final List<String> EXPECTED_INDEXES = List.of(
+            "idx_data_id_source_id",
+            "idx_data_id_source_type",
+            "idx_dataset_id_class_id_data_id",
+            "idx_class_id_data_id");
+
+    /**
+     * Warn at startup when the expected indexes are missing, e.g. on a database created before the migration
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndexes() {
+        try {
+            var indexNames = getBaseMapper().findIndexNames();
+            var missingIndexes = EXPECTED_INDEXES.stream()
+                    .filter(indexName -> indexNames.stream().noneMatch(indexName::equalsIgnoreCase))
+                    .collect(Collectors.toList());
+            if (!missingIndexes.isEmpty()) {
+                log.warn("data_annotation_object is missing indexes " + missingIndexes
+                        + ", apply V3__Add_data_annotation_object_indexes.sql");
+            }
+        } catch (Exception e) {
+            log.warn("Check data_annotation_object indexes error: " + e.getMessage());
+        }
+    }
+
     public long countByDatasetIdAndSourceId(Long datasetId, Long sourceId) {
         return lambdaQuery().eq(DataAnnotationObject::getDatasetId, datasetId)
                 .eq(DataAnnotationObject::getSourceId, sourceId)
@@ -0,0 +1,89 @@
+package ai.basic.x1.adapter.port.dao;
+
+import ai.basic.x1.adapter.port.dao.mybatis.mapper.DatasetDeleteJobMapper;
+import ai.basic.x1.adapter.port.dao.mybatis.model.DatasetDeleteJob;
+import ai.basic.x1.entity.enums.DatasetDeleteJobStatusEnum;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Dataset delete job DAO
+ */
+@Component
+public class DatasetDeleteJobDAO extends AbstractDAO<DatasetDeleteJobMapper, DatasetDeleteJob> {
+
+    /**
+     * Find the unfinished jobs that no node runs and that may be attempted again
+     *
+     * @param maxAttempts     Most runs of a job
+     * @param heartbeatBefore Heartbeats before this time are expired
+     * @return Jobs
+     */
+    public List<DatasetDeleteJob> findClaimable(int maxAttempts, OffsetDateTime heartbeatBefore) {
+        return lambdaQuery()
+                .ne(DatasetDeleteJob::getStatus, DatasetDeleteJobStatusEnum.COMPLETED)
+                .lt(DatasetDeleteJob::getAttemptCount, maxAttempts)
+                .and(w -> w.isNull(DatasetDeleteJob::getHeartbeatAt).or().lt(DatasetDeleteJob::getHeartbeatAt, heartbeatBefore))
+                .list();
+    }
+
+    /**
+     * Claim a job for a run with the same conditions as {@link #findClaimable}, only one node succeeds
+     *
+     * @return Whether the job was claimed
+     */
+    public boolean claim(DatasetDeleteJob job, String owner, int maxAttempts, OffsetDateTime heartbeatBefore) {
+        return lambdaUpdate()
+                .set(DatasetDeleteJob::getOwner, owner)
+                .set(DatasetDeleteJob::getHeartbeatAt, OffsetDateTime.now())
+                .setSql("attempt_count = attempt_count + 1")
+                .eq(DatasetDeleteJob::getId, job.getId())
+                .ne(DatasetDeleteJob::getStatus, DatasetDeleteJobStatusEnum.COMPLETED)
+                .lt(DatasetDeleteJob::getAttemptCount, maxAttempts)
+                .and(w -> w.isNull(DatasetDeleteJob::getHeartbeatAt).or().lt(DatasetDeleteJob::getHeartbeatAt, heartbeatBefore))
+                .update();
+    }
+
+    /**
+     * Renew the heartbeat of the jobs run by the owner
+     */
+    public void heartbeat(Collection<Long> ids, String owner) {
+        lambdaUpdate()
+                .set(DatasetDeleteJob::getHeartbeatAt, OffsetDateTime.now())
+                .in(DatasetDeleteJob::getId, ids)
+                .eq(DatasetDeleteJob::getOwner, owner)
+                .update();
+    }
+
+    public void updateStatus(DatasetDeleteJob job, DatasetDeleteJobStatusEnum status, Integer failedObjectCount, String errorMessage) {
+        // updatedBy is set explicitly, resumed jobs run without a request context
+        updateById(DatasetDeleteJob.builder()
+                .id(job.getId())
+                .status(status)
+                .failedObjectCount(failedObjectCount)
+                .errorMessage(errorMessage)
+                .updatedBy(job.getCreatedBy())
+                .build());
+    }
+
+    /**
+     * Set the final status of a run and give the job up, so that a failed job can be claimed again
+     */
+    public void release(DatasetDeleteJob job, String owner, DatasetDeleteJobStatusEnum status, Integer failedObjectCount, String errorMessage) {
+        var updateWrapper = lambdaUpdate()
+                .set(DatasetDeleteJob::getStatus, status)
+                .set(DatasetDeleteJob::getErrorMessage, errorMessage)
+                .set(DatasetDeleteJob::getOwner, null)
+                .set(DatasetDeleteJob::getHeartbeatAt, null)
+                .set(DatasetDeleteJob::getUpdatedBy, job.getCreatedBy())
+                .eq(DatasetDeleteJob::getId, job.getId())
+                .eq(DatasetDeleteJob::getOwner, owner);
+        if (failedObjectCount != null) {
+            updateWrapper.set(DatasetDeleteJob::getFailedObjectCount, failedObjectCount);
+        }
+        updateWrapper.update();
+    }
+}
@@ -0,0 +1,78 @@
+package ai.basic.x1.adapter.port.dao;
+
+import ai.basic.x1.adapter.port.dao.mybatis.mapper.UploadCheckpointMapper;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadCheckpoint;
+import ai.basic.x1.entity.enums.UploadCheckpointStageEnum;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Upload checkpoint DAO
+ */
+@Component
+public class UploadCheckpointDAO extends AbstractDAO<UploadCheckpointMapper, UploadCheckpoint> {
+
+    public void updateStage(Long uploadRecordId, UploadCheckpointStageEnum stage, String uploadParam, Long userId) {
+        // updatedBy is set explicitly, resumed uploads and the decompression threads run without a request context
+        update(UploadCheckpoint.builder().stage(stage).uploadParam(uploadParam).updatedBy(userId).build(),
+                Wrappers.lambdaUpdate(UploadCheckpoint.class).eq(UploadCheckpoint::getUploadRecordId, uploadRecordId));
+    }
+
+    public void removeByUploadRecordId(Long uploadRecordId) {
+        remove(Wrappers.lambdaQuery(UploadCheckpoint.class).eq(UploadCheckpoint::getUploadRecordId, uploadRecordId));
+    }
+
+    /**
+     * Find the uploads that no node runs
+     *
+     * @param heartbeatBefore Heartbeats before this time are expired
+     * @return Checkpoints
+     */
+    public List<UploadCheckpoint> findClaimable(OffsetDateTime heartbeatBefore) {
+        return lambdaQuery()
+                .and(w -> w.isNull(UploadCheckpoint::getHeartbeatAt).or().lt(UploadCheckpoint::getHeartbeatAt, heartbeatBefore))
+                .list();
+    }
+
+    /**
+     * Claim an upload with the same conditions as {@link #findClaimable}, only one node succeeds
+     *
+     * @return Whether the upload was claimed
+     */
+    public boolean claim(UploadCheckpoint checkpoint, String owner, OffsetDateTime heartbeatBefore) {
+        return lambdaUpdate()
+                .set(UploadCheckpoint::getOwner, owner)
+                .set(UploadCheckpoint::getHeartbeatAt, OffsetDateTime.now())
+                .setSql("attempt_count = attempt_count + 1")
+                .eq(UploadCheckpoint::getId, checkpoint.getId())
+                .and(w -> w.isNull(UploadCheckpoint::getHeartbeatAt).or().lt(UploadCheckpoint::getHeartbeatAt, heartbeatBefore))
+                .update();
+    }
+
+    /**
+     * Renew the heartbeat of the uploads run by the owner
+     */
+    public void heartbeat(Collection<Long> uploadRecordIds, String owner) {
+        lambdaUpdate()
+                .set(UploadCheckpoint::getHeartbeatAt, OffsetDateTime.now())
+                .in(UploadCheckpoint::getUploadRecordId, uploadRecordIds)
+                .eq(UploadCheckpoint::getOwner, owner)
+                .update();
+    }
+
+    /**
+     * Give an interrupted upload up and keep its checkpoint, so that it can be claimed again
+     */
+    public void release(Long uploadRecordId, String owner) {
+        lambdaUpdate()
+                .set(UploadCheckpoint::getOwner, null)
+                .set(UploadCheckpoint::getHeartbeatAt, null)
+                .eq(UploadCheckpoint::getUploadRecordId, uploadRecordId)
+                .eq(UploadCheckpoint::getOwner, owner)
+                .update();
+    }
+}
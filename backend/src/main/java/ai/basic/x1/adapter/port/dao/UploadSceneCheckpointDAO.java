@@ -0,0 +1,27 @@
+package ai.basic.x1.adapter.port.dao;
+
+import ai.basic.x1.adapter.port.dao.mybatis.mapper.UploadSceneCheckpointMapper;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadSceneCheckpoint;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Upload scene checkpoint DAO
+ */
+@Component
+public class UploadSceneCheckpointDAO extends AbstractDAO<UploadSceneCheckpointMapper, UploadSceneCheckpoint> {
+
+    public List<UploadSceneCheckpoint> findByUploadRecordId(Long uploadRecordId) {
+        return lambdaQuery().eq(UploadSceneCheckpoint::getUploadRecordId, uploadRecordId).list();
+    }
+
+    public void complete(Long id, Long userId) {
+        updateById(UploadSceneCheckpoint.builder().id(id).isCompleted(true).updatedBy(userId).build());
+    }
+
+    public void removeByUploadRecordId(Long uploadRecordId) {
+        remove(Wrappers.lambdaQuery(UploadSceneCheckpoint.class).eq(UploadSceneCheckpoint::getUploadRecordId, uploadRecordId));
+    }
+}
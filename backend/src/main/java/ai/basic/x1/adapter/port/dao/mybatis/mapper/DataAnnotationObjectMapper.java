@@ -23,4 +23,11 @@ public interface DataAnnotationObjectMapper extends ExtendBaseMapper<DataAnnotat
    Page<DataAnnotationObject> findDataIdByScenarioPage(Page<DataAnnotationObject> page, @Param("scenarioQuery") ScenarioQuery scenarioQuery);
 
    List<Long> findDataIdByScenario(@Param("scenarioQuery") ScenarioQuery scenarioQuery);
+
+   /**
+    * Index names of the data_annotation_object table in the current schema
+    *
+    * @return index names
+    */
+   List<String> findIndexNames();
 }
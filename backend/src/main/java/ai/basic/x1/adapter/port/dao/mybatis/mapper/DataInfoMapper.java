@@ -96,6 +96,14 @@ public interface DataInfoMapper extends ExtendBaseMapper<DataInfo> {
      */
     int deleteByDatasetId(@Param("datasetId") Long datasetId);
 
+    /**
+     * Get the file ids referenced by the content of the data of a dataset, deleted data included
+     *
+     * @param datasetId Dataset id
+     * @return One json array of file ids per data
+     */
+    List<String> selectContentFileIds(@Param("datasetId") Long datasetId);
+
 
     /**
      * Query the first data ID of consecutive frames
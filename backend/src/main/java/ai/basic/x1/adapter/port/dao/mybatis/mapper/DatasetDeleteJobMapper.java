@@ -0,0 +1,10 @@
+package ai.basic.x1.adapter.port.dao.mybatis.mapper;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.DatasetDeleteJob;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * Dataset delete job mapper
+ */
+public interface DatasetDeleteJobMapper extends BaseMapper<DatasetDeleteJob> {
+}
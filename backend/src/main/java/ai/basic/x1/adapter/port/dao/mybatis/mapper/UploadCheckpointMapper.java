@@ -0,0 +1,10 @@
+package ai.basic.x1.adapter.port.dao.mybatis.mapper;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadCheckpoint;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * Upload checkpoint mapper
+ */
+public interface UploadCheckpointMapper extends BaseMapper<UploadCheckpoint> {
+}
@@ -0,0 +1,10 @@
+package ai.basic.x1.adapter.port.dao.mybatis.mapper;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadSceneCheckpoint;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * Upload scene checkpoint mapper
+ */
+public interface UploadSceneCheckpointMapper extends BaseMapper<UploadSceneCheckpoint> {
+}
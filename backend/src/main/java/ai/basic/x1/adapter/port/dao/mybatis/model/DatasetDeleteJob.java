@@ -0,0 +1,71 @@
+package ai.basic.x1.adapter.port.dao.mybatis.model;
+
+import ai.basic.x1.entity.enums.DatasetDeleteJobStatusEnum;
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Dataset delete job
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName(autoResultMap = true)
+public class DatasetDeleteJob {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long datasetId;
+
+    /**
+     * Dataset name, prefix of the dataset folder in MinIO
+     */
+    private String datasetName;
+
+    private DatasetDeleteJobStatusEnum status;
+
+    /**
+     * Objects that could not be removed in the last run
+     */
+    private Integer failedObjectCount;
+
+    /**
+     * Error of the last failed run
+     */
+    private String errorMessage;
+
+    /**
+     * Runs of the job
+     */
+    private Integer attemptCount;
+
+    /**
+     * Node running the job
+     */
+    private String owner;
+
+    /**
+     * Last heartbeat of the owner
+     */
+    private OffsetDateTime heartbeatAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private OffsetDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private Long createdBy;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private OffsetDateTime updatedAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Long updatedBy;
+
+}
@@ -0,0 +1,57 @@
+package ai.basic.x1.adapter.port.dao.mybatis.model;
+
+import ai.basic.x1.entity.enums.UploadCheckpointStageEnum;
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Checkpoint of a running upload
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName(autoResultMap = true)
+public class UploadCheckpoint {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long uploadRecordId;
+
+    private Long datasetId;
+
+    /**
+     * Upload parameter json, with the download and decompression paths
+     */
+    private String uploadParam;
+
+    private UploadCheckpointStageEnum stage;
+
+    private Integer attemptCount;
+
+    /**
+     * Node running the upload
+     */
+    private String owner;
+
+    private OffsetDateTime heartbeatAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private OffsetDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private Long createdBy;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private OffsetDateTime updatedAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Long updatedBy;
+
+}
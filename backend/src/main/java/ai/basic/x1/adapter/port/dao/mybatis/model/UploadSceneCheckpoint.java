@@ -0,0 +1,50 @@
+package ai.basic.x1.adapter.port.dao.mybatis.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Checkpoint of a scene of a running upload
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName(autoResultMap = true)
+public class UploadSceneCheckpoint {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long uploadRecordId;
+
+    /**
+     * Scene folder relative to the decompressed folder
+     */
+    private String scenePath;
+
+    private Long sceneId;
+
+    /**
+     * Whether all frames of the scene are parsed
+     */
+    private Boolean isCompleted;
+
+    @TableField(fill = FieldFill.INSERT)
+    private OffsetDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private Long createdBy;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private OffsetDateTime updatedAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Long updatedBy;
+
+}
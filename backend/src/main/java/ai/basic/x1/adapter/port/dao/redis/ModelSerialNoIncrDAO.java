@@ -15,6 +15,10 @@ public class ModelSerialNoIncrDAO extends AbstractRedisDAO<RedisTemplate<String,
         return template.opsForValue().increment(this.prefixedKey(String.valueOf(modelSerialNo))).intValue();
     }
 
+    public int incrModelSerialNo(Long modelSerialNo, int delta) {
+        return template.opsForValue().increment(this.prefixedKey(String.valueOf(modelSerialNo)), delta).intValue();
+    }
+
     public boolean removeModelSerialNo(Long modelSerialNo) {
         return template.delete(this.prefixedKey(String.valueOf(modelSerialNo)));
     }
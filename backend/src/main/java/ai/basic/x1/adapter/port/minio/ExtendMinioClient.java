@@ -175,4 +175,11 @@ public class ExtendMinioClient extends MinioClient {
         String region = getRegion(args.bucket(), args.region());
         return region;
     }
+
+    public String getRegion(String bucketName)
+            throws ErrorResponseException, InsufficientDataException, InternalException,
+            InvalidKeyException, InvalidResponseException, IOException, NoSuchAlgorithmException,
+            XmlParserException, ServerException {
+        return getRegion(bucketName, null);
+    }
 }
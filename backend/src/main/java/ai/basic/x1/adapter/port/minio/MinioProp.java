@@ -33,4 +33,14 @@ public class MinioProp {
      */
     private String bucketName;
 
+    /**
+     * Maximum number of signed urls kept in memory
+     */
+    private long urlCacheMaximumSize = 10000;
+
+    /**
+     * Minutes a signed url is kept, at most one cache window of 60 minutes is useful
+     */
+    private long urlCacheExpireMinutes = 60;
+
 }
\ No newline at end of file
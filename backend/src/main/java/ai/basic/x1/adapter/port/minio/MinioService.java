@@ -2,26 +2,49 @@ package ai.basic.x1.adapter.port.minio;
 
 import ai.basic.x1.adapter.api.context.RequestContextHolder;
 import ai.basic.x1.entity.PresignedUrlBO;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpStatus;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 import static ai.basic.x1.util.Constants.MINIO;
 import static ai.basic.x1.util.Constants.SLANTING_BAR;
@@ -42,16 +65,85 @@ public class MinioService {
     @Autowired
     private MinioProp minioProp;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     /**
-     * Create bucket
+     * Validity period of the signed access urls, 7 days
+     */
+    private static final int URL_EXPIRY_SECONDS = 60 * 60 * 24 * 7;
+
+    private static final long URL_CACHE_WINDOW_MINUTES = 60;
+
+    private static final int PARALLEL_SIGN_THRESHOLD = 64;
+
+    /**
+     * Maximum number of keys of one multi-object delete request
+     */
+    private static final int REMOVE_BATCH_SIZE = 1000;
+
+    private static final String NO_SUCH_BUCKET = "NoSuchBucket";
+
+    private static final String BUCKET_ALREADY_OWNED_BY_YOU = "BucketAlreadyOwnedByYou";
+
+    private final Set<String> existingBuckets = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> bucketRegionMap = new ConcurrentHashMap<>();
+
+    private Cache<String, String> urlCache;
+
+    @PostConstruct
+    public void init() {
+        urlCache = CacheBuilder.newBuilder()
+                .maximumSize(minioProp.getUrlCacheMaximumSize())
+                .expireAfterWrite(Math.min(minioProp.getUrlCacheExpireMinutes(), URL_CACHE_WINDOW_MINUTES), TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Create the default bucket once at startup, the uploads afterwards find it in the cache
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initBucket() {
+        try {
+            createBucket(minioProp.getBucketName());
+        } catch (Exception e) {
+            log.warn("Create bucket {} error, it is created by the first upload", minioProp.getBucketName(), e);
+        }
+    }
+
+    /**
+     * Create bucket, buckets verified to exist are cached and not checked again until MinIO reports them missing
      *
      * @param bucketName Bucket name
      */
     @SneakyThrows
     private void createBucket(String bucketName) {
+        if (existingBuckets.contains(bucketName)) {
+            return;
+        }
         var bucketExistsArgs = BucketExistsArgs.builder().bucket(bucketName).build();
         if (!extendMinioClient.bucketExists(bucketExistsArgs)) {
-            extendMinioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+            try {
+                extendMinioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+            } catch (ErrorResponseException e) {
+                // Created by another instance in between
+                if (!BUCKET_ALREADY_OWNED_BY_YOU.equals(e.errorResponse().code())) {
+                    throw e;
+                }
+            }
+        }
+        existingBuckets.add(bucketName);
+    }
+
+    /**
+     * Forget a bucket reported missing, e.g. removed from the MinIO console, so that the next upload creates it again
+     */
+    private void checkNoSuchBucket(String bucketName, ErrorResponseException e) {
+        if (NO_SUCH_BUCKET.equals(e.errorResponse().code())) {
+            log.warn("Bucket {} does not exist anymore", bucketName);
+            existingBuckets.remove(bucketName);
+            bucketRegionMap.remove(bucketName);
         }
     }
 
@@ -63,17 +155,15 @@ public class MinioService {
      * @param objectName
      */
     public boolean checkObjectExist(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
-        var bucketExistsArgs = BucketExistsArgs.builder().bucket(bucketName).build();
-        boolean existBucket = extendMinioClient.bucketExists(bucketExistsArgs);
-        if (existBucket) {
-            var statObjectArgs = StatObjectArgs.builder().bucket(bucketName).object(objectName).build();
-            try {
-                var statObjectResponse = extendMinioClient.statObject(statObjectArgs);
-                return !statObjectResponse.object().isEmpty();
-            } catch (ErrorResponseException errorResponseException) {
-                if (errorResponseException.response().code() == HttpStatus.HTTP_NOT_FOUND) {
-                    return false;
-                }
+        var statObjectArgs = StatObjectArgs.builder().bucket(bucketName).object(objectName).build();
+        try {
+            var statObjectResponse = extendMinioClient.statObject(statObjectArgs);
+            return !statObjectResponse.object().isEmpty();
+        } catch (ErrorResponseException errorResponseException) {
+            // A missing bucket is reported as NoSuchBucket, a missing object as NoSuchKey, both with 404
+            checkNoSuchBucket(bucketName, errorResponseException);
+            if (errorResponseException.response().code() == HttpStatus.HTTP_NOT_FOUND) {
+                return false;
             }
         }
         return false;
@@ -101,7 +191,8 @@ public class MinioService {
     public void uploadFileWithoutUrl(String bucketName, String fileName, InputStream inputStream, String contentType, long size) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
         createBucket(bucketName);
 
-        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream)) {
+        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+             var permit = executorRegistry.acquire(ExecutorRegistry.MINIO)) {
             //partSize:-1 is auto setting
             // long partSize = -1;
 
@@ -116,6 +207,9 @@ public class MinioService {
                     .build();
 
             extendMinioClient.putObject(putArgs);
+        } catch (ErrorResponseException e) {
+            checkNoSuchBucket(bucketName, e);
+            throw e;
         }
     }
 
@@ -162,10 +256,15 @@ public class MinioService {
                     null));
         });
         
-        extendMinioClient.uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
-                .bucket(bucketName)
-                .objects(objects)
-                .build());
+        try (var permit = executorRegistry.acquire(ExecutorRegistry.MINIO)) {
+            extendMinioClient.uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .objects(objects)
+                    .build());
+        } catch (ErrorResponseException e) {
+            checkNoSuchBucket(bucketName, e);
+            throw e;
+        }
     }
 
     /**
@@ -178,12 +277,7 @@ public class MinioService {
     public String getUrl(String bucketName, String objectName) throws ServerException, InsufficientDataException,
             ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException,
             InvalidResponseException, XmlParserException, InternalException {
-        var builder = GetPresignedObjectUrlArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .method(Method.GET);
-        var region = extendMinioClient.getRegion(builder.build());
-        return replaceUrl(extendMinioClient.getPresignedObjectUrl(builder.region(region).build()));
+        return replaceUrl(getInternalUrl(bucketName, objectName));
     }
 
     /**
@@ -196,11 +290,94 @@ public class MinioService {
     public String getInternalUrl(String bucketName, String objectName) throws ServerException, InsufficientDataException,
             ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException,
             InvalidResponseException, XmlParserException, InternalException {
-        var builder = GetPresignedObjectUrlArgs.builder()
+        var cacheKey = getUrlCacheKey(bucketName, objectName);
+        var url = urlCache.getIfPresent(cacheKey);
+        if (url == null) {
+            url = signUrl(bucketName, objectName);
+            urlCache.put(cacheKey, url);
+        }
+        return url;
+    }
+
+    /**
+     * Get the temporary access url of a batch of objects in one bucket, the default validity period is 7 days.
+     * The bucket region is resolved once and the objects are signed locally in parallel.
+     *
+     * @param bucketName  Bucket name
+     * @param objectNames File paths
+     * @return File path and internal file url map
+     */
+    public Map<String, String> presignAll(String bucketName, Collection<String> objectNames) {
+        var urlMap = new ConcurrentHashMap<String, String>(objectNames.size());
+        var unsignedNames = new ArrayList<String>();
+        for (String objectName : new HashSet<>(objectNames)) {
+            var url = urlCache.getIfPresent(getUrlCacheKey(bucketName, objectName));
+            if (url != null) {
+                urlMap.put(objectName, url);
+            } else {
+                unsignedNames.add(objectName);
+            }
+        }
+        if (unsignedNames.isEmpty()) {
+            return urlMap;
+        }
+        getRegion(bucketName);
+        var stream = unsignedNames.size() >= PARALLEL_SIGN_THRESHOLD ? unsignedNames.parallelStream() : unsignedNames.stream();
+        stream.forEach(objectName -> {
+            try {
+                var url = signUrl(bucketName, objectName);
+                urlCache.put(getUrlCacheKey(bucketName, objectName), url);
+                urlMap.put(objectName, url);
+            } catch (Exception e) {
+                throw new RuntimeException("Sign url error, object: " + objectName, e);
+            }
+        });
+        return urlMap;
+    }
+
+    /**
+     * Convert an internal file url to the url accessible from the current request
+     *
+     * @param internalUrl Internal file url
+     * @return File url
+     */
+    public String getExternalUrl(String internalUrl) {
+        return replaceUrl(internalUrl);
+    }
+
+    private String signUrl(String bucketName, String objectName) throws ServerException, InsufficientDataException,
+            ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException,
+            InvalidResponseException, XmlParserException, InternalException {
+        var args = GetPresignedObjectUrlArgs.builder()
                 .bucket(bucketName)
+                .region(getRegion(bucketName))
                 .object(objectName)
-                .method(Method.GET);
-        return extendMinioClient.getPresignedObjectUrl(builder.build());
+                .method(Method.GET)
+                .expiry(URL_EXPIRY_SECONDS)
+                .build();
+        return extendMinioClient.getPresignedObjectUrl(args);
+    }
+
+    /**
+     * The region of a bucket never changes, look it up once per bucket
+     */
+    @SneakyThrows
+    private String getRegion(String bucketName) {
+        var region = bucketRegionMap.get(bucketName);
+        if (region == null) {
+            region = extendMinioClient.getRegion(bucketName);
+            bucketRegionMap.put(bucketName, region);
+        }
+        return region;
+    }
+
+    /**
+     * Signed urls are shared within one cache window, a cached url stays valid for at least
+     * URL_EXPIRY_SECONDS - URL_CACHE_WINDOW_MINUTES after it is handed out
+     */
+    private String getUrlCacheKey(String bucketName, String objectName) {
+        var window = System.currentTimeMillis() / TimeUnit.MINUTES.toMillis(URL_CACHE_WINDOW_MINUTES);
+        return bucketName + SLANTING_BAR + objectName + "#" + window;
     }
 
     /**
@@ -221,8 +398,7 @@ public class MinioService {
                 .object(objectName)
                 .extraQueryParams(queryParams)
                 .expiry(60 * 60 * 24 * 7);
-        var region = extendMinioClient.getRegion(builder.build());
-        return replaceUrl(extendMinioClient.getPresignedObjectUrl(builder.region(region).build()));
+        return replaceUrl(extendMinioClient.getPresignedObjectUrl(builder.region(getRegion(bucketName)).build()));
     }
 
     /**
@@ -243,7 +419,7 @@ public class MinioService {
                 .bucket(bucketName)
                 .object(objectName)
                 .expiry(60 * 60 * 24 * 7);
-        var region = extendMinioClient.getRegion(builder.build());
+        var region = getRegion(bucketName);
         // This must be PUT, if it is GET, it is the file access address. If it is a POST upload, an error will be reported.
         var preUrl = extendMinioClient.getPresignedObjectUrl(builder.region(region).build());
         if (isReplaceUrl) {
@@ -263,7 +439,7 @@ public class MinioService {
                 .object(objectName)
                 .expiry(60 * 60 * 24 * 7);
         
-            var region = extendMinioClient.getRegion(builder.build());
+            var region = getRegion(bucketName);
             var url = extendMinioClient.getPresignedObjectUrl(builder.region(region).build());
             var finalDownloadPath = replaceUrl(url);
             
@@ -296,47 +472,155 @@ public class MinioService {
     }
     
     /**
-     * Delete all objects with given prefix from MinIO
-     * This is used to delete entire dataset folders
+     * Delete objects from the default bucket in bulk
+     *
+     * @param objectNames Full paths of the objects
+     * @return Number of objects that could not be deleted
+     */
+    public int removeObjects(Collection<String> objectNames) {
+        return removeObjects(minioProp.getBucketName(), objectNames);
+    }
+
+    /**
+     * Delete objects in bulk, one multi-object delete request per 1000 keys. Missing objects are not reported
+     * as errors, so a deletion can be repeated until it succeeds.
+     *
+     * @param bucketName  Bucket name
+     * @param objectNames Full paths of the objects
+     * @return Number of objects that could not be deleted
+     */
+    public int removeObjects(String bucketName, Collection<String> objectNames) {
+        var progress = new RemoveProgress(bucketName);
+        for (List<String> batch : Iterables.partition(new LinkedHashSet<>(objectNames), REMOVE_BATCH_SIZE)) {
+            progress.listedCount.add(batch.size());
+            removeBatch(bucketName, batch, progress);
+        }
+        progress.logResult();
+        return progress.failedCount.intValue();
+    }
+
+    /**
+     * Delete all objects with given prefix from MinIO, this is used to delete entire dataset folders.
+     * The calling thread keeps listing while the listed batches of 1000 keys are deleted by the minio-delete
+     * workers, the listing waits when all workers are busy.
      *
      * @param prefix Prefix to match (e.g., "datasetName/" to delete all files in dataset)
+     * @return Number of objects that could not be deleted
      */
-    public void removeObjectsByPrefix(String prefix) {
+    public int removeObjectsByPrefix(String prefix) {
+        var bucketName = minioProp.getBucketName();
+        createBucket(bucketName);
+        var deleteExecutor = executorRegistry.get(ExecutorRegistry.MINIO_DELETE);
+        var progress = new RemoveProgress(bucketName + SLANTING_BAR + prefix);
+        var futures = new ArrayList<CompletableFuture<Void>>();
         try {
-            var bucketName = minioProp.getBucketName();
-            createBucket(bucketName);
-            
-            // List all objects with the given prefix
-            Iterable<io.minio.Result<io.minio.messages.Item>> results = extendMinioClient.listObjects(
-                io.minio.ListObjectsArgs.builder()
+            var results = extendMinioClient.listObjects(ListObjectsArgs.builder()
                     .bucket(bucketName)
                     .prefix(prefix)
                     .recursive(true)
-                    .build()
-            );
-            
-            int deletedCount = 0;
-            for (io.minio.Result<io.minio.messages.Item> result : results) {
-                io.minio.messages.Item item = result.get();
-                String objectName = item.objectName();
-                
-                try {
-                    extendMinioClient.removeObject(
-                        RemoveObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .build()
-                    );
-                    deletedCount++;
-                } catch (Exception e) {
-                    log.warn("Failed to delete object: {}", objectName, e);
+                    .build());
+            var batch = new ArrayList<String>(REMOVE_BATCH_SIZE);
+            for (Result<Item> result : results) {
+                batch.add(result.get().objectName());
+                progress.listedCount.increment();
+                if (batch.size() == REMOVE_BATCH_SIZE) {
+                    futures.add(submitRemoveBatch(deleteExecutor, bucketName, batch, progress));
+                    batch = new ArrayList<>(REMOVE_BATCH_SIZE);
                 }
             }
-            
-            log.info("Deleted {} objects with prefix: {}", deletedCount, prefix);
+            if (!batch.isEmpty()) {
+                futures.add(submitRemoveBatch(deleteExecutor, bucketName, batch, progress));
+            }
         } catch (Exception e) {
-            log.error("Failed to delete objects by prefix: {}", prefix, e);
+            log.error("Failed to list objects by prefix: {}", prefix, e);
             throw new RuntimeException("MinIO prefix deletion failed", e);
+        } finally {
+            // The submitted batches are finished before returning, also when the listing failed
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        progress.logResult();
+        return progress.failedCount.intValue();
+    }
+
+    private CompletableFuture<Void> submitRemoveBatch(Executor executor, String bucketName, List<String> batch,
+                                                      RemoveProgress progress) {
+        return CompletableFuture.runAsync(() -> {
+            removeBatch(bucketName, batch, progress);
+            progress.logProgress();
+        }, executor);
+    }
+
+    /**
+     * Remove one batch of at most 1000 keys with a multi-object delete request
+     */
+    private void removeBatch(String bucketName, List<String> batch, RemoveProgress progress) {
+        var deleteObjects = batch.stream().map(DeleteObject::new).collect(Collectors.toList());
+        var args = RemoveObjectsArgs.builder().bucket(bucketName).objects(deleteObjects).build();
+        var failedCount = 0;
+        try (var permit = executorRegistry.acquire(ExecutorRegistry.MINIO)) {
+            // The request is sent lazily while the results are iterated, only failed keys are returned
+            for (Result<DeleteError> result : extendMinioClient.removeObjects(args)) {
+                var error = result.get();
+                progress.addError(error.code(), error.objectName(), error.message(), 1);
+                failedCount++;
+            }
+        } catch (Exception e) {
+            log.error("Failed to remove {} objects from MinIO bucket: {}", batch.size(), bucketName, e);
+            // The keys without a returned error are not known to be removed, the returned errors are already counted
+            if (failedCount < batch.size()) {
+                progress.addError(e.getClass().getSimpleName(), batch.get(failedCount), e.getMessage(), batch.size() - failedCount);
+            }
+            failedCount = batch.size();
+        }
+        progress.removedCount.add(batch.size() - failedCount);
+        progress.failedCount.add(failedCount);
+    }
+
+    /**
+     * Counters of a bulk deletion, the errors are aggregated by error code with the first failed key as sample
+     */
+    private static final class RemoveProgress {
+
+        private static final long LOG_INTERVAL = 10L * REMOVE_BATCH_SIZE;
+
+        private final String target;
+
+        private final LongAdder listedCount = new LongAdder();
+
+        private final LongAdder removedCount = new LongAdder();
+
+        private final LongAdder failedCount = new LongAdder();
+
+        private final AtomicLong lastLogged = new AtomicLong();
+
+        private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+        private final Map<String, String> errorSamples = new ConcurrentHashMap<>();
+
+        private RemoveProgress(String target) {
+            this.target = target;
+        }
+
+        private void addError(String code, String objectName, String message, int count) {
+            var errorCode = StrUtil.blankToDefault(code, "Unknown");
+            errorCounts.computeIfAbsent(errorCode, k -> new LongAdder()).add(count);
+            errorSamples.putIfAbsent(errorCode, objectName + ": " + message);
+        }
+
+        private void logProgress() {
+            var done = removedCount.sum() + failedCount.sum();
+            var last = lastLogged.get();
+            if (done - last >= LOG_INTERVAL && lastLogged.compareAndSet(last, done)) {
+                log.info("Removing objects of {}, listed: {}, removed: {}, failed: {}", target, listedCount.sum(),
+                        removedCount.sum(), failedCount.sum());
+            }
+        }
+
+        private void logResult() {
+            log.info("Removed objects of {}, listed: {}, removed: {}, failed: {}", target, listedCount.sum(),
+                    removedCount.sum(), failedCount.sum());
+            errorCounts.forEach((code, count) -> log.warn("Failed to remove {} objects of {} with {}, e.g. {}",
+                    count.sum(), target, code, errorSamples.get(code)));
         }
     }
 
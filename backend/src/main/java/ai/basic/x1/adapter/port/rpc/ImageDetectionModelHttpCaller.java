@@ -3,6 +3,7 @@ package ai.basic.x1.adapter.port.rpc;
 import ai.basic.x1.adapter.dto.ApiResult;
 import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionReqDTO;
 import ai.basic.x1.adapter.port.rpc.dto.ImageDetectionRespDTO;
+import ai.basic.x1.entity.enums.ModelCodeEnum;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import cn.hutool.http.ContentType;
@@ -25,9 +26,15 @@ public class ImageDetectionModelHttpCaller {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ModelCallGuard modelCallGuard;
+
     public ApiResult<List<ImageDetectionRespDTO>> callPredImageModel(ImageDetectionReqDTO requestBody, String url) throws IOException {
         var requestBodyStr = objectMapper.writeValueAsString(requestBody);
+        var policy = modelCallGuard.getPolicy(ModelCodeEnum.IMAGE_DETECTION);
         var httpRequest = HttpUtil.createPost(url)
+                .setConnectionTimeout(policy.getConnectTimeoutMillis())
+                .setReadTimeout(policy.getReadTimeoutMillis())
                 .body(requestBodyStr, ContentType.JSON.getValue());
         var httpResponse = httpRequest.execute();
         ApiResult<List<ImageDetectionRespDTO>> result;
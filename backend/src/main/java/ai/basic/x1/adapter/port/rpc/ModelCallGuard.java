@@ -0,0 +1,173 @@
+package ai.basic.x1.adapter.port.rpc;
+
+import ai.basic.x1.entity.enums.ModelCodeEnum;
+import ai.basic.x1.usecase.exception.UsecaseCode;
+import ai.basic.x1.usecase.exception.UsecaseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Guards the calls of the model services, configured per model code by model.call in application.yml.
+ * A failed call is retried after an exponential backoff with full jitter, the concurrent calls of a model
+ * are capped, and a model that keeps failing is not called until its circuit half opens again, so that
+ * an overloaded model service is not flooded with retries.
+ */
+@Slf4j
+public class ModelCallGuard {
+
+    private final ModelCallProp modelCallProp;
+
+    private final Map<ModelCodeEnum, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final Map<ModelCodeEnum, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+    public ModelCallGuard(ModelCallProp modelCallProp) {
+        this.modelCallProp = modelCallProp;
+    }
+
+    /**
+     * Get the settings of a model, e.g. the timeouts of its http requests
+     *
+     * @param modelCode Model code
+     * @return Policy
+     */
+    public ModelCallProp.Policy getPolicy(ModelCodeEnum modelCode) {
+        return modelCallProp.getPolicy(modelCode);
+    }
+
+    /**
+     * Call a model service with retries
+     *
+     * @param modelCode Model code
+     * @param call      Call of the service, throws on failure
+     * @param <R>       Result type
+     * @return Result of the first successful call
+     * @throws UsecaseException if the circuit is open, otherwise the exception of the last attempt
+     */
+    public <R> R call(ModelCodeEnum modelCode, Supplier<R> call) {
+        var policy = getPolicy(modelCode);
+        var circuitBreaker = circuitBreakers.computeIfAbsent(modelCode, k -> new CircuitBreaker(k, policy));
+        var bulkhead = bulkheads.computeIfAbsent(modelCode, k -> new Semaphore(Math.max(1, policy.getMaxConcurrentCalls()), true));
+        var maxAttempts = Math.max(1, policy.getMaxAttempts());
+        RuntimeException lastException = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) {
+                backoff(policy, attempt - 1);
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                throw new UsecaseException(UsecaseCode.UNKNOWN, modelCode + " service is unavailable, circuit is open");
+            }
+            if (!tryAcquire(bulkhead, policy)) {
+                circuitBreaker.onIgnored();
+                lastException = new UsecaseException(UsecaseCode.UNKNOWN, modelCode + " service is busy");
+                log.warn("Wait for a free call of {} timed out, attempt {} of {}", modelCode, attempt, maxAttempts);
+                continue;
+            }
+            try {
+                var result = call.get();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                lastException = e;
+                log.warn("Call {} error, attempt {} of {}: {}", modelCode, attempt, maxAttempts, e.getMessage());
+            } finally {
+                bulkhead.release();
+            }
+        }
+        throw lastException;
+    }
+
+    private boolean tryAcquire(Semaphore bulkhead, ModelCallProp.Policy policy) {
+        try {
+            return bulkhead.tryAcquire(policy.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UsecaseException(UsecaseCode.UNKNOWN, "Interrupted while waiting for the model service");
+        }
+    }
+
+    /**
+     * Wait a random time up to the exponential backoff of the retry
+     */
+    private void backoff(ModelCallProp.Policy policy, int retry) {
+        var exponent = Math.min(retry - 1, 30);
+        var cap = Math.min(policy.getMaxBackoffMillis(), policy.getInitialBackoffMillis() * (1L << exponent));
+        if (cap <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UsecaseException(UsecaseCode.UNKNOWN, "Interrupted while waiting for the model service");
+        }
+    }
+
+    /**
+     * Opens after failureThreshold consecutive failures, after openMillis one trial call is let through,
+     * which closes the circuit on success and opens it again on failure
+     */
+    private static class CircuitBreaker {
+
+        private final ModelCodeEnum modelCode;
+
+        private final ModelCallProp.Policy policy;
+
+        private int failures;
+
+        private boolean open;
+
+        private long openUntil;
+
+        private boolean trialRunning;
+
+        private CircuitBreaker(ModelCodeEnum modelCode, ModelCallProp.Policy policy) {
+            this.modelCode = modelCode;
+            this.policy = policy;
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (!open) {
+                return true;
+            }
+            if (trialRunning || System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            trialRunning = true;
+            return true;
+        }
+
+        private synchronized void onSuccess() {
+            if (open) {
+                log.info("Circuit of {} is closed", modelCode);
+            }
+            failures = 0;
+            open = false;
+            trialRunning = false;
+        }
+
+        private synchronized void onFailure() {
+            failures++;
+            if (trialRunning || (!open && failures >= policy.getFailureThreshold())) {
+                open = true;
+                openUntil = System.currentTimeMillis() + policy.getOpenMillis();
+                log.warn("Circuit of {} is open for {}ms after {} failed calls", modelCode, policy.getOpenMillis(), failures);
+            }
+            trialRunning = false;
+        }
+
+        /**
+         * The acquired call was not made
+         */
+        private synchronized void onIgnored() {
+            trialRunning = false;
+        }
+    }
+}
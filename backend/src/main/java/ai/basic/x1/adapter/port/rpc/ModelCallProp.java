@@ -0,0 +1,76 @@
+package ai.basic.x1.adapter.port.rpc;
+
+import ai.basic.x1.entity.enums.ModelCodeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Calls of the model services, keyed by model code. A model without settings uses the defaults of {@link Policy}.
+ */
+@Data
+@ConfigurationProperties(prefix = "model.call")
+public class ModelCallProp {
+
+    private Map<ModelCodeEnum, Policy> policies = new EnumMap<>(ModelCodeEnum.class);
+
+    public Policy getPolicy(ModelCodeEnum modelCode) {
+        return policies.computeIfAbsent(modelCode, k -> new Policy());
+    }
+
+    @Data
+    public static class Policy {
+
+        /**
+         * Timeout of the connection to the model service
+         */
+        private int connectTimeoutMillis = 5000;
+
+        /**
+         * Timeout of the model response, the model runs a whole batch before it answers
+         */
+        private int readTimeoutMillis = 600000;
+
+        /**
+         * Calls of a request including the retries
+         */
+        private int maxAttempts = 4;
+
+        /**
+         * Backoff before the first retry, doubled for every further retry, a random part of it is waited
+         */
+        private long initialBackoffMillis = 1000;
+
+        /**
+         * Largest backoff
+         */
+        private long maxBackoffMillis = 30000;
+
+        /**
+         * Consecutive failed calls that open the circuit
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * Time the circuit stays open before one trial call is let through
+         */
+        private long openMillis = 60000;
+
+        /**
+         * Concurrent calls of the model
+         */
+        private int maxConcurrentCalls = 4;
+
+        /**
+         * Time a call waits for a free slot before it counts as a failed attempt
+         */
+        private long maxWaitMillis = 60000;
+
+        /**
+         * Data per request of a batched dataset run
+         */
+        private int batchSize = 16;
+    }
+}
@@ -24,6 +24,9 @@ public class PointCloudConvertRenderHttpCaller {
     @Value("${pointCloud.convertRender.url}")
     private String url;
 
+    @Value("${pointCloud.convertRender.timeout:600000}")
+    private int timeout;
+
 
     public ApiResult<List<PointCloudCRRespDTO>> callConvertRender(PointCloudCRReqDTO pointCloudCRReqDTO) {
         try {
@@ -31,7 +34,8 @@ public class PointCloudConvertRenderHttpCaller {
             stopWatch.start();
             String requestBody = JSONUtil.toJsonStr(pointCloudCRReqDTO);
             HttpRequest httpRequest = HttpUtil.createPost(url)
-                    .body(requestBody, ContentType.JSON.getValue());
+                    .body(requestBody, ContentType.JSON.getValue())
+                    .timeout(timeout);
             HttpResponse httpResponse = httpRequest.execute();
             stopWatch.stop();
             log.info(String.format("call pointCloudConvertRender took: %dms,req:%s ,resp:%s", stopWatch.getLastTaskTimeMillis(), requestBody, httpResponse.body()));
@@ -4,12 +4,14 @@ import ai.basic.x1.adapter.dto.ApiResult;
 import ai.basic.x1.adapter.port.rpc.dto.PointCloudDetectionReqDTO;
 import ai.basic.x1.adapter.port.rpc.dto.PointCloudDetectionRespDTO;
 import ai.basic.x1.adapter.port.rpc.dto.PointCloudDetectionExtendedRespDTO;
+import ai.basic.x1.entity.enums.ModelCodeEnum;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import cn.hutool.core.date.StopWatch;
 import cn.hutool.core.lang.TypeReference;
 import cn.hutool.http.*;
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -21,14 +23,15 @@ import java.util.List;
 @Slf4j
 public class PointCloudDetectionModelHttpCaller {
 
+    @Autowired
+    private ModelCallGuard modelCallGuard;
 
     public ApiResult<List<PointCloudDetectionRespDTO>> callPreLabelModel(PointCloudDetectionReqDTO preModelReqDTO, String url) {
         try {
             StopWatch stopWatch = new StopWatch();
             stopWatch.start();
             String requestBody = JSONUtil.toJsonStr(preModelReqDTO);
-            // http request timeout 제거
-            HttpRequest httpRequest = HttpUtil.createPost(url)
+            HttpRequest httpRequest = createPost(url)
                     .body(requestBody, ContentType.JSON.getValue());
             // log.info("httpRequest: {}", httpRequest);
             HttpResponse httpResponse = httpRequest.execute();
@@ -58,8 +61,7 @@ public class PointCloudDetectionModelHttpCaller {
             // requestBody를 List 그대로 JSON 배열로 변환
             String requestBody = JSONUtil.toJsonStr(preModelReqDTOList);
 
-            // HttpRequest 생성 (timeout 옵션 제거)
-            HttpRequest httpRequest = HttpUtil.createPost(url)
+            HttpRequest httpRequest = createPost(url)
                     .body(requestBody, ContentType.JSON.getValue());
             HttpResponse httpResponse = httpRequest.execute();
 
@@ -82,4 +84,11 @@ public class PointCloudDetectionModelHttpCaller {
             throw new UsecaseException("preLabelModel batch run error!");
         }
     }
+
+    private HttpRequest createPost(String url) {
+        var policy = modelCallGuard.getPolicy(ModelCodeEnum.LIDAR_DETECTION);
+        return HttpUtil.createPost(url)
+                .setConnectionTimeout(policy.getConnectTimeoutMillis())
+                .setReadTimeout(policy.getReadTimeoutMillis());
+    }
 }
@@ -0,0 +1,26 @@
+package ai.basic.x1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point cloud conversion and render task, one stream message per point cloud file
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointCloudConvertRenderTaskBO {
+
+    /**
+     * Point cloud file id
+     */
+    private Long fileId;
+
+    /**
+     * Number of failed attempts
+     */
+    private Integer attempt;
+}
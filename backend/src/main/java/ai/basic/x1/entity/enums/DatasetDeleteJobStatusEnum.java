@@ -0,0 +1,27 @@
+package ai.basic.x1.entity.enums;
+
+/**
+ * Dataset delete job status enums
+ */
+public enum DatasetDeleteJobStatusEnum {
+    /**
+     * SUBMITTED
+     */
+    SUBMITTED,
+    /**
+     * REMOVING_OBJECTS, MinIO objects of the dataset are removed, the rows they are resolved from are kept
+     */
+    REMOVING_OBJECTS,
+    /**
+     * REMOVING_ROWS
+     */
+    REMOVING_ROWS,
+    /**
+     * COMPLETED
+     */
+    COMPLETED,
+    /**
+     * FAILED, resumed from the start at the next startup
+     */
+    FAILED
+}
@@ -0,0 +1,15 @@
+package ai.basic.x1.entity.enums;
+
+/**
+ * Upload checkpoint stage enums
+ */
+public enum UploadCheckpointStageEnum {
+    /**
+     * DOWNLOADING, the upload is downloaded and decompressed again when it is resumed
+     */
+    DOWNLOADING,
+    /**
+     * PARSING, the decompressed folder is complete and the parse is resumed from it
+     */
+    PARSING
+}
@@ -13,15 +13,16 @@ import ai.basic.x1.entity.enums.*;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.Constants;
+import ai.basic.x1.util.DataResultObjectExportConverter;
 import ai.basic.x1.util.DefaultConverter;
 import ai.basic.x1.util.Page;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.TemporalAccessorUtil;
 import cn.hutool.core.lang.UUID;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
@@ -36,13 +37,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONArray;
 
 import static ai.basic.x1.entity.enums.DatasetTypeEnum.IMAGE;
 import static ai.basic.x1.usecase.exception.UsecaseCode.DATASET_NOT_FOUND;
@@ -131,12 +132,25 @@ public class DataInfoUseCase {
     @Value("${export.data.version}")
     private String version;
 
-    private static final ExecutorService executorService = ThreadUtil.newExecutor(2);
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    private ExecutorService executorService;
 
     private static final Long GROUND_TRUTH = -1L;
 
     private static final String GROUND_TRUTH_NAME = "Ground Truth";
 
+    /**
+     * Number of data ids per DELETE ... WHERE id IN statement
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    @PostConstruct
+    public void init() {
+        executorService = executorRegistry.get(ExecutorRegistry.DATA_INFO);
+    }
+
     /**
      * Data split
      *
@@ -240,82 +254,28 @@ public class DataInfoUseCase {
         if (count > 0) {
             throw new UsecaseException(UsecaseCode.DATASET_DATA_OTHERS_ANNOTATING);
         }
-        var dataset = datasetDAO.getById(datasetId);
-        // dataInfoQueryBO.setDatasetType(dataset.getType());
-        // List<Long> dataIds = findExportDataIds(dataInfoQueryBO);
-        var allDataInfoLambdaQueryWrapper = Wrappers.lambdaQuery(DataInfo.class);
-        allDataInfoLambdaQueryWrapper.select(DataInfo::getId);
-        allDataInfoLambdaQueryWrapper.eq(DataInfo::getDatasetId, datasetId);
-        List<Long> dataIds = dataInfoDAO.list(allDataInfoLambdaQueryWrapper).stream().map(DataInfo::getId).collect(Collectors.toList());
-        log.info("deleteBatch dataIds size: {}", dataIds.size());
         // a. DataInfo content에서 파일 수집 후 삭제
-        List<Long> originalFileIds = new ArrayList<>();
-        for (Long dataId : dataIds) {
-            try {
-                var dataInfo = findById(dataId);
-                var content = dataInfo.getContent();
-                if (CollectionUtil.isNotEmpty(content)) {
-                    var file_ids = collectFileIds(content);
-                    originalFileIds.addAll(file_ids);
-                } else {
-                    log.info("Content is empty for dataId: {}", dataId);
-                }
-            } catch (Exception e) {
-                log.warn("Failed to load dataInfo for dataId: {}", dataId, e);
-            }
-        }
-        
-        // log.info("originalFileIds1: {}: ", originalFileIds);
-        List<Long> relatedFileIds = new ArrayList<>();
-        // originalFileIds가 비어있지 않은 경우에만 관련 파일 조회
-        if (CollUtil.isNotEmpty(originalFileIds)) {
-            List<FileBO> relatedFiles = fileUseCase.findRelatedFilesByRelationIds(originalFileIds);
-            relatedFileIds = relatedFiles.stream()
-                                            .map(FileBO::getId)
-                                            .collect(Collectors.toList());
-        }
+        var fileIds = findContentFileIdsByDatasetId(datasetId);
+        log.info("deleteBatch content file ids size: {}", fileIds.size());
 
         // export_record 및 실제 생성된 zip파일 모두 삭제
-        List<ExportRecord> exportRecords = exportRecordDAO.findAllByDatasetId(datasetId);
-        List<Long> exportFileIds = exportRecords.stream()
-                        .map(ExportRecord::getFileId)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
+        exportRecordDAO.findAllByDatasetId(datasetId).stream()
+                .map(ExportRecord::getFileId)
+                .filter(Objects::nonNull)
+                .forEach(fileIds::add);
 
-        var allFileIds = new ArrayList<Long>();
-        allFileIds.addAll(originalFileIds);
-        allFileIds.addAll(relatedFileIds);
-        allFileIds.addAll(exportFileIds);
-
-        // 중복 제거
-        Set<Long> uniqueFileIds = new HashSet<>(allFileIds);
-        allFileIds = new ArrayList<>(uniqueFileIds);
-        List<Long> finalAllFileIds = allFileIds;
-        // log.info("finalAllFileIds: {} ", finalAllFileIds);
-                                        
-        if (CollUtil.isNotEmpty(finalAllFileIds)) {
-            try {
-                log.info("finalAllFileIds: {}", finalAllFileIds);
-                fileUseCase.deleteByIds(finalAllFileIds); // MinIO + file 테이블 삭제
-            } catch (Exception e) {
-                log.warn("Failed to delete files by fileIds: {}", finalAllFileIds, e);
-            }
+        try {
+            fileUseCase.deleteWithRelationsByIds(fileIds); // MinIO + file 테이블 삭제
+        } catch (Exception e) {
+            log.warn("Failed to delete files of dataset: {}", datasetId, e);
         }
 
         // upload_record 및 원본 zip 파일 삭제
-        List<UploadRecord> uploadRecords = uploadRecordDAO.findAllByDatasetId(datasetId);
-        List<String> uploadFileUrls = uploadRecords.stream()
+        List<String> uploadFileUrls = uploadRecordDAO.findAllByDatasetId(datasetId).stream()
                         .map(UploadRecord::getFileUrl)
                         .filter(Objects::nonNull)
                         .collect(Collectors.toList());
-
-        if (CollUtil.isNotEmpty(uploadFileUrls)) {
-            try {
-                fileUseCase.deleteByUrls(uploadFileUrls); // MinIO + file 테이블 삭제
-            } catch (Exception e) {
-                log.warn("Failed to delete files by fileUrls: {}", uploadFileUrls, e);
-            }
-        }
+        fileUseCase.deleteByUrls(uploadFileUrls);
 
         // Annotation 삭제
         dataAnnotationObjectDAO.remove(
@@ -354,7 +314,7 @@ public class DataInfoUseCase {
         );
 
         // e. DataInfo 삭제
-        dataInfoDAO.getBaseMapper().deleteByDatasetId(datasetId);
+        deleteByDatasetIdInBatches(datasetId);
 
         // f. 유사도 작업 갱신
         // datasetSimilarityJobUseCase.submitJob(datasetId);
@@ -971,10 +931,7 @@ public class DataInfoUseCase {
      * @return Relation file map
      */
     private Map<Long, RelationFileBO> findFileByFileIds(List<Long> fileIds) {
-        var relationFileBOList = fileUseCase.findByIds(fileIds);
-        return CollectionUtil.isNotEmpty(relationFileBOList) ?
-                relationFileBOList.stream().collect(Collectors.toMap(RelationFileBO::getId, relationFileBO -> relationFileBO, (k1, k2) -> k1)) : Map.of();
-
+        return fileUseCase.findMapByIds(fileIds);
     }
 
     /**
@@ -1007,6 +964,34 @@ public class DataInfoUseCase {
         return getFileIds(content);
     }
 
+    /**
+     * Collect the file ids referenced by the content of all data of a dataset with one query
+     *
+     * @param datasetId Dataset id
+     * @return File ids
+     */
+    public Set<Long> findContentFileIdsByDatasetId(Long datasetId) {
+        var fileIds = new HashSet<Long>();
+        for (var fileIdArray : dataInfoDAO.getBaseMapper().selectContentFileIds(datasetId)) {
+            if (StrUtil.isNotBlank(fileIdArray)) {
+                JSONUtil.parseArray(fileIdArray).toList(Long.class).stream()
+                        .filter(Objects::nonNull)
+                        .forEach(fileIds::add);
+            }
+        }
+        return fileIds;
+    }
+
+    /**
+     * Delete all data of a dataset with chunked DELETE ... WHERE id IN statements, so that a large dataset
+     * does not hold the locks of all its rows in one statement
+     *
+     * @param datasetId Dataset id
+     */
+    public void deleteByDatasetIdInBatches(Long datasetId) {
+        dataInfoDAO.removeAllByFieldInBatches(DataInfo::getId, DataInfo::getDatasetId, datasetId, DELETE_BATCH_SIZE);
+    }
+
     /**
      * Data process
      *
@@ -1042,7 +1027,7 @@ public class DataInfoUseCase {
             
             var annotationList = dataAnnotationMap.get(dataId);
             var objectList = dataAnnotationObjectMap.get(dataId);
-            log.info("processData: dataId={}, objectList size={}", dataId, objectList != null ? objectList.size() : 0);
+            log.debug("processData: dataId={}, objectList size={}", dataId, objectList != null ? objectList.size() : 0);
             var dataResultExportBOList = new ArrayList<DataResultExportBO>();
             if (CollectionUtil.isNotEmpty(objectList)) {
                 var objectBySourceId = objectList.stream().collect(Collectors.groupingBy(DataAnnotationObjectBO::getSourceId));
@@ -1051,59 +1036,14 @@ public class DataInfoUseCase {
                     var objects = new ArrayList<DataResultObjectExportBO>();
                     objectSourceList.forEach(o -> {
                         var classAttrs = o.getClassAttributes();
-                        JSONObject contourAttrs = (JSONObject) classAttrs.get("contour");
-                        if (contourAttrs == null) {
+                        if (classAttrs == null || classAttrs.get("contour") == null) {
                             log.warn("contourAttrs is null, dataId: {}, objectId: {}", dataId, o.getId());
-                            contourAttrs = new JSONObject();
-                        }
-                        var dataResultObjectExportBO = DefaultConverter.convert(classAttrs, DataResultObjectExportBO.class);
-                        // contour 
-                        JSONObject contour = new JSONObject();
-                        if (contourAttrs.get("pointN") != null)
-                            contour.put("pointN", contourAttrs.get("pointN"));
-                        if (contourAttrs.get("size3D") != null) 
-                            contour.put("size3D", contourAttrs.get("size3D"));
-                        if (contourAttrs.get("center3D") != null) 
-                            contour.put("center3D", contourAttrs.get("center3D"));
-                        if (contourAttrs.get("rotation3D") != null) 
-                            contour.put("rotation3D", contourAttrs.get("rotation3D"));
-                        if (contourAttrs.get("points") != null) {
-                            contour.put("points", contourAttrs.get("points"));
-                        } else {
-                            contour.put("points", new JSONArray());
-                        }                        
-                        dataResultObjectExportBO.setContour(contour);
-
-                        // confidence
-                        Object confObj = classAttrs.get("confidence");
-                        if (confObj != null) {
-                            if (confObj instanceof BigDecimal) {
-                                dataResultObjectExportBO.setModelConfidence((BigDecimal) confObj);
-                            } else if (confObj instanceof Number) {  // Double, Integer 등
-                                dataResultObjectExportBO.setModelConfidence(BigDecimal.valueOf(((Number) confObj).doubleValue()));
-                            } else if (confObj instanceof String) {
-                                dataResultObjectExportBO.setModelConfidence(new BigDecimal((String) confObj));
-                            } else {
-                                dataResultObjectExportBO.setModelConfidence(BigDecimal.ZERO); // fallback
-                            }
                         }
-                        // classId 매핑
-                        Object modelClassName = classAttrs.get("className");
-                        if (modelClassName == null) {
-                            modelClassName = classAttrs.get("modelClass");
-                        }                        
-                        String modelClass = (modelClassName != null) ? modelClassName.toString() : null;
-                        if (modelClass != null) {
-                            if (modelClass.contains("Car")) 
-                                dataResultObjectExportBO.setClassId(Long.valueOf(1));
-                            else if (modelClass.contains("Pedestrian"))
-                                dataResultObjectExportBO.setClassId(Long.valueOf(2));
+                        var dataResultObjectExportBO = DataResultObjectExportConverter.convertResult(classAttrs);
+                        if (log.isDebugEnabled()) {
+                            log.debug("o.getObjects():{}", JSONUtil.toJsonStr(classAttrs));
+                            log.debug("dataResultObjectExportBO:{}", JSONUtil.toJsonStr(dataResultObjectExportBO));
                         }
-                        dataResultObjectExportBO.setClassName(modelClass);
-                        // dataResultObjectExportBO.setModelClass(modelClass);
-                        
-                        log.info("o.getObjects():{}", JSONUtil.toJsonStr(classAttrs));
-                        log.info("dataResultObjectExportBO:{}", JSONUtil.toJsonStr(dataResultObjectExportBO));
                         objects.add(dataResultObjectExportBO);
                     });
                     dataResultExportBO.setObjects(objects);
@@ -1284,7 +1224,7 @@ public class DataInfoUseCase {
             if (CollectionUtil.isNotEmpty(objectList)) {
                 var objects = new ArrayList<DataResultObjectExportBO>();
                 objectList.forEach(o -> {
-                    var dataResultObjectExportBO = DefaultConverter.convert(o.getClassAttributes(), DataResultObjectExportBO.class);
+                    var dataResultObjectExportBO = DataResultObjectExportConverter.convert(o.getClassAttributes());
                     dataResultObjectExportBO.setClassName(classMap.get(o.getClassId()));
                     objects.add(dataResultObjectExportBO);
                 });
@@ -8,15 +8,17 @@ import ai.basic.x1.adapter.api.context.UserInfo;
 import ai.basic.x1.adapter.port.dao.*;
 import ai.basic.x1.adapter.port.dao.mybatis.model.*;
 import ai.basic.x1.entity.*;
+import ai.basic.x1.entity.enums.DatasetDeleteJobStatusEnum;
 import ai.basic.x1.entity.enums.DatasetTypeEnum;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.DecompressionFileUtils;
 import ai.basic.x1.util.DefaultConverter;
+import ai.basic.x1.util.NodeUtil;
 import ai.basic.x1.util.Page;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
@@ -27,14 +29,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
@@ -42,10 +48,6 @@ import static ai.basic.x1.entity.enums.DatasetTypeEnum.IMAGE;
 import static ai.basic.x1.util.Constants.PAGE_SIZE_100;
 
 import ai.basic.x1.adapter.port.dao.FileDAO;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-import cn.hutool.core.collection.CollUtil;
 
 /**
  * @author fyb
@@ -109,18 +111,47 @@ public class DatasetUseCase {
     @Autowired
     private ModelRunRecordDAO modelRunRecordDAO;
 
+    @Autowired
+    private DatasetDeleteJobDAO datasetDeleteJobDAO;
+
     @Value("${file.tempPath:/tmp/xtreme1/}")
     private String tempPath;
 
+    /**
+     * Number of rows per DELETE ... WHERE id IN statement of a dataset delete job
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     @Autowired 
     private FileDAO fileDAO;
     @Autowired
     private FileUseCase fileUseCase;
 
-    private static final ExecutorService executorService = ThreadUtil.newExecutor(1);
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    /**
+     * Runs of a dataset delete job before it is left FAILED
+     */
+    @Value("${dataset.delete.maxAttempts:3}")
+    private Integer deleteMaxAttempts;
+
+    /**
+     * Time after its last heartbeat that a delete job may be claimed by another node
+     */
+    @Value("${dataset.delete.leaseMillis:300000}")
+    private Long deleteLeaseMillis;
+
+    private ExecutorService executorService;
+
+    /**
+     * Delete jobs claimed by this node
+     */
+    private final Set<Long> claimedDeleteJobIds = ConcurrentHashMap.newKeySet();
 
     @PostConstruct
     public void init() {
+        executorService = executorRegistry.get(ExecutorRegistry.DATASET);
         initDataset(pointCloudDatasetInitialInfo);
         initDataset(imageDatasetInitialInfo);
     }
@@ -219,7 +250,8 @@ public class DatasetUseCase {
     }
 
     /**
-     * Delete dataset
+     * Delete dataset. The dataset row is removed at once, its data, files and MinIO objects are removed
+     * by a delete job in the background. The job is recorded first and resumed by any node if it did not complete.
      *
      * @param dataset_id Dataset id
      */
@@ -229,126 +261,127 @@ public class DatasetUseCase {
         if (ObjectUtil.isNull(dataset)) {
             throw new UsecaseException(UsecaseCode.DATASET_NOT_FOUND);
         }
+        var job = DatasetDeleteJob.builder()
+                .datasetId(dataset_id)
+                .datasetName(dataset.getName())
+                .status(DatasetDeleteJobStatusEnum.SUBMITTED)
+                .failedObjectCount(0)
+                .build();
+        try {
+            datasetDeleteJobDAO.save(job);
+        } catch (DuplicateKeyException e) {
+            log.warn("dataset:{} delete job exists.", dataset_id);
+            job = datasetDeleteJobDAO.lambdaQuery().eq(DatasetDeleteJob::getDatasetId, dataset_id).one();
+        }
+        datasetDAO.removeById(dataset_id);
+        submitDeleteJob(job);
+    }
 
-        var dataInfoQueryBO = new DataInfoQueryBO();
-        dataInfoQueryBO.setDatasetId(dataset_id);
-        dataInfoQueryBO.setPageNo(1);
-        dataInfoQueryBO.setPageSize(Integer.MAX_VALUE);
-        dataInfoQueryBO.setDatasetType(dataset.getType());
-        List<Long> dataIds = dataInfoUseCase.findExportDataIds(dataInfoQueryBO);
-        log.info("Collected dataIds for deletion: {}", dataIds);
-        if (!CollectionUtil.isEmpty(dataIds)) {
-            var originalFileIds = new ArrayList<Long>();
-            for (Long dataId : dataIds) {
-                try {
-                    var dataInfo = dataInfoUseCase.findById(dataId);
-                    var content = dataInfo.getContent();
-                    if (CollectionUtil.isNotEmpty(content)) {
-                        var ids = dataInfoUseCase.collectFileIds(content);
-                        originalFileIds.addAll(ids);
-                    } else {
-                        log.info("Content is empty for dataId: {}", dataId);
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to load dataInfo for dataId: {}", dataId, e);
-                }
+    /**
+     * Keep the heartbeat of the delete jobs run by this node, and resume the jobs that did not complete and
+     * whose node stopped sending heartbeats, e.g. because the service was stopped while deleting. A job is
+     * claimed with a conditional update, so only one node runs it, and it is attempted at most maxAttempts times.
+     */
+    @Scheduled(initialDelayString = "${dataset.delete.heartbeatMillis:60000}", fixedDelayString = "${dataset.delete.heartbeatMillis:60000}")
+    public void maintainDeleteJobs() {
+        try {
+            if (!claimedDeleteJobIds.isEmpty()) {
+                datasetDeleteJobDAO.heartbeat(claimedDeleteJobIds, NodeUtil.getNodeId());
             }
-            List<FileBO> relatedFiles = fileUseCase.findRelatedFilesByRelationIds(originalFileIds);
-            List<Long> relatedFileIds = relatedFiles.stream()
-                                                    .map(FileBO::getId)
-                                                    .collect(Collectors.toList());        
-
-            // export_record 및 실제 생성된 zip파일 모두 삭제
-            List<ExportRecord> exportRecords = exportRecordDAO.findAllByDatasetId(dataset_id);
-            List<Long> exportFileIds = exportRecords.stream()
-                            .map(ExportRecord::getFileId)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toList());
-            
-            var allFileIds = new ArrayList<Long>();
-            allFileIds.addAll(originalFileIds);
-            allFileIds.addAll(relatedFileIds);
-            allFileIds.addAll(exportFileIds);
-
-            // 중복 제거
-            Set<Long> uniqueFileIds = new HashSet<>(allFileIds);
-            allFileIds = new ArrayList<>(uniqueFileIds);
-            List<Long> finalAllFileIds = allFileIds;
-            
-            // upload_record 및 원본 zip 파일 삭제
-            List<UploadRecord> uploadRecords = uploadRecordDAO.findAllByDatasetId(dataset_id);
-            List<String> uploadFileUrls = uploadRecords.stream()
-                            .map(UploadRecord::getFileUrl)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toList());
-            
-            executorService.execute(Objects.requireNonNull(TtlRunnable.get(() -> {
-                // 1. Delete file data related dataset_id 
-                if (CollUtil.isNotEmpty(finalAllFileIds)) {
-                    try {
-                        fileUseCase.deleteByIds(finalAllFileIds); // MinIO + file 테이블 삭제
-                    } catch (Exception e) {
-                        log.warn("Failed to delete files by fileIds: {}", finalAllFileIds, e);
-                    }
-                }
-                // 2. Delete file data related dataset_id 
-                if (CollUtil.isNotEmpty(uploadFileUrls)) {
-                    try {
-                        fileUseCase.deleteByUrls(uploadFileUrls); // MinIO + file 테이블 삭제
-                    } catch (Exception e) {
-                        log.warn("Failed to delete files by fileUrls: {}", uploadFileUrls, e);
-                    }
-                }
-            
-                // 3. Delete entire dataset folder from MinIO (cleanup empty folders)
-                try {
-                    fileUseCase.deleteDatasetFolder(dataset.getName());
-                } catch (Exception e) {
-                    log.warn("Failed to delete dataset folder: {}", dataset.getName(), e);
-                }
-            })));
+            datasetDeleteJobDAO.findClaimable(deleteMaxAttempts, getDeleteHeartbeatBefore()).forEach(job -> {
+                log.info("Resume delete job of dataset: {}, status: {}, attempt: {}", job.getDatasetId(), job.getStatus(),
+                        job.getAttemptCount() + 1);
+                submitDeleteJob(job);
+            });
+        } catch (Exception e) {
+            log.warn("Maintain dataset delete jobs error", e);
         }
+    }
 
-        // Delete annotation object data related dataset_id 
-        dataAnnotationObjectDAO.remove(
-            Wrappers.lambdaUpdate(DataAnnotationObject.class)
-                    .eq(DataAnnotationObject::getDatasetId, dataset_id));
-        log.info("dataAnnotationObject removed!");
-        // Delete annotation classification data related dataset_id 
-        dataAnnotationClassificationDAO.remove(
-            Wrappers.lambdaUpdate(DataAnnotationClassification.class)
-                    .eq(DataAnnotationClassification::getDatasetId, dataset_id));
-        log.info("dataAnnotationClassification removed!");
-        // Delete annotation record data related dataset_id 
-        dataAnnotationRecordDAO.remove(
-            Wrappers.lambdaUpdate(DataAnnotationRecord.class)
-                    .eq(DataAnnotationRecord::getDatasetId, dataset_id));
-        log.info("dataAnnotationRecord removed!");
-        // Delete export_record data related dataset_id 
-        exportRecordDAO.remove(
-            Wrappers.lambdaUpdate(ExportRecord.class)
-                    .eq(ExportRecord::getDatasetId, dataset_id));
-        log.info("exportRecord removed!");
-        // Delete upload_record data related dataset_id 
-        uploadRecordDAO.remove(
-            Wrappers.lambdaUpdate(UploadRecord.class)
-                    .eq(UploadRecord::getDatasetId, dataset_id));
-        log.info("uploadRecord removed!");
-        // Delete model_dataset_result data related dataset_id
-        modelDatasetResultDAO.remove(
-            Wrappers.lambdaUpdate(ModelDatasetResult.class)
-                    .eq(ModelDatasetResult::getDatasetId, dataset_id)
-        );
-        // Delete model run record data related dataset_id
-        modelRunRecordDAO.remove(
-            Wrappers.lambdaUpdate(ModelRunRecord.class)
-                    .eq(ModelRunRecord::getDatasetId, dataset_id)
-        );
-        log.info("model run record removed!");
-        // Delete data_info, dataset related dataset_id
-        dataInfoDAO.getBaseMapper().deleteByDatasetId(dataset_id);
-        datasetDAO.removeById(dataset_id);
-        log.info("datainfo, dataset removed!");        
+    private void submitDeleteJob(DatasetDeleteJob job) {
+        if (!datasetDeleteJobDAO.claim(job, NodeUtil.getNodeId(), deleteMaxAttempts, getDeleteHeartbeatBefore())) {
+            log.info("Delete job of dataset: {} is run by another node", job.getDatasetId());
+            return;
+        }
+        claimedDeleteJobIds.add(job.getId());
+        try {
+            executorService.execute(Objects.requireNonNull(TtlRunnable.get(() -> runDeleteJob(job))));
+        } catch (RuntimeException e) {
+            claimedDeleteJobIds.remove(job.getId());
+            datasetDeleteJobDAO.release(job, NodeUtil.getNodeId(), job.getStatus(), null, null);
+            throw e;
+        }
+    }
+
+    private OffsetDateTime getDeleteHeartbeatBefore() {
+        return OffsetDateTime.now().minus(deleteLeaseMillis, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Every step can be repeated: the objects are removed before the rows they are resolved from,
+     * and the rows are only removed once no object is left behind.
+     */
+    private void runDeleteJob(DatasetDeleteJob job) {
+        var datasetId = job.getDatasetId();
+        var owner = NodeUtil.getNodeId();
+        try {
+            datasetDeleteJobDAO.updateStatus(job, DatasetDeleteJobStatusEnum.REMOVING_OBJECTS, 0, null);
+            // Files referenced by data content, their relation files and export packages
+            var fileIds = dataInfoUseCase.findContentFileIdsByDatasetId(datasetId);
+            exportRecordDAO.findAllByDatasetId(datasetId).stream()
+                    .map(ExportRecord::getFileId)
+                    .filter(Objects::nonNull)
+                    .forEach(fileIds::add);
+            var failedObjectCount = fileUseCase.deleteWithRelationsByIds(fileIds);
+            // Uploaded archives
+            var uploadFileUrls = uploadRecordDAO.findAllByDatasetId(datasetId).stream()
+                    .map(UploadRecord::getFileUrl)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            failedObjectCount += fileUseCase.deleteByUrls(uploadFileUrls);
+            // Remaining objects of the dataset folder. The folder is named after the dataset, skip it once
+            // a new dataset took the name, otherwise the objects of the new dataset would be removed
+            if (datasetDAO.lambdaQuery().eq(Dataset::getName, job.getDatasetName()).count() > 0) {
+                log.warn("Dataset name: {} is used by another dataset, keep the dataset folder", job.getDatasetName());
+            } else {
+                failedObjectCount += fileUseCase.deleteDatasetFolder(job.getDatasetName());
+            }
+            if (failedObjectCount > 0) {
+                log.warn("Delete job of dataset: {} failed to remove {} objects", datasetId, failedObjectCount);
+                datasetDeleteJobDAO.release(job, owner, DatasetDeleteJobStatusEnum.FAILED, failedObjectCount, null);
+                return;
+            }
+
+            datasetDeleteJobDAO.updateStatus(job, DatasetDeleteJobStatusEnum.REMOVING_ROWS, 0, null);
+            deleteDatasetRows(datasetId);
+            datasetDeleteJobDAO.release(job, owner, DatasetDeleteJobStatusEnum.COMPLETED, 0, null);
+            log.info("Delete job of dataset: {} completed", datasetId);
+        } catch (Exception e) {
+            log.error("Delete job of dataset: {} error", datasetId, e);
+            datasetDeleteJobDAO.release(job, owner, DatasetDeleteJobStatusEnum.FAILED, null, StrUtil.subPre(e.getMessage(), 1000));
+        } finally {
+            claimedDeleteJobIds.remove(job.getId());
+        }
+    }
+
+    /**
+     * Every table is deleted in chunks of DELETE_BATCH_SIZE rows, a large dataset does not lock all its rows in one statement
+     */
+    private void deleteDatasetRows(Long datasetId) {
+        dataAnnotationObjectDAO.removeAllByFieldInBatches(DataAnnotationObject::getId, DataAnnotationObject::getDatasetId,
+                datasetId, DELETE_BATCH_SIZE);
+        dataAnnotationClassificationDAO.removeAllByFieldInBatches(DataAnnotationClassification::getId,
+                DataAnnotationClassification::getDatasetId, datasetId, DELETE_BATCH_SIZE);
+        dataAnnotationRecordDAO.removeAllByFieldInBatches(DataAnnotationRecord::getId, DataAnnotationRecord::getDatasetId,
+                datasetId, DELETE_BATCH_SIZE);
+        exportRecordDAO.removeAllByFieldInBatches(ExportRecord::getId, ExportRecord::getDatasetId, datasetId, DELETE_BATCH_SIZE);
+        uploadRecordDAO.removeAllByFieldInBatches(UploadRecord::getId, UploadRecord::getDatasetId, datasetId, DELETE_BATCH_SIZE);
+        modelDatasetResultDAO.removeAllByFieldInBatches(ModelDatasetResult::getId, ModelDatasetResult::getDatasetId,
+                datasetId, DELETE_BATCH_SIZE);
+        modelRunRecordDAO.removeAllByFieldInBatches(ModelRunRecord::getId, ModelRunRecord::getDatasetId, datasetId, DELETE_BATCH_SIZE);
+        dataInfoUseCase.deleteByDatasetIdInBatches(datasetId);
+        // Already removed when the job was submitted, repeated for a job that stopped in between
+        datasetDAO.removeById(datasetId);
     }
 
     /**
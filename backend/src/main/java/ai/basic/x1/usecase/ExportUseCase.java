@@ -11,13 +11,13 @@ import ai.basic.x1.entity.enums.ExportStatusEnum;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.*;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.TemporalAccessorUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
@@ -26,19 +26,26 @@ import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONConfig;
 import cn.hutool.json.JSONUtil;
 import cn.hutool.json.JSON;
+import com.alibaba.ttl.TtlCallable;
 import com.alibaba.ttl.TtlRunnable;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Assert;
+import com.google.common.io.CountingOutputStream;
 import io.minio.errors.*;
 import kotlin.jvm.functions.Function4;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.PostConstruct;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
@@ -48,12 +55,17 @@ import java.security.InvalidKeyException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.regex.*;
@@ -95,12 +107,48 @@ public class ExportUseCase {
     @Autowired
     private DataInfoUseCase dataInfoUseCase;
 
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
     @Value("${file.tempPath:/tmp/xtreme1/}")
     private String tempPath;
 
+    /**
+     * Whether to stream the export tar straight into minio instead of staging it on local disk
+     */
+    @Value("${export.streaming:true}")
+    private Boolean streaming;
+
+    /**
+     * Export batches of 1000 data fetched/assembled or serialized at the same time, each holds its json in memory
+     */
+    @Value("${export.pipelineSize:2}")
+    private Integer pipelineSize;
+
     private static Integer BATCH_SIZE = 100;
 
-    private static final ExecutorService executorService = ThreadUtil.newExecutor(10);
+    /**
+     * Buffer between the tar writer and the minio multipart upload, bounds the memory of one streaming export
+     */
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    private ExecutorService executorService;
+
+    /**
+     * Minimum interval between two export progress updates
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000L;
+
+    private ExecutorService fetchExecutorService;
+
+    private ExecutorService serializeExecutorService;
+
+    @PostConstruct
+    public void init() {
+        executorService = executorRegistry.get(ExecutorRegistry.EXPORT);
+        fetchExecutorService = executorRegistry.get(ExecutorRegistry.EXPORT_FETCH);
+        serializeExecutorService = executorRegistry.get(ExecutorRegistry.EXPORT_SERIALIZE);
+    }
 
     /**
      * Create export record
@@ -127,7 +175,9 @@ public class ExportUseCase {
         lambdaQueryWrapper.in(ExportRecord::getSerialNumber, serialNumber);
         var exportRecord = exportRecordDAO.getOne(lambdaQueryWrapper);
         var srcPath = String.format("%s%s", tempPath, FileUtil.getPrefix(fileName));
-        FileUtil.mkdir(srcPath);
+        if (!Boolean.TRUE.equals(streaming)) {
+            FileUtil.mkdir(srcPath);
+        }
         getDataAndUpload(exportRecord, srcPath, classMap, resultMap, query, fun, processData);
         return serialNumber;
     }
@@ -149,24 +199,30 @@ public class ExportUseCase {
             exportRecordBOBuilder.status(ExportStatusEnum.FAILED);
             return;
         }
-        AtomicInteger i = new AtomicInteger(0);
-        var dataIdList = ListUtil.partition(dataIds, 1000);
+        if (Boolean.TRUE.equals(streaming)) {
+            streamDataAndUpload(record, FileUtil.getName(srcPath), rootPath, dataIds, exportRecordBOBuilder,
+                    classMap, resultMap, query, processData);
+            return;
+        }
         log.info("getDataAndUploads src path: {}", srcPath);
-        log.info("dataIdList size: {}", dataIdList.size());
         long startTime = System.currentTimeMillis(); // 시작 시간
 
-        dataIdList.forEach(subDataIds -> {
-            log.info("subDataIds: {}", subDataIds);
-            // writeFile(subDataIds, srcPath, classMap, resultMap, query, processData);
-            writeAnnotationFiles(subDataIds, srcPath, classMap, resultMap, query, processData);
-            var exportRecordBO = exportRecordBOBuilder
-                    .generatedNum(i.get() * BATCH_SIZE + subDataIds.size())
-                    .totalNum(dataIds.size())
+        try {
+            exportBatches(dataIds, exportRecordBOBuilder, classMap, resultMap, query, processData, (relativePath, json) -> {
+                var resultPath = String.format("%s/%s", srcPath, relativePath);
+                File file = new File(resultPath);
+                FileUtil.mkdir(file.getParentFile());
+                FileUtil.writeString(json, resultPath, StandardCharsets.UTF_8);
+            });
+        } catch (Exception e) {
+            logger.error("Write annotation file error", e);
+            exportRecordUsecase.saveOrUpdate(exportRecordBOBuilder
+                    .status(ExportStatusEnum.FAILED)
                     .updatedAt(OffsetDateTime.now())
-                    .build();
-            exportRecordUsecase.saveOrUpdate(exportRecordBO);
-            i.getAndIncrement();
-        });
+                    .build());
+            FileUtil.del(srcPath);
+            return;
+        }
 
         long endTime = System.currentTimeMillis(); // 종료 시간
         double durationSec = (endTime - startTime) / 1000.0; // 초 단위 변환
@@ -235,59 +291,191 @@ public class ExportUseCase {
         log.info("4. DB에 export record upload 소요 시간: {} 초", durationSec);
     }
 
-    private String replacePresignedUrlForInternalAccess(String url) {
-        return url
-            .replace("http://localhost:8190/minio", "http://minio:9000")
-            .replace("http://127.0.0.1:8190/minio", "http://minio:9000")
-            .replace("http://host.docker.internal:8190/minio", "http://minio:9000")
-            .replace("http://ketilabel.iptime.org:8080/minio", "http://minio:9000");
+    /**
+     * Archive the annotation batches into a tar that is uploaded to minio while it is being written,
+     * so no export directory or tar file is staged on local disk
+     *
+     * @param entryRoot Root directory name of the entries inside the tar
+     * @param rootPath  Minio directory of the tar
+     * @param dataIds   Data id list to export
+     */
+    private <Q extends BaseQueryBO> void streamDataAndUpload(ExportRecord record, String entryRoot, String rootPath, List<Long> dataIds,
+                                                           ExportRecordBO.ExportRecordBOBuilder exportRecordBOBuilder,
+                                                           Map<Long, String> classMap, Map<Long, String> resultMap, Q query,
+                                                           Function4<List<Long>, Q, Map<Long, String>,
+                                                           Map<Long, String>, List<DataExportBO>> processData) {
+        var fileName = entryRoot + ".tar";
+        var path = String.format("%s/%s", rootPath, fileName);
+        var bucketName = minioProp.getBucketName();
+        var contentType = FileUtil.getMimeType(path);
+        long startTime = System.currentTimeMillis();
+        Future<?> upload = null;
+        try {
+            var pipeIn = new PipedInputStream(STREAM_BUFFER_SIZE);
+            long size;
+            try (var pipeOut = new PipedOutputStream(pipeIn)) {
+                upload = executorService.submit(Objects.requireNonNull(TtlCallable.get(() -> {
+                    try (pipeIn) {
+                        // size -1 lets minio switch to multipart upload and only hold one part in memory
+                        minioService.uploadFileWithoutUrl(bucketName, path, pipeIn, contentType, -1);
+                    }
+                    return null;
+                })));
+                var countingOut = new CountingOutputStream(pipeOut);
+                try (var tarOut = new TarArchiveOutputStream(countingOut)) {
+                    tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+                    exportBatches(dataIds, exportRecordBOBuilder, classMap, resultMap, query, processData,
+                            (relativePath, json) -> TarUtil.putEntry(tarOut, String.format("%s/%s", entryRoot, relativePath),
+                                    json.getBytes(StandardCharsets.UTF_8)));
+                    tarOut.finish();
+                }
+                size = countingOut.getCount();
+            }
+            upload.get();
+            log.info("Streaming export of {} data finished in {} s", dataIds.size(), (System.currentTimeMillis() - startTime) / 1000.0);
+            var fileBO = FileBO.builder()
+                    .name(fileName)
+                    .originalName(fileName)
+                    .bucketName(bucketName)
+                    .size(size)
+                    .path(path)
+                    .type(contentType)
+                    .build();
+            var resFileBOS = fileUseCase.saveBatchFile(record.getCreatedBy(), Collections.singletonList(fileBO));
+            exportRecordUsecase.saveOrUpdate(exportRecordBOBuilder
+                    .fileId(CollectionUtil.getFirst(resFileBOS).getId())
+                    .status(ExportStatusEnum.COMPLETED)
+                    .updatedAt(OffsetDateTime.now())
+                    .build());
+        } catch (Exception e) {
+            logger.error("Streaming export error", e);
+            if (ObjectUtil.isNotNull(upload)) {
+                // The writer side is closed at this point, wait for the partial object and drop it
+                try {
+                    upload.get();
+                } catch (Exception uploadException) {
+                    logger.error("Streaming upload error", uploadException);
+                }
+                try {
+                    minioService.removeObject(path);
+                } catch (Exception removeException) {
+                    logger.warn("Remove partial export object error, path: {}", path);
+                }
+            }
+            exportRecordUsecase.saveOrUpdate(exportRecordBOBuilder
+                    .status(ExportStatusEnum.FAILED)
+                    .updatedAt(OffsetDateTime.now())
+                    .build());
+        }
     }
-    
-    
-    private <Q extends BaseQueryBO> void writeAnnotationFiles(List<Long> dataIds, String zipPathOr, Map<Long, String> classMap, 
-                                                                                Map<Long, String> resultMap, Q query, 
-                                                                                Function4<List<Long>, Q, Map<Long, String>, 
-                                                                                Map<Long, String>, List<DataExportBO>> processData) {
-        var dataExportBOList = processData.invoke(dataIds, query, classMap, resultMap);
+
+    /**
+     * Run the export batches through a bounded pipeline: db fetch and assembly (processData), json serialization
+     * and entry writing. Up to {@link #pipelineSize} batches are fetched and serialized concurrently on separate
+     * executors while the caller thread writes the finished batches in order, so mysql round-trips overlap with
+     * the cpu-bound json work. Progress updates are coalesced to one per {@link #PROGRESS_INTERVAL_MILLIS}.
+     *
+     * @param dataIds Data id list to export
+     * @param writer  Entry writer, only called from the caller thread
+     */
+    private <Q extends BaseQueryBO> void exportBatches(List<Long> dataIds, ExportRecordBO.ExportRecordBOBuilder exportRecordBOBuilder,
+                                                       Map<Long, String> classMap, Map<Long, String> resultMap, Q query,
+                                                       Function4<List<Long>, Q, Map<Long, String>,
+                                                       Map<Long, String>, List<DataExportBO>> processData,
+                                                       ExportEntryWriter writer) throws Exception {
+        var inFlight = new ArrayDeque<CompletableFuture<Map<String, String>>>(pipelineSize);
+        var batchSizes = new ArrayDeque<Integer>(pipelineSize);
+        var generatedNum = 0;
+        var lastProgressTime = System.currentTimeMillis();
+        try {
+            for (List<Long> subDataIds : ListUtil.partition(dataIds, 1000)) {
+                if (inFlight.size() >= Math.max(1, pipelineSize)) {
+                    writeBatch(inFlight.poll(), writer);
+                    generatedNum += batchSizes.poll();
+                }
+                inFlight.add(CompletableFuture
+                        .supplyAsync(() -> processData.invoke(subDataIds, query, classMap, resultMap), fetchExecutorService)
+                        .thenApplyAsync(this::buildAnnotationEntries, serializeExecutorService));
+                batchSizes.add(subDataIds.size());
+                if (System.currentTimeMillis() - lastProgressTime >= PROGRESS_INTERVAL_MILLIS) {
+                    saveProgress(exportRecordBOBuilder, generatedNum, dataIds.size());
+                    lastProgressTime = System.currentTimeMillis();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeBatch(inFlight.poll(), writer);
+                generatedNum += batchSizes.poll();
+                if (System.currentTimeMillis() - lastProgressTime >= PROGRESS_INTERVAL_MILLIS) {
+                    saveProgress(exportRecordBOBuilder, generatedNum, dataIds.size());
+                    lastProgressTime = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        saveProgress(exportRecordBOBuilder, generatedNum, dataIds.size());
+    }
+
+    private void writeBatch(CompletableFuture<Map<String, String>> batch, ExportEntryWriter writer) throws Exception {
+        Map<String, String> entries;
+        try {
+            entries = batch.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            writer.write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void saveProgress(ExportRecordBO.ExportRecordBOBuilder exportRecordBOBuilder, int generatedNum, int totalNum) {
+        exportRecordUsecase.saveOrUpdate(exportRecordBOBuilder
+                .generatedNum(generatedNum)
+                .totalNum(totalNum)
+                .updatedAt(OffsetDateTime.now())
+                .build());
+    }
+
+    /**
+     * Serialize the result of the export data to json
+     *
+     * @param dataExportBOList Data export collection
+     * @return Relative result file path and json content, in export order
+     */
+    private Map<String, String> buildAnnotationEntries(List<DataExportBO> dataExportBOList) {
         var jsonConfig = JSONConfig.create().setIgnoreNullValue(false);
-        var datasetId = ((DataInfoQueryBO) query).getDatasetId();
-        List<UploadRecordBO> recordsBO = uploadUseCase.findByDatasetId(datasetId);
-        log.info("writeAnnotationFiles, dataset id: {} ", datasetId);
-        log.info("dataExportBOList size: {}", dataExportBOList.size());
+        var entries = new LinkedHashMap<String, String>();
         dataExportBOList.forEach(dataExportBO -> {
             var sceneName = dataExportBO.getSceneName();
-            var zipPath = StrUtil.isNotEmpty(sceneName) ? String.format("%s/%s", zipPathOr, sceneName) : zipPathOr;
             var dataExportBaseBO = dataExportBO.getData();
-            // log.info("sceneName, zipPath: {}, {} ", sceneName, zipPath);
-            if (ObjectUtil.isNotNull(dataExportBO.getResult())) {
-                for (DataResultExportBO resultBO : dataExportBO.getResult()) {
-                    var sourceName = resultBO.getSourceName(); // e.g. "ROS", "MODEL", "GROUND_TRUTH"
-                    var resultPath = String.format("%s/%s/%s/%s.json",
-                            zipPath,
-                            Constants.RESULT,
-                            sourceName != null ? sourceName : "UNKNOWN",
-                            dataExportBaseBO.getName());
-                    // FileUtil.writeString(JSONUtil.toJsonStr(resultBO, jsonConfig), resultPath, StandardCharsets.UTF_8);
-                    JSON json = JSONUtil.parse(resultBO, jsonConfig);
-                    File file = new File(resultPath);
-                    FileUtil.mkdir(file.getParentFile());
-                    FileUtil.writeString(JSONUtil.toJsonPrettyStr(json), resultPath, StandardCharsets.UTF_8);
-                    log.info("Written result file to: {}", resultPath);
-                }
-            } else {
+            if (ObjectUtil.isNull(dataExportBO.getResult())) {
                 log.warn("No result found for data: {}", dataExportBaseBO.getName());
+                return;
+            }
+            for (DataResultExportBO resultBO : dataExportBO.getResult()) {
+                var sourceName = resultBO.getSourceName(); // e.g. "ROS", "MODEL", "GROUND_TRUTH"
+                var resultPath = String.format("%s/%s/%s.json",
+                        Constants.RESULT,
+                        sourceName != null ? sourceName : "UNKNOWN",
+                        dataExportBaseBO.getName());
+                if (StrUtil.isNotEmpty(sceneName)) {
+                    resultPath = String.format("%s/%s", sceneName, resultPath);
+                }
+                entries.put(resultPath, JSONUtil.toJsonPrettyStr(JSONUtil.parse(resultBO, jsonConfig)));
             }
-            // else {
-            //     // 결과가 없으면 빈 JSON 만들어주기
-            //     var resultPath = String.format("%s/%s/%s/%s.json",
-            //             zipPath,
-            //             Constants.RESULT,
-            //             "UNKNOWN",
-            //             dataExportBaseBO.getName());
-            //     FileUtil.writeString("{}", resultPath, StandardCharsets.UTF_8);
-            // }
         });
+        return entries;
     }
+
+    private String replacePresignedUrlForInternalAccess(String url) {
+        return url
+            .replace("http://localhost:8190/minio", "http://minio:9000")
+            .replace("http://127.0.0.1:8190/minio", "http://minio:9000")
+            .replace("http://host.docker.internal:8190/minio", "http://minio:9000")
+            .replace("http://ketilabel.iptime.org:8080/minio", "http://minio:9000");
+    }
+    
+    
     private <Q extends BaseQueryBO> void writeFile(List<Long> dataIds, String zipPathOr, Map<Long, String> classMap, 
                                                    Map<Long, String> resultMap, Q query, Function4<List<Long>, Q, Map<Long, String>,
                                                    Map<Long, String>, List<DataExportBO>> processData) {
@@ -397,7 +585,9 @@ public class ExportUseCase {
                 var internalUrl = l.getInternalUrl();
                 var dest = String.format("%s/%s/%s.%s",
                         destDir, deviceName, dataName, FileUtil.getSuffix(l.getFilename()));
-                HttpUtil.downloadFile(internalUrl, dest);
+                try (var permit = executorRegistry.acquire(ExecutorRegistry.HTTP)) {
+                    HttpUtil.downloadFile(internalUrl, dest);
+                }
             } catch (Throwable throwable) {
                 logger.error("downLoad raw file error", throwable);
             } finally {
@@ -422,4 +612,19 @@ public class ExportUseCase {
         return exportRecordUsecase.findBySerialNumbers(serialNumbers);
     }
 
+    /**
+     * Receives the serialized result files of an export
+     */
+    @FunctionalInterface
+    private interface ExportEntryWriter {
+
+        /**
+         * Write one result file
+         *
+         * @param relativePath Result file path relative to the export root
+         * @param json         Result json
+         */
+        void write(String relativePath, String json) throws IOException;
+    }
+
 }
@@ -2,6 +2,7 @@ package ai.basic.x1.usecase;
 
 import ai.basic.x1.adapter.port.dao.FileDAO;
 import ai.basic.x1.adapter.port.dao.mybatis.model.File;
+import ai.basic.x1.adapter.port.minio.MinioProp;
 import ai.basic.x1.adapter.port.minio.MinioService;
 import ai.basic.x1.entity.FileBO;
 import ai.basic.x1.entity.RelationFileBO;
@@ -9,6 +10,7 @@ import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.DefaultConverter;
 import ai.basic.x1.util.Constants;
 import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.util.ByteUtil;
 import cn.hutool.crypto.SecureUtil;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
@@ -17,7 +19,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -41,6 +48,14 @@ public class FileUseCase {
     @Autowired
     private MinioService minioService;
 
+    @Autowired
+    private MinioProp minioProp;
+
+    /**
+     * Number of ids per file query and per DELETE ... WHERE id IN statement
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private static final Set<Long> GTDataHashSet = ConcurrentHashMap.newKeySet();
 
     /**
@@ -55,12 +70,14 @@ public class FileUseCase {
         lambdaQueryWrapper.eq(File::getRelationId, id);
         var relationFiles = fileDAO.list(lambdaQueryWrapper);
         var fileBO = DefaultConverter.convert(file, RelationFileBO.class);
+        var urlFileBOs = new ArrayList<FileBO>();
+        urlFileBOs.add(fileBO);
         if (CollectionUtil.isNotEmpty(relationFiles)) {
             var relationFileBOs = DefaultConverter.convert(relationFiles, FileBO.class);
-            relationFileBOs.forEach(this::setUrl);
+            urlFileBOs.addAll(relationFileBOs);
             fileBO.setRelationFiles(relationFileBOs);
         }
-        setUrl(fileBO);
+        setUrls(urlFileBOs);
         return fileBO;
     }
 
@@ -78,79 +95,131 @@ public class FileUseCase {
      * @return file object list
      */
     public List<RelationFileBO> findByIds(List<Long> ids) {
-        var files = fileDAO.listByIds(ids);
-        var fileBOs = DefaultConverter.convert(files, RelationFileBO.class);
+        return new ArrayList<>(findMapByIds(ids).values());
+    }
+
+    /**
+     * Resolve files together with their relation files (thumbnails, binary point clouds). Relation files are
+     * loaded in one query, grouped by relation id in one pass and every row is converted and signed once.
+     *
+     * @param ids file object ids
+     * @return file id and file object map, in query order
+     */
+    public Map<Long, RelationFileBO> findMapByIds(Collection<Long> ids) {
+        if (CollectionUtil.isEmpty(ids)) {
+            return Map.of();
+        }
+        var uniqueIds = new HashSet<>(ids);
+        var fileBOs = DefaultConverter.convert(fileDAO.listByIds(uniqueIds), RelationFileBO.class);
+        if (CollectionUtil.isEmpty(fileBOs)) {
+            return Map.of();
+        }
         var lambdaQueryWrapper = Wrappers.lambdaQuery(File.class);
-        lambdaQueryWrapper.in(File::getRelationId, ids);
-        var relationFiles = fileDAO.list(lambdaQueryWrapper);
-        Objects.requireNonNull(fileBOs).forEach(fileBO -> {
-            setUrl(fileBO);
-            if (CollectionUtil.isNotEmpty(relationFiles)) {
-                var relationFileBOs = DefaultConverter.convert(relationFiles.stream().
-                        filter(relationFile -> relationFile.getRelationId().equals(fileBO.getId())).collect(Collectors.toList()), FileBO.class);
-                Objects.requireNonNull(relationFileBOs).forEach(this::setUrl);
-                fileBO.setRelationFiles(relationFileBOs);
+        lambdaQueryWrapper.in(File::getRelationId, uniqueIds);
+        var relationFileBOs = DefaultConverter.convert(fileDAO.list(lambdaQueryWrapper), FileBO.class);
+        var relationFileMap = Objects.requireNonNull(relationFileBOs).stream().collect(Collectors.groupingBy(FileBO::getRelationId));
+
+        var fileMap = new LinkedHashMap<Long, RelationFileBO>(fileBOs.size());
+        var urlFileBOs = new ArrayList<FileBO>(fileBOs.size() + relationFileBOs.size());
+        fileBOs.forEach(fileBO -> {
+            var fileRelationFileBOs = relationFileMap.get(fileBO.getId());
+            if (CollectionUtil.isNotEmpty(fileRelationFileBOs)) {
+                fileBO.setRelationFiles(fileRelationFileBOs);
             }
+            fileMap.put(fileBO.getId(), fileBO);
+            urlFileBOs.add(fileBO);
         });
-        return fileBOs;
+        urlFileBOs.addAll(relationFileBOs);
+        setUrls(urlFileBOs);
+        return fileMap;
     }
 
-    public void deleteByUrls(List<String> fileUrls) {
+    /**
+     * Delete the objects of the file urls from MinIO in bulk
+     *
+     * @param fileUrls File urls
+     * @return Number of objects that could not be deleted
+     */
+    public int deleteByUrls(List<String> fileUrls) {
         if (CollUtil.isEmpty(fileUrls)) {
-            return;
+            return 0;
         }
+        var objectNames = new ArrayList<String>(fileUrls.size());
         for (var fileUrl : fileUrls) {
-            try {
-                // Extract object name from URL (remove endpoint part)
-                String objectName = fileUrl;
-                if (fileUrl.contains("://")) {
-                    // URL format: http://endpoint/bucket/objectName
-                    String[] urlParts = fileUrl.split("/", 4);
-                    if (urlParts.length >= 4) {
-                        objectName = urlParts[3];  // Get objectName part
-                    }
+            // Extract object name from URL (remove endpoint part)
+            String objectName = fileUrl;
+            if (fileUrl.contains("://")) {
+                // URL format: http://endpoint/bucket/objectName
+                String[] urlParts = fileUrl.split("/", 4);
+                if (urlParts.length >= 4) {
+                    objectName = urlParts[3];  // Get objectName part
                 }
-                
-                log.info("deleting fileUrl objectName: {} ", objectName);
-                minioService.removeObject(objectName);
-                log.info("Deleted file from MinIO: {}", objectName);
-            } catch (Exception e) {
-                log.warn("Failed to delete fileUrl from MinIO: {}", fileUrl, e);
             }
+            objectNames.add(objectName);
         }
+        return minioService.removeObjects(objectNames);
     }
 
-    public void deleteByIds(List<Long> fileIds) {
-        log.info("fileIds: {}", fileIds);
+    /**
+     * Delete files, MinIO objects first and the file rows afterwards
+     *
+     * @param fileIds file ids
+     * @return Number of objects that could not be deleted
+     */
+    public int deleteByIds(List<Long> fileIds) {
         if (CollUtil.isEmpty(fileIds)) {
-            return;
+            return 0;
         }
+        var failedCount = 0;
+        for (var batchIds : ListUtil.split(new ArrayList<>(new HashSet<>(fileIds)), DELETE_BATCH_SIZE)) {
+            failedCount += deleteFiles(fileDAO.listByIds(batchIds));
+        }
+        return failedCount;
+    }
 
-        var files = fileDAO.listByIds(fileIds); // 실제 파일 정보 조회
-
-        for (var file : files) {
-            try {
-                // Try original path first
-                minioService.removeObject(file.getPath());
-                log.info("Deleted file from MinIO: {}", file.getPath());
-            } catch (Exception e1) {
-                // If original path fails, try translating to new format
-                try {
-                    String translatedPath = translateOldPathToNew(file.getPath());
-                    if (!translatedPath.equals(file.getPath())) {
-                        minioService.removeObject(translatedPath);
-                        log.info("Deleted file from MinIO using translated path: {}", translatedPath);
-                    } else {
-                        log.warn("Failed to delete file from MinIO (no translation available): {}", file.getPath(), e1);
-                    }
-                } catch (Exception e2) {
-                    log.warn("Failed to delete file from MinIO (both paths tried): {}", file.getPath(), e2);
-                }
-            }
+    /**
+     * Delete files together with their relation files (thumbnails, binary point clouds). Each chunk of ids is
+     * resolved with one file query and its objects are removed in bulk before the rows. The rows of a chunk
+     * whose objects could not all be removed are kept, so the deletion can be repeated with the same ids.
+     *
+     * @param fileIds file ids
+     * @return Number of objects that could not be deleted
+     */
+    public int deleteWithRelationsByIds(Collection<Long> fileIds) {
+        if (CollUtil.isEmpty(fileIds)) {
+            return 0;
+        }
+        var failedCount = 0;
+        for (var batchIds : ListUtil.split(new ArrayList<>(new HashSet<>(fileIds)), DELETE_BATCH_SIZE)) {
+            var lambdaQueryWrapper = Wrappers.lambdaQuery(File.class);
+            lambdaQueryWrapper.select(File::getId, File::getPath, File::getBucketName);
+            lambdaQueryWrapper.in(File::getId, batchIds).or().in(File::getRelationId, batchIds);
+            failedCount += deleteFiles(fileDAO.list(lambdaQueryWrapper));
         }
+        return failedCount;
+    }
 
-        fileDAO.removeByIds(fileIds); // file 테이블 삭제
-        log.info("DB에서 file 레코드 {}개 삭제 완료", fileIds.size());
+    private int deleteFiles(List<File> files) {
+        if (CollUtil.isEmpty(files)) {
+            return 0;
+        }
+        var failedCount = 0;
+        var bucketFilesMap = files.stream()
+                .collect(Collectors.groupingBy(file -> StrUtil.blankToDefault(file.getBucketName(), minioProp.getBucketName())));
+        for (var entry : bucketFilesMap.entrySet()) {
+            // Both the DB path and the MinIO path without upload UUID, removing a missing key is a no-op
+            var objectNames = new LinkedHashSet<String>(entry.getValue().size() * 2);
+            entry.getValue().forEach(file -> {
+                objectNames.add(file.getPath());
+                objectNames.add(translateOldPathToNew(file.getPath()));
+            });
+            failedCount += minioService.removeObjects(entry.getKey(), objectNames);
+        }
+        if (failedCount == 0) {
+            fileDAO.removeByIds(files.stream().map(File::getId).collect(Collectors.toList()));
+            log.info("Deleted {} file rows", files.size());
+        }
+        return failedCount;
     }
     
     /**
@@ -158,21 +227,15 @@ public class FileUseCase {
      * This removes all files and empty folders for a dataset
      * 
      * @param datasetName Name of the dataset
+     * @return Number of objects that could not be deleted
      */
-    public void deleteDatasetFolder(String datasetName) {
+    public int deleteDatasetFolder(String datasetName) {
         if (StrUtil.isEmpty(datasetName)) {
-            return;
-        }
-        
-        try {
-            // Determine the correct prefix based on dataset name
-            var datasetPrefix = datasetName.endsWith("_raw") ? datasetName + "/" : datasetName + "/";
-            log.info("Deleting dataset folder from MinIO with prefix: {}", datasetPrefix);
-            minioService.removeObjectsByPrefix(datasetPrefix);
-            log.info("Successfully deleted dataset folder: {}", datasetName);
-        } catch (Exception e) {
-            log.warn("Failed to delete dataset folder from MinIO: {}", datasetName, e);
+            return 0;
         }
+        var datasetPrefix = datasetName + "/";
+        log.info("Deleting dataset folder from MinIO with prefix: {}", datasetPrefix);
+        return minioService.removeObjectsByPrefix(datasetPrefix);
     }
     
     /**
@@ -246,13 +309,27 @@ public class FileUseCase {
         return dbPath;  // Return as-is
     }
 
-    private void setUrl(FileBO fileBO) {
+    /**
+     * Set the access urls of the files, signing each bucket's paths in one batch, files without a bucket use the default one
+     *
+     * @param fileBOs fileBOs
+     */
+    private void setUrls(List<? extends FileBO> fileBOs) {
+        if (CollectionUtil.isEmpty(fileBOs)) {
+            return;
+        }
         try {
-            // Translate DB path (with UUID) to MinIO path (without UUID)
-            String minioPath = translateOldPathToNew(fileBO.getPath());
-            
-            fileBO.setInternalUrl(minioService.getInternalUrl(fileBO.getBucketName(), minioPath));
-            fileBO.setUrl(minioService.getUrl(fileBO.getBucketName(), minioPath));
+            fileBOs.stream().collect(Collectors.groupingBy(fileBO -> StrUtil.blankToDefault(fileBO.getBucketName(), minioProp.getBucketName()))).forEach((bucketName, bucketFileBOs) -> {
+                // Translate DB path (with UUID) to MinIO path (without UUID)
+                var minioPaths = bucketFileBOs.stream().map(fileBO -> translateOldPathToNew(fileBO.getPath())).collect(Collectors.toList());
+                var urlMap = minioService.presignAll(bucketName, minioPaths);
+                for (int i = 0; i < bucketFileBOs.size(); i++) {
+                    var fileBO = bucketFileBOs.get(i);
+                    var internalUrl = urlMap.get(minioPaths.get(i));
+                    fileBO.setInternalUrl(internalUrl);
+                    fileBO.setUrl(minioService.getExternalUrl(internalUrl));
+                }
+            });
         } catch (Exception e) {
             log.error("Get url error", e);
             throw new UsecaseException("Get url error");
@@ -291,7 +368,7 @@ public class FileUseCase {
         log.info("====================================");
         log.info("fileDAO.saveBatch completed");
         var reFileBOs = DefaultConverter.convert(uniqueFiles, FileBO.class);
-        reFileBOs.forEach(fileBO -> setUrl(fileBO));
+        setUrls(reFileBOs);
         return reFileBOs;
     }
 }
@@ -1,6 +1,7 @@
 package ai.basic.x1.usecase;
 
 import ai.basic.x1.util.Constants;
+import ai.basic.x1.util.UploadFileIndex;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ReUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.io.File;
 import java.io.FileFilter;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -22,16 +22,15 @@ public class ImageUploadUseCase {
     /**
      * Get the name of image data
      *
+     * @param fileIndex Index of the upload folder
      * @param sceneFile Continuous frames folder
      */
-    public List<String> getDataNames(File sceneFile) {
-        var sceneNames = new LinkedHashSet<String>();
-        for (var f : sceneFile.listFiles()) {
-            var filename = f.getName().toLowerCase();
-            var boo = f.isDirectory() && ReUtil.isMatch(Constants.IMAGE_PATTERN, filename);
-            if (boo) {
-                var list = Arrays.stream(f.listFiles()).filter(fl -> Constants.IMAGE_DATA_TYPE.contains(FileUtil.getMimeType(fl.getAbsolutePath()))).map(uploadDataUseCase::getFilename).collect(Collectors.toSet());
-                sceneNames.addAll(list);
+    public List<String> getDataNames(UploadFileIndex fileIndex, File sceneFile) {
+        var sceneNames = new HashSet<String>();
+        for (var f : fileIndex.getDirectories(sceneFile)) {
+            if (ReUtil.isMatch(Constants.IMAGE_PATTERN, f.getName().toLowerCase())) {
+                fileIndex.getFiles(f).stream().filter(fl -> Constants.IMAGE_DATA_TYPE.contains(FileUtil.getMimeType(fl.getAbsolutePath())))
+                        .map(uploadDataUseCase::getFilename).forEach(sceneNames::add);
             }
         }
         return sceneNames.stream().sorted().collect(Collectors.toList());
@@ -40,31 +39,12 @@ public class ImageUploadUseCase {
     /**
      * Find the parent folder of all picture folders
      *
-     * @param path path
-     */
-    public void findImageParentList(String path, Set<File> imageParentList) {
-        var file = new File(path);
-        if (FileUtil.isDirectory(path)) {
-            for (var f : file.listFiles()) {
-                getImageFile(f, imageParentList);
-                if (f.isDirectory()) {
-                    findImageParentList(f.getAbsolutePath(), imageParentList);
-                }
-            }
-        }
-    }
-
-    /**
-     * Get the upper-level directory of image
-     *
-     * @param file            file
+     * @param fileIndex       Index of the upload folder
      * @param imageParentList image parent folder collection
      */
-    private void getImageFile(File file, Set<File> imageParentList) {
-        var filename = FileUtil.getName(file).toLowerCase();
-        if (ReUtil.isMatch(Constants.IMAGE_PATTERN, filename) && FileUtil.isDirectory(file)) {
-            imageParentList.add(file.getParentFile());
-        }
+    public void findImageParentList(UploadFileIndex fileIndex, Set<File> imageParentList) {
+        fileIndex.getDirectories().stream().filter(f -> ReUtil.isMatch(Constants.IMAGE_PATTERN, f.getName().toLowerCase()))
+                .forEach(f -> imageParentList.add(f.getParentFile()));
     }
 
     public List<File> findImageList(String path) {
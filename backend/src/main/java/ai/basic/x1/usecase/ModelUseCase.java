@@ -21,12 +21,12 @@ import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.Constants;
 import ai.basic.x1.util.DefaultConverter;
 import ai.basic.x1.util.Page;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.date.StopWatch;
 import cn.hutool.core.lang.TypeReference;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -49,6 +49,8 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
+import javax.annotation.PostConstruct;
+
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -99,7 +101,15 @@ public class ModelUseCase {
     @Autowired
     private RedisTemplate<String, Object> streamRedisTemplate;
 
-    private static final ExecutorService executorService = ThreadUtil.newExecutor(5);
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        executorService = executorRegistry.get(ExecutorRegistry.MODEL);
+    }
 
 
     public ModelBO add(ModelBO modelBO) {
@@ -429,9 +439,12 @@ public class ModelUseCase {
                             log.error("model {} runId {} is delete.", modelBO.getModelCode(), modelRunRecord.getRunNo());
                             return;
                         }
-                        var dataInfoBOList = dataInfoUseCase.listByIds(dataIdSubList, true);
-                        insertRecordNum.addAndGet(batchSaveModelDatasetMessage(dataInfoBOList,
-                                modelRunRecord));
+                        List<DataInfoBO> dataInfoBOList;
+                        try (var permit = executorRegistry.acquire(ExecutorRegistry.DB)) {
+                            dataInfoBOList = dataInfoUseCase.listByIds(dataIdSubList, true);
+                            insertRecordNum.addAndGet(batchSaveModelDatasetMessage(dataInfoBOList,
+                                    modelRunRecord));
+                        }
                         log.info("model {} runId {} cumulative insert num {}",
                                 modelBO.getModelCode(),
                                 modelRunRecord.getRunNo(), insertRecordNum);
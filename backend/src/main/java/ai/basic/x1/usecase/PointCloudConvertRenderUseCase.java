@@ -0,0 +1,456 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.dto.ApiResult;
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.adapter.port.rpc.PointCloudConvertRenderHttpCaller;
+import ai.basic.x1.adapter.port.rpc.dto.*;
+import ai.basic.x1.entity.FileBO;
+import ai.basic.x1.entity.PointCloudConvertRenderTaskBO;
+import ai.basic.x1.entity.PresignedUrlBO;
+import ai.basic.x1.entity.RelationFileBO;
+import ai.basic.x1.entity.enums.RelationEnum;
+import ai.basic.x1.usecase.exception.UsecaseCode;
+import ai.basic.x1.util.NodeUtil;
+import ai.basic.x1.util.executor.ExecutorRegistry;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.ByteUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static ai.basic.x1.util.Constants.*;
+
+/**
+ * Converts the uploaded point clouds to binary pcd and renders their preview image in the background.
+ * The files are queued on a redis stream, a fixed number of consumers per node send them to the convert render
+ * service in batches and write the results as relation files of the point cloud. Every handled message is
+ * acknowledged at once, a failed file is put on a retry sorted set scored by its due time and queued again from
+ * there after an exponential backoff. Messages left pending, e.g. by a stopped node, are claimed by another
+ * consumer once they were idle for reclaimIdleMillis.
+ *
+ * @see PointCloudConvertRenderHttpCaller
+ */
+@Slf4j
+public class PointCloudConvertRenderUseCase {
+
+    private static final Integer PC_RENDER_IMAGE_WIDTH = 2000;
+
+    private static final Integer PC_RENDER_IMAGE_HEIGHT = 2000;
+
+    @Autowired
+    private RedisTemplate<String, Object> streamRedisTemplate;
+
+    @Autowired
+    private PointCloudConvertRenderHttpCaller pointCloudConvertRenderHttpCaller;
+
+    @Autowired
+    private FileUseCase fileUseCase;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    @Value("${pointCloud.convertRender.batchSize:8}")
+    private int batchSize;
+
+    @Value("${pointCloud.convertRender.concurrency:2}")
+    private int concurrency;
+
+    @Value("${pointCloud.convertRender.maxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${pointCloud.convertRender.initialBackoffMillis:2000}")
+    private long initialBackoffMillis;
+
+    @Value("${pointCloud.convertRender.maxBackoffMillis:300000}")
+    private long maxBackoffMillis;
+
+    /**
+     * Idle time after which a pending message is claimed by another consumer, longer than a request may take
+     */
+    @Value("${pointCloud.convertRender.reclaimIdleMillis:900000}")
+    private long reclaimIdleMillis;
+
+    @Value("${pointCloud.convertRender.reclaimIntervalMillis:60000}")
+    private long reclaimIntervalMillis;
+
+    private volatile boolean running = true;
+
+    private ScheduledExecutorService retryScheduler;
+
+    @PostConstruct
+    public void init() {
+        try {
+            streamRedisTemplate.opsForStream().createGroup(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY, POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP);
+        } catch (RedisSystemException redisSystemException) {
+            //no do
+        }
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("x1-point-cloud-render-retry-", true));
+        retryScheduler.scheduleWithFixedDelay(this::queueDueRetries, 1, 1, TimeUnit.SECONDS);
+        var executorService = executorRegistry.get(ExecutorRegistry.POINT_CLOUD_RENDER);
+        for (int i = 0; i < concurrency; i++) {
+            // Unique per node, consumers of the same name on two nodes would share their pending messages
+            var consumerName = POINT_CLOUD_CONVERT_RENDER_CONSUMER_NAME + "-" + NodeUtil.getNodeId() + "-" + i;
+            executorService.execute(() -> consume(consumerName));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        retryScheduler.shutdown();
+    }
+
+    /**
+     * Queue the point cloud files for conversion and rendering
+     *
+     * @param pcdFileBOS Point cloud files
+     */
+    public void submit(List<FileBO> pcdFileBOS) {
+        pcdFileBOS.forEach(pcdFileBO -> add(PointCloudConvertRenderTaskBO.builder().fileId(pcdFileBO.getId()).attempt(0).build()));
+    }
+
+    private RecordId add(PointCloudConvertRenderTaskBO taskBO) {
+        ObjectRecord<String, String> record = StreamRecords.newRecord()
+                .in(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY)
+                .ofObject(JSONUtil.toJsonStr(taskBO))
+                .withId(RecordId.autoGenerate());
+        return streamRedisTemplate.opsForStream().add(record);
+    }
+
+    private void consume(String consumerName) {
+        var consumer = Consumer.from(POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, consumerName);
+        var nextReclaimAt = 0L;
+        while (running) {
+            try {
+                if (System.currentTimeMillis() >= nextReclaimAt) {
+                    nextReclaimAt = System.currentTimeMillis() + reclaimIntervalMillis;
+                    var claimedRecords = claimIdleRecords(consumer);
+                    if (!claimedRecords.isEmpty()) {
+                        handleBatch(claimedRecords);
+                    }
+                }
+                List<ObjectRecord<String, String>> records = streamRedisTemplate.opsForStream().read(String.class, consumer,
+                        StreamReadOptions.empty().count(batchSize).block(Duration.ofSeconds(1)),
+                        StreamOffset.create(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY, ReadOffset.lastConsumed()));
+                if (CollUtil.isEmpty(records)) {
+                    continue;
+                }
+                handleBatch(records);
+            } catch (Exception e) {
+                log.error("Consume point cloud convert render message error", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Claim the messages of the group that were delivered but not acknowledged for reclaimIdleMillis, e.g.
+     * because the node handling them stopped or the batch failed before it was acknowledged. A message
+     * delivered more than maxAttempts times is given up.
+     */
+    List<ObjectRecord<String, String>> claimIdleRecords(Consumer consumer) {
+        var streamOperations = streamRedisTemplate.opsForStream();
+        var pendingMessages = streamOperations.pending(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY,
+                POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, Range.unbounded(), batchSize);
+        var idleIds = new ArrayList<RecordId>();
+        for (var pendingMessage : pendingMessages) {
+            if (pendingMessage.getElapsedTimeSinceLastDelivery().toMillis() < reclaimIdleMillis) {
+                continue;
+            }
+            if (pendingMessage.getTotalDeliveryCount() > maxAttempts) {
+                log.error("Point cloud convert render message gave up after {} deliveries, id:{}",
+                        pendingMessage.getTotalDeliveryCount(), pendingMessage.getIdAsString());
+                acknowledge(pendingMessage.getId());
+                continue;
+            }
+            idleIds.add(pendingMessage.getId());
+        }
+        if (idleIds.isEmpty()) {
+            return List.of();
+        }
+        // Only the messages still idle are claimed, another consumer may have claimed them in the meantime
+        var claimOptions = RedisStreamCommands.XClaimOptions.minIdleMs(reclaimIdleMillis).ids(idleIds);
+        List<RecordId> claimedIds = streamRedisTemplate.execute((RedisCallback<List<RecordId>>) connection -> connection.streamCommands()
+                .xClaimJustId(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY.getBytes(StandardCharsets.UTF_8),
+                        POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, consumer.getName(), claimOptions));
+        var records = new ArrayList<ObjectRecord<String, String>>();
+        for (var claimedId : CollUtil.emptyIfNull(claimedIds)) {
+            var id = claimedId.getValue();
+            List<ObjectRecord<String, String>> claimedRecords = streamOperations.range(String.class,
+                    POINT_CLOUD_CONVERT_RENDER_STREAM_KEY, Range.closed(id, id));
+            if (CollUtil.isEmpty(claimedRecords)) {
+                // Trimmed from the stream
+                acknowledge(claimedId);
+            } else {
+                records.addAll(claimedRecords);
+            }
+        }
+        if (!records.isEmpty()) {
+            log.info("Claimed {} idle point cloud convert render messages", records.size());
+        }
+        return records;
+    }
+
+    /**
+     * Handle a batch of messages, every message is acknowledged once it is converted, skipped or queued for a retry
+     */
+    void handleBatch(List<ObjectRecord<String, String>> records) {
+        var recordMap = new LinkedHashMap<Long, ObjectRecord<String, String>>();
+        var taskMap = new HashMap<Long, PointCloudConvertRenderTaskBO>();
+        for (var record : records) {
+            var taskBO = JSONUtil.toBean(record.getValue(), PointCloudConvertRenderTaskBO.class);
+            var previous = recordMap.put(taskBO.getFileId(), record);
+            if (previous != null) {
+                acknowledge(previous);
+            }
+            taskMap.put(taskBO.getFileId(), taskBO);
+        }
+        var fileMap = fileUseCase.findMapByIds(recordMap.keySet());
+        var requestFiles = new ArrayList<RequestFile>();
+        recordMap.forEach((fileId, record) -> {
+            var pcdFileBO = fileMap.get(fileId);
+            // Deleted in the meantime, or converted by an earlier attempt whose message was not acknowledged
+            if (pcdFileBO == null || isConverted(pcdFileBO)) {
+                acknowledge(record);
+                return;
+            }
+            try {
+                requestFiles.add(new RequestFile(record, taskMap.get(fileId), pcdFileBO));
+            } catch (Exception e) {
+                log.error("generate preSignUrl error! fileId:{}", fileId, e);
+                retry(record, taskMap.get(fileId));
+            }
+        });
+        if (requestFiles.isEmpty()) {
+            return;
+        }
+
+        var results = callConvertRender(requestFiles);
+        var relationFileBOS = new ArrayList<FileBO>();
+        for (int i = 0; i < requestFiles.size(); i++) {
+            var requestFile = requestFiles.get(i);
+            var respDTO = results != null && i < results.size() ? results.get(i) : null;
+            if (respDTO != null && respDTO.getCode() != null && respDTO.getCode() == 0) {
+                relationFileBOS.addAll(requestFile.buildRelationFiles(respDTO));
+            } else {
+                log.warn("Point cloud convert render failed, fileId:{}, resp:{}", requestFile.pcdFileBO.getId(), JSONUtil.toJsonStr(respDTO));
+                retry(requestFile.record, requestFile.taskBO);
+            }
+        }
+        if (relationFileBOS.isEmpty()) {
+            return;
+        }
+        var convertedFileIds = relationFileBOS.stream().map(FileBO::getRelationId).collect(Collectors.toSet());
+        var convertedFiles = requestFiles.stream()
+                .filter(requestFile -> convertedFileIds.contains(requestFile.pcdFileBO.getId()))
+                .collect(Collectors.toList());
+        try {
+            relationFileBOS.stream().collect(Collectors.groupingBy(FileBO::getCreatedBy))
+                    .forEach((userId, userFileBOS) -> fileUseCase.saveBatchFile(userId, userFileBOS));
+            convertedFiles.forEach(requestFile -> acknowledge(requestFile.record));
+        } catch (Exception e) {
+            // Retried, the files whose rows were written are skipped as converted
+            log.error("Save point cloud relation files error", e);
+            convertedFiles.forEach(requestFile -> retry(requestFile.record, requestFile.taskBO));
+        }
+    }
+
+    private boolean isConverted(RelationFileBO pcdFileBO) {
+        return CollUtil.isNotEmpty(pcdFileBO.getRelationFiles()) && pcdFileBO.getRelationFiles().stream()
+                .anyMatch(relationFileBO -> RelationEnum.BINARY.equals(relationFileBO.getRelation()));
+    }
+
+    /**
+     * One request for the whole batch, the results are in the order of the request data
+     */
+    private List<PointCloudCRRespDTO> callConvertRender(List<RequestFile> requestFiles) {
+        var pointCloudCRReqDTO = PointCloudCRReqDTO.builder()
+                .data(requestFiles.stream().map(RequestFile::buildPointCloudFileInfo).collect(Collectors.toList()))
+                .type(1)
+                .renderParam(buildRenderParam())
+                .convertParam(ConvertParam.builder().extraFields(List.of("rgb")).build()).build();
+        ApiResult<List<PointCloudCRRespDTO>> apiResult;
+        try (var permit = executorRegistry.acquire(ExecutorRegistry.HTTP)) {
+            apiResult = pointCloudConvertRenderHttpCaller.callConvertRender(pointCloudCRReqDTO);
+        } catch (Exception e) {
+            log.error("call pointCloudConvertRender service error! size:{}", requestFiles.size(), e);
+            return null;
+        }
+        if (apiResult == null || apiResult.getCode() != UsecaseCode.OK) {
+            log.error("call pointCloudConvertRender service error! resp:{}", JSONUtil.toJsonStr(apiResult));
+            return null;
+        }
+        return apiResult.getData();
+    }
+
+    /**
+     * Put the file on the retry set, due after the backoff of its attempt, and acknowledge the message.
+     * If the message can not be acknowledged it is claimed again later, the file is skipped once converted.
+     */
+    private void retry(ObjectRecord<String, String> record, PointCloudConvertRenderTaskBO taskBO) {
+        var attempt = taskBO.getAttempt() == null ? 1 : taskBO.getAttempt() + 1;
+        if (attempt >= maxAttempts) {
+            log.error("Point cloud convert render gave up after {} attempts, fileId:{}", attempt, taskBO.getFileId());
+            acknowledge(record);
+            return;
+        }
+        var backoffMillis = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        streamRedisTemplate.opsForZSet().add(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY,
+                JSONUtil.toJsonStr(taskBO.toBuilder().attempt(attempt).build()), System.currentTimeMillis() + backoffMillis);
+        acknowledge(record);
+    }
+
+    /**
+     * Queue the retries that are due on the stream. A retry is removed from the set before it is queued,
+     * so that only one node queues it.
+     */
+    void queueDueRetries() {
+        try {
+            var zSetOperations = streamRedisTemplate.opsForZSet();
+            var dueRetries = zSetOperations.rangeByScore(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY, 0, System.currentTimeMillis(), 0, 100);
+            for (var dueRetry : CollUtil.emptyIfNull(dueRetries)) {
+                var removed = zSetOperations.remove(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY, dueRetry);
+                if (removed != null && removed > 0) {
+                    add(JSONUtil.toBean(dueRetry.toString(), PointCloudConvertRenderTaskBO.class));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Queue point cloud convert render retries error", e);
+        }
+    }
+
+    private void acknowledge(ObjectRecord<String, String> record) {
+        acknowledge(record.getId());
+    }
+
+    private void acknowledge(RecordId recordId) {
+        streamRedisTemplate.opsForStream().acknowledge(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY,
+                POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, recordId);
+    }
+
+    private void sleepQuietly() {
+        try {
+            TimeUnit.SECONDS.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private RenderParam buildRenderParam() {
+        return RenderParam.builder().colors(List.of(6313414L, 3640543L, 1886145L, 3402883L, 8385883L))
+                .zRange(null)
+                .width(PC_RENDER_IMAGE_WIDTH)
+                .height(PC_RENDER_IMAGE_HEIGHT)
+                .numStd(3).build();
+    }
+
+    /**
+     * A point cloud file of a request with the upload paths of its binary pcd and render image
+     */
+    private final class RequestFile {
+
+        private final ObjectRecord<String, String> record;
+
+        private final PointCloudConvertRenderTaskBO taskBO;
+
+        private final RelationFileBO pcdFileBO;
+
+        private final String binaryFileName;
+
+        private final String binaryPath;
+
+        private final String imageFileName;
+
+        private final String imagePath;
+
+        private final PresignedUrlBO binaryPreSignUrlBO;
+
+        private final PresignedUrlBO imagePreSignUrlBO;
+
+        private RequestFile(ObjectRecord<String, String> record, PointCloudConvertRenderTaskBO taskBO,
+                            RelationFileBO pcdFileBO) throws Exception {
+            this.record = record;
+            this.taskBO = taskBO;
+            this.pcdFileBO = pcdFileBO;
+            // Translate DB path (with UUID) to MinIO path (without UUID)
+            var filePath = fileUseCase.translateOldPathToNew(pcdFileBO.getPath());
+            var basePath = "";
+            var binaryName = "";
+            var imageName = "";
+            if (filePath.contains(SLANTING_BAR)) {
+                basePath = filePath.substring(0, filePath.lastIndexOf(SLANTING_BAR) + 1);
+                var fileName = filePath.substring(filePath.lastIndexOf(SLANTING_BAR) + 1);
+                binaryName = "binary-" + fileName;
+                imageName = "render-" + UUID.randomUUID() + ".png";
+            }
+            this.binaryFileName = binaryName;
+            this.imageFileName = imageName;
+            this.binaryPath = String.format("%s%s", basePath, binaryFileName);
+            this.imagePath = String.format("%s%s", basePath, imageFileName);
+            this.binaryPreSignUrlBO = minioService.generatePresignedUrl(pcdFileBO.getBucketName(), binaryPath, Boolean.FALSE);
+            this.imagePreSignUrlBO = minioService.generatePresignedUrl(pcdFileBO.getBucketName(), imagePath, Boolean.FALSE);
+        }
+
+        private PointCloudFileInfo buildPointCloudFileInfo() {
+            return PointCloudFileInfo.builder().pointCloudFile(pcdFileBO.getInternalUrl())
+                    .uploadBinaryPcdPath(binaryPreSignUrlBO.getPresignedUrl())
+                    .uploadImagePath(imagePreSignUrlBO.getPresignedUrl())
+                    .build();
+        }
+
+        private List<FileBO> buildRelationFiles(PointCloudCRRespDTO pointCloudCRRespDTO) {
+            FileBO binaryPcdFile = FileBO.builder().name(binaryFileName)
+                    .originalName(binaryFileName)
+                    .path(binaryPath)
+                    .type(pcdFileBO.getType())
+                    .size(pointCloudCRRespDTO.getBinaryPcdSize())
+                    .bucketName(pcdFileBO.getBucketName())
+                    .createdAt(OffsetDateTime.now())
+                    .createdBy(pcdFileBO.getCreatedBy())
+                    .relation(RelationEnum.BINARY)
+                    .relationId(pcdFileBO.getId())
+                    .pathHash(ByteUtil.bytesToLong(SecureUtil.md5().digest(binaryPath))).build();
+            FileBO imageFile = FileBO.builder().name(imageFileName)
+                    .originalName(imageFileName)
+                    .path(imagePath)
+                    .type(FileUtil.getMimeType(imageFileName))
+                    .size(pointCloudCRRespDTO.getImageSize())
+                    .bucketName(pcdFileBO.getBucketName())
+                    .createdAt(OffsetDateTime.now())
+                    .createdBy(pcdFileBO.getCreatedBy())
+                    .relation(RelationEnum.POINT_CLOUD_RENDER_IMAGE)
+                    .relationId(pcdFileBO.getId())
+                    .pathHash(ByteUtil.bytesToLong(SecureUtil.md5().digest(imagePath)))
+                    .extraInfo(JSONUtil.parseObj(pointCloudCRRespDTO.getPointCloudRange())
+                            .set("width", PC_RENDER_IMAGE_WIDTH)
+                            .set("height", PC_RENDER_IMAGE_HEIGHT))
+                    .build();
+            return List.of(binaryPcdFile, imageFile);
+        }
+    }
+}
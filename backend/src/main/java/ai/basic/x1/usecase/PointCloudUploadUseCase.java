@@ -1,13 +1,13 @@
 package ai.basic.x1.usecase;
 
 import ai.basic.x1.util.Constants;
+import ai.basic.x1.util.UploadFileIndex;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ReUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -20,16 +20,15 @@ public class PointCloudUploadUseCase {
     /**
      * Get the name of point cloud data
      *
+     * @param fileIndex Index of the upload folder
      * @param sceneFile Continuous frames folder
      */
-    public List<String> getDataNames(File sceneFile) {
-        var sceneNames = new LinkedHashSet<String>();
-        for (var f : sceneFile.listFiles()) {
-            var filename = f.getName().toLowerCase();
-            var boo = f.isDirectory() && ReUtil.isMatch(Constants.LIDAR_POINT_CLOUD_PATTERN, filename);
-            if (boo) {
-                var list = Arrays.stream(f.listFiles()).filter(fl -> Constants.PCD_SUFFIX.equalsIgnoreCase(FileUtil.getSuffix(fl))).map(uploadDataUseCase::getFilename).collect(Collectors.toSet());
-                sceneNames.addAll(list);
+    public List<String> getDataNames(UploadFileIndex fileIndex, File sceneFile) {
+        var sceneNames = new HashSet<String>();
+        for (var f : fileIndex.getDirectories(sceneFile)) {
+            if (isPointCloudDirName(f.getName())) {
+                fileIndex.getFiles(f).stream().filter(fl -> Constants.PCD_SUFFIX.equalsIgnoreCase(FileUtil.getSuffix(fl)))
+                        .map(uploadDataUseCase::getFilename).forEach(sceneNames::add);
             }
         }
         return sceneNames.stream().sorted().collect(Collectors.toList());
@@ -38,31 +37,21 @@ public class PointCloudUploadUseCase {
     /**
      * Find folders for all point clouds
      *
-     * @param path                 path
+     * @param fileIndex            Index of the upload folder
      * @param pointCloudParentList lidar_point_cloud folder parent directory collection
      */
-    public void findPointCloudParentList(String path, Set<File> pointCloudParentList) {
-        var file = new File(path);
-        if (FileUtil.isDirectory(path)) {
-            for (var f : file.listFiles()) {
-                getPointCloudParentFile(f, pointCloudParentList);
-                if (f.isDirectory()) {
-                    findPointCloudParentList(f.getAbsolutePath(), pointCloudParentList);
-                }
-            }
-        }
+    public void findPointCloudParentList(UploadFileIndex fileIndex, Set<File> pointCloudParentList) {
+        fileIndex.getDirectories().stream().filter(f -> isPointCloudDirName(f.getName()))
+                .forEach(f -> pointCloudParentList.add(f.getParentFile()));
     }
 
     /**
-     * Get lidar_point_cloud upper-level directory
+     * Whether the directory name is a lidar_point_cloud folder, its parent directory is a scene
      *
-     * @param file                 file
-     * @param pointCloudParentList lidar_point_cloud folder parent directory collection
+     * @param dirName Directory name
+     * @return boolean
      */
-    private void getPointCloudParentFile(File file, Set<File> pointCloudParentList) {
-        var filename = file.getName().toLowerCase().trim();
-        if (ReUtil.isMatch(Constants.LIDAR_POINT_CLOUD_PATTERN, filename) && FileUtil.isDirectory(file)) {
-            pointCloudParentList.add(file.getParentFile());
-        }
+    public boolean isPointCloudDirName(String dirName) {
+        return ReUtil.isMatch(Constants.LIDAR_POINT_CLOUD_PATTERN, dirName.toLowerCase().trim());
     }
 }
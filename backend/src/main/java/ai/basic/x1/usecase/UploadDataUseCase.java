@@ -1,33 +1,36 @@
 package ai.basic.x1.usecase;
 
 import ai.basic.x1.adapter.dto.ApiResult;
+import ai.basic.x1.adapter.api.context.RequestContextHolder;
+import ai.basic.x1.adapter.api.context.UserInfo;
 import ai.basic.x1.adapter.port.dao.DataAnnotationObjectDAO;
 import ai.basic.x1.adapter.port.dao.DataInfoDAO;
 import ai.basic.x1.adapter.port.dao.DatasetDAO;
+import ai.basic.x1.adapter.port.dao.UploadCheckpointDAO;
 import ai.basic.x1.adapter.port.dao.UploadRecordDAO;
+import ai.basic.x1.adapter.port.dao.UploadSceneCheckpointDAO;
 import ai.basic.x1.adapter.port.dao.mybatis.model.DataAnnotationObject;
 import ai.basic.x1.adapter.port.dao.mybatis.model.DataInfo;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadCheckpoint;
 import ai.basic.x1.adapter.port.dao.mybatis.model.UploadRecord;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadSceneCheckpoint;
 import ai.basic.x1.adapter.port.minio.MinioProp;
 import ai.basic.x1.adapter.port.minio.MinioService;
-import ai.basic.x1.adapter.port.rpc.PointCloudConvertRenderHttpCaller;
-import ai.basic.x1.adapter.port.rpc.dto.*;
 import ai.basic.x1.entity.*;
 import ai.basic.x1.entity.enums.*;
 import ai.basic.x1.usecase.exception.UsecaseCode;
 import ai.basic.x1.usecase.exception.UsecaseException;
 import ai.basic.x1.util.*;
+import ai.basic.x1.util.executor.AdaptiveChunkExecutor;
+import ai.basic.x1.util.executor.ExecutorRegistry;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.collection.ListUtil;
-import cn.hutool.core.date.StopWatch;
-import cn.hutool.core.img.Img;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.StreamProgress;
 import cn.hutool.core.lang.UUID;
 import cn.hutool.core.lang.tree.Tree;
 import cn.hutool.core.lang.tree.TreeUtil;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
 import cn.hutool.crypto.SecureUtil;
 import cn.hutool.http.HttpUtil;
@@ -35,28 +38,35 @@ import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONUtil;
 import com.alibaba.ttl.TtlRunnable;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ai.basic.x1.entity.enums.DataUploadSourceEnum.LOCAL;
@@ -72,6 +82,8 @@ import org.apache.commons.lang3.tuple.Pair;
 @Slf4j
 public class UploadDataUseCase {
 
+    private static final String DUPLICATE_DATA_NAMES = "Duplicate data names;";
+
     @Autowired
     private UploadUseCase uploadUseCase;
 
@@ -109,7 +121,13 @@ public class UploadDataUseCase {
     private UploadRecordDAO uploadRecordDAO;
 
     @Autowired
-    private PointCloudConvertRenderHttpCaller pointCloudConvertRenderHttpCaller;
+    private UploadCheckpointDAO uploadCheckpointDAO;
+
+    @Autowired
+    private UploadSceneCheckpointDAO uploadSceneCheckpointDAO;
+
+    @Autowired
+    private PointCloudConvertRenderUseCase pointCloudConvertRenderUseCase;
 
     @Autowired
     private DatasetSimilarityJobUseCase datasetSimilarityJobUseCase;
@@ -135,19 +153,80 @@ public class UploadDataUseCase {
     @Value("${file.prefix.small:small}")
     private String small;
 
-    private static final ExecutorService executorService = ThreadUtil.newExecutor(2);
-    private static final ExecutorService parseExecutorService = ThreadUtil.newExecutor(5);
+    /**
+     * Frames of an upload are parsed in chunks on the upload-parse pool, the chunk size follows the measured
+     * parse time of a frame
+     */
+    @Value("${upload.parse.concurrency:5}")
+    private int parseConcurrency;
+
+    @Value("${upload.parse.targetChunkMillis:2000}")
+    private long parseTargetChunkMillis;
+
+    @Value("${upload.parse.initialChunkSize:5}")
+    private int parseInitialChunkSize;
+
+    @Value("${upload.parse.maxChunkSize:100}")
+    private int parseMaxChunkSize;
+
+    /**
+     * Entries of an uploaded zip file written at the same time, the scenes are parsed while the rest is written
+     */
+    @Value("${upload.decompress.maxEntriesInFlight:4}")
+    private int decompressMaxEntriesInFlight;
+
+    /**
+     * Images whose decoded thumbnails are held in memory at the same time while they are encoded
+     */
+    @Value("${upload.thumbnail.maxImagesInFlight:4}")
+    private int thumbnailMaxImagesInFlight;
+
+    /**
+     * Runs of an interrupted upload before it is marked FAILED
+     */
+    @Value("${upload.checkpoint.maxAttempts:3}")
+    private int checkpointMaxAttempts;
+
+    /**
+     * Time after its last heartbeat that an upload may be claimed by another node
+     */
+    @Value("${upload.checkpoint.leaseMillis:300000}")
+    private long checkpointLeaseMillis;
+
+    /**
+     * Uploads run by this node, by upload record id
+     */
+    private final Set<Long> claimedUploadRecordIds = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    private ExecutorService executorService;
+
+    private ExecutorService parseExecutorService;
+
+    /**
+     * Writes the entries of the uploaded zip files
+     */
+    private ExecutorService decompressExecutorService;
+
+    /**
+     * Encodes the thumbnails, the caller encodes itself when the pool is saturated
+     */
+    private ExecutorService thumbnailExecutorService;
 
     private final FileFilter textFileFilter = file -> {
         //if the file extension is json return true, else false
         return file.getAbsolutePath().toUpperCase().endsWith(JSON_SUFFIX) && Constants.TEXT.equalsIgnoreCase(FileUtil.getName(file.getParentFile()));
     };
 
-    private static final Integer PC_RENDER_IMAGE_WIDTH = 2000;
-    private static final Integer PC_RENDER_IMAGE_HEIGHT = 2000;
-
-    private static final Integer RETRY_COUNT = 3;
-
+    @PostConstruct
+    public void init() {
+        executorService = executorRegistry.get(ExecutorRegistry.UPLOAD);
+        parseExecutorService = executorRegistry.get(ExecutorRegistry.UPLOAD_PARSE);
+        decompressExecutorService = executorRegistry.get(ExecutorRegistry.UPLOAD_DECOMPRESS);
+        thumbnailExecutorService = executorRegistry.get(ExecutorRegistry.UPLOAD_THUMBNAIL);
+    }
 
     /**
      * Upload data
@@ -181,22 +260,195 @@ public class UploadDataUseCase {
             return uploadRecordBO.getSerialNumber();
         }
         dataInfoUploadBO.setUploadRecordId(uploadRecordBO.getId());
-        executorService.execute(Objects.requireNonNull(TtlRunnable.get(() -> {
-            try {
-                if (IMAGE.equals(dataset.getType()) && IMAGE_DATA_TYPE.contains(mimeType)) {
-                    this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseImageUploadFile);
-                } else if (IMAGE.equals(dataset.getType()) && COMPRESSED_DATA_TYPE.contains(mimeType)) {
-                    this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseImageCompressedUploadFile);
-                } else if (TEXT.equals(dataset.getType())) {
-                    this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseTextUploadFile);
+        uploadCheckpointDAO.save(UploadCheckpoint.builder()
+                .uploadRecordId(uploadRecordBO.getId())
+                .datasetId(dataInfoUploadBO.getDatasetId())
+                .uploadParam(JSONUtil.toJsonStr(dataInfoUploadBO))
+                .stage(UploadCheckpointStageEnum.DOWNLOADING)
+                .attemptCount(1)
+                .owner(NodeUtil.getNodeId())
+                .heartbeatAt(OffsetDateTime.now()).build());
+        claimedUploadRecordIds.add(uploadRecordBO.getId());
+        try {
+            executorService.execute(Objects.requireNonNull(TtlRunnable.get(() -> this.process(dataInfoUploadBO, mimeType))));
+        } catch (RejectedExecutionException ex) {
+            claimedUploadRecordIds.remove(uploadRecordBO.getId());
+            throw new UsecaseException(UsecaseCode.UNKNOWN,
+                    "The system is busy, please try again later");
+        }
+        return uploadRecordBO.getSerialNumber();
+    }
+
+    /**
+     * Download, decompress and parse the upload by its dataset type. The checkpoint is removed once the upload
+     * completed or was marked FAILED, an interrupted upload keeps it and is resumed.
+     *
+     * @param dataInfoUploadBO Upload data parameter
+     * @param mimeType         Mime type of the upload file
+     */
+    private void process(DataInfoUploadBO dataInfoUploadBO, String mimeType) {
+        var datasetType = dataInfoUploadBO.getType();
+        try {
+            if (IMAGE.equals(datasetType) && IMAGE_DATA_TYPE.contains(mimeType)) {
+                this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseImageUploadFile);
+            } else if (IMAGE.equals(datasetType) && COMPRESSED_DATA_TYPE.contains(mimeType)) {
+                this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseImageCompressedUploadFile);
+            } else if (TEXT.equals(datasetType)) {
+                this.downloadAndDecompressionFile(dataInfoUploadBO, this::parseTextUploadFile);
+            } else {
+                this.downloadAndParsePointCloudFile(dataInfoUploadBO);
+            }
+        } catch (IOException e) {
+            log.error("Download decompression file error", e);
+        } finally {
+            this.finishCheckpoint(dataInfoUploadBO.getUploadRecordId());
+        }
+    }
+
+    /**
+     * Keep the heartbeat of the uploads run by this node, and resume the uploads whose node stopped sending
+     * heartbeats, e.g. because the service was restarted, or that were interrupted by an error. An upload is claimed
+     * with a conditional update, so only one node resumes it. A point cloud upload whose decompressed folder is
+     * complete continues to parse from it, the others are downloaded again. The scenes and frames parsed before
+     * are skipped in both cases.
+     */
+    @Scheduled(initialDelayString = "${upload.checkpoint.heartbeatMillis:60000}", fixedDelayString = "${upload.checkpoint.heartbeatMillis:60000}")
+    public void maintainUploads() {
+        try {
+            if (!claimedUploadRecordIds.isEmpty()) {
+                uploadCheckpointDAO.heartbeat(claimedUploadRecordIds, NodeUtil.getNodeId());
+            }
+            uploadCheckpointDAO.findClaimable(getCheckpointHeartbeatBefore()).forEach(this::resumeUpload);
+        } catch (Exception e) {
+            log.warn("Maintain uploads error", e);
+        }
+    }
+
+    private OffsetDateTime getCheckpointHeartbeatBefore() {
+        return OffsetDateTime.now().minus(checkpointLeaseMillis, ChronoUnit.MILLIS);
+    }
+
+    private void resumeUpload(UploadCheckpoint uploadCheckpoint) {
+        var uploadRecordId = uploadCheckpoint.getUploadRecordId();
+        if (!uploadCheckpointDAO.claim(uploadCheckpoint, NodeUtil.getNodeId(), getCheckpointHeartbeatBefore())) {
+            log.info("Upload is resumed by another node,uploadRecordId:{}", uploadRecordId);
+            return;
+        }
+        var dataInfoUploadBO = JSONUtil.toBean(uploadCheckpoint.getUploadParam(), DataInfoUploadBO.class);
+        if (uploadCheckpoint.getAttemptCount() >= checkpointMaxAttempts) {
+            log.error("Upload was interrupted {} times, give it up,uploadRecordId:{}", uploadCheckpoint.getAttemptCount(), uploadRecordId);
+            uploadUseCase.updateUploadRecordStatus(uploadRecordId, FAILED, "The upload was interrupted too many times");
+            this.deleteUploadFiles(dataInfoUploadBO);
+            this.removeCheckpoint(uploadRecordId);
+            return;
+        }
+        log.info("Resume upload,uploadRecordId:{},datasetId:{},stage:{},attempt:{}", uploadRecordId,
+                uploadCheckpoint.getDatasetId(), uploadCheckpoint.getStage(), uploadCheckpoint.getAttemptCount() + 1);
+        claimedUploadRecordIds.add(uploadRecordId);
+        var requestContext = RequestContextHolder.createEmptyContent();
+        requestContext.setUserInfo(UserInfo.builder().id(dataInfoUploadBO.getUserId()).build());
+        RequestContextHolder.setContext(requestContext);
+        try {
+            executorService.execute(Objects.requireNonNull(TtlRunnable.get(() -> {
+                var baseSavePath = dataInfoUploadBO.getBaseSavePath();
+                var datasetType = dataInfoUploadBO.getType();
+                if (UploadCheckpointStageEnum.PARSING.equals(uploadCheckpoint.getStage()) && !IMAGE.equals(datasetType)
+                        && !TEXT.equals(datasetType) && StrUtil.isNotBlank(baseSavePath) && FileUtil.isDirectory(baseSavePath)) {
+                    this.resumeParsePointCloudUploadFile(dataInfoUploadBO);
                 } else {
-                    this.downloadAndDecompressionFile(dataInfoUploadBO, this::parsePointCloudUploadFile);
+                    this.deleteUploadFiles(dataInfoUploadBO);
+                    var fileUrl = DecompressionFileUtils.removeUrlParameter(dataInfoUploadBO.getFileUrl());
+                    this.process(dataInfoUploadBO, FileUtil.getMimeType(fileUrl));
                 }
-            } catch (IOException e) {
-                log.error("Download decompression file error", e);
+            })));
+        } catch (RejectedExecutionException e) {
+            log.warn("Upload pool is busy, resume it later,uploadRecordId:{}", uploadRecordId);
+            claimedUploadRecordIds.remove(uploadRecordId);
+            uploadCheckpointDAO.release(uploadRecordId, NodeUtil.getNodeId());
+        } finally {
+            RequestContextHolder.cleanContext();
+        }
+    }
+
+    /**
+     * Parse the decompressed folder of a point cloud upload again. The folder is renamed first, so that the files
+     * uploaded again get new paths and do not collide with the files of the frames interrupted by the restart.
+     *
+     * @param dataInfoUploadBO Upload data parameter
+     */
+    private void resumeParsePointCloudUploadFile(DataInfoUploadBO dataInfoUploadBO) {
+        try {
+            var resumeSavePath = String.format("%s%s/", tempPath, UUID.randomUUID().toString().replace("-", ""));
+            Files.move(Paths.get(dataInfoUploadBO.getBaseSavePath()), Paths.get(resumeSavePath));
+            dataInfoUploadBO.setBaseSavePath(resumeSavePath);
+            this.updateCheckpoint(dataInfoUploadBO, UploadCheckpointStageEnum.PARSING);
+            this.parsePointCloudUploadFile(dataInfoUploadBO);
+            this.deleteUploadFiles(dataInfoUploadBO);
+        } catch (IOException e) {
+            log.error("Resume decompressed upload error,uploadRecordId:{}", dataInfoUploadBO.getUploadRecordId(), e);
+            uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, e.getMessage());
+        } finally {
+            this.finishCheckpoint(dataInfoUploadBO.getUploadRecordId());
+        }
+    }
+
+    /**
+     * Delete the downloaded and decompressed files of an upload
+     */
+    private void deleteUploadFiles(DataInfoUploadBO dataInfoUploadBO) {
+        if (StrUtil.isNotBlank(dataInfoUploadBO.getSavePath())) {
+            FileUtil.del(dataInfoUploadBO.getSavePath());
+        }
+        if (StrUtil.isNotBlank(dataInfoUploadBO.getBaseSavePath())) {
+            FileUtil.del(dataInfoUploadBO.getBaseSavePath());
+        }
+    }
+
+    /**
+     * Save the paths and the stage of the upload, uploads without a record are not resumed
+     */
+    private void updateCheckpoint(DataInfoUploadBO dataInfoUploadBO, UploadCheckpointStageEnum stage) {
+        if (ObjectUtil.isNull(dataInfoUploadBO.getUploadRecordId())) {
+            return;
+        }
+        uploadCheckpointDAO.updateStage(dataInfoUploadBO.getUploadRecordId(), stage, JSONUtil.toJsonStr(dataInfoUploadBO),
+                dataInfoUploadBO.getUserId());
+    }
+
+    /**
+     * Remove the checkpoint if the upload completed or was marked FAILED. Otherwise the upload was interrupted,
+     * e.g. by a database or MinIO error, and the checkpoint is released so that the upload is resumed.
+     */
+    private void finishCheckpoint(Long uploadRecordId) {
+        if (ObjectUtil.isNull(uploadRecordId)) {
+            return;
+        }
+        try {
+            var uploadRecord = uploadRecordDAO.getById(uploadRecordId);
+            var status = ObjectUtil.isNull(uploadRecord) ? null : uploadRecord.getStatus();
+            if (ObjectUtil.isNull(uploadRecord) || PARSE_COMPLETED.equals(status) || FAILED.equals(status)) {
+                this.removeCheckpoint(uploadRecordId);
+            } else {
+                log.warn("Upload was interrupted, keep the checkpoint,uploadRecordId:{},status:{}", uploadRecordId, status);
+                uploadCheckpointDAO.release(uploadRecordId, NodeUtil.getNodeId());
             }
-        })));
-        return uploadRecordBO.getSerialNumber();
+        } catch (Exception e) {
+            log.error("Finish upload checkpoint error,uploadRecordId:{}", uploadRecordId, e);
+        } finally {
+            claimedUploadRecordIds.remove(uploadRecordId);
+        }
+    }
+
+    private void removeCheckpoint(Long uploadRecordId) {
+        if (ObjectUtil.isNull(uploadRecordId)) {
+            return;
+        }
+        try {
+            uploadSceneCheckpointDAO.removeByUploadRecordId(uploadRecordId);
+            uploadCheckpointDAO.removeByUploadRecordId(uploadRecordId);
+        } catch (Exception e) {
+            log.error("Remove upload checkpoint error,uploadRecordId:{}", uploadRecordId, e);
+        }
     }
 
     /**
@@ -206,8 +458,76 @@ public class UploadDataUseCase {
      * @param function         function
      */
     private <T extends DataInfoUploadBO> void downloadAndDecompressionFile(T dataInfoUploadBO, Consumer<T> function) throws IOException {
-        var fileUrl = URLUtil.decode(dataInfoUploadBO.getFileUrl());
+        if (!this.downloadFile(dataInfoUploadBO)) {
+            return;
+        }
         var datasetId = dataInfoUploadBO.getDatasetId();
+        var path = DecompressionFileUtils.removeUrlParameter(URLUtil.decode(dataInfoUploadBO.getFileUrl()));
+        var archivePath = dataInfoUploadBO.getSavePath();
+        var baseSavePath = dataInfoUploadBO.getBaseSavePath();
+        // A single image does not need to be decompressed
+        if (IMAGE_DATA_TYPE.contains(FileUtil.getMimeType(path))) {
+            function.accept(dataInfoUploadBO);
+            FileUtil.clean(baseSavePath);
+            FileUtil.del(archivePath);
+            return;
+        }
+        
+
+        
+        // Unzip files into baseSavePath (archive is outside, so won't be included)
+        log.info("Start decompression,datasetId:{},archivePath:{}, baseSavePath{}", datasetId, archivePath, baseSavePath);
+        DecompressionFileUtils.decompress(archivePath, baseSavePath, decompressExecutorService);
+        
+        // Delete archive file immediately after decompression
+        log.info("Deleting archive file: {}", archivePath);
+        boolean deleted = FileUtil.del(archivePath);
+        if (deleted) {
+            log.info("Successfully deleted archive file: {}", archivePath);
+        } else {
+            log.warn("Failed to delete archive file: {}", archivePath);
+        }
+        this.updateCheckpoint(dataInfoUploadBO, UploadCheckpointStageEnum.PARSING);
+        function.accept(dataInfoUploadBO);
+        FileUtil.clean(baseSavePath);
+    }
+
+    /**
+     * Download the point cloud file and parse it. The scenes of a zip file are parsed as soon as
+     * they are decompressed instead of after the whole archive.
+     *
+     * @param dataInfoUploadBO Upload data parameter
+     */
+    private void downloadAndParsePointCloudFile(DataInfoUploadBO dataInfoUploadBO) throws IOException {
+        var path = DecompressionFileUtils.removeUrlParameter(URLUtil.decode(dataInfoUploadBO.getFileUrl()));
+        // A model run record needs the total data number before the first scene is parsed
+        if (!path.toUpperCase().endsWith(ZIP) || ResultTypeEnum.MODEL_RUN.equals(dataInfoUploadBO.getResultType())) {
+            this.downloadAndDecompressionFile(dataInfoUploadBO, this::parsePointCloudUploadFile);
+            return;
+        }
+        if (!this.downloadFile(dataInfoUploadBO)) {
+            return;
+        }
+        var archivePath = dataInfoUploadBO.getSavePath();
+        var baseSavePath = dataInfoUploadBO.getBaseSavePath();
+        log.info("Start decompression,datasetId:{},archivePath:{}, baseSavePath{}", dataInfoUploadBO.getDatasetId(), archivePath, baseSavePath);
+        var readySceneQueue = new LinkedBlockingQueue<File>();
+        var decompressFuture = DecompressionFileUtils.zipDecompress(archivePath, baseSavePath, decompressExecutorService,
+                decompressMaxEntriesInFlight, pointCloudUploadUseCase::isPointCloudDirName, readySceneQueue::add);
+        // Parsed from the decompressed folder if the service restarts from now on
+        decompressFuture.thenRun(() -> this.updateCheckpoint(dataInfoUploadBO, UploadCheckpointStageEnum.PARSING));
+        this.streamParseUploadFile(dataInfoUploadBO, readySceneQueue, decompressFuture, pointCloudUploadUseCase::getDataNames);
+        FileUtil.clean(baseSavePath);
+    }
+
+    /**
+     * Download or copy the upload file outside of the base save path
+     *
+     * @param dataInfoUploadBO Upload data parameter
+     * @return false if the local file could not be copied
+     */
+    private boolean downloadFile(DataInfoUploadBO dataInfoUploadBO) {
+        var fileUrl = URLUtil.decode(dataInfoUploadBO.getFileUrl());
         var path = DecompressionFileUtils.removeUrlParameter(fileUrl);
         dataInfoUploadBO.setFileName(FileUtil.getPrefix(path));
         var baseSavePath = String.format("%s%s/", tempPath, UUID.randomUUID().toString().replace("-", ""));
@@ -227,63 +547,42 @@ public class UploadDataUseCase {
             } catch (Exception e) {
                 log.error("Failed to copy local file", e);
                 uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, "Failed to copy local file");
-                return;
+                return false;
             }
         } else {
             // URL mode: Download via HTTP
             log.info("Get compressed package start fileUrl:{},archivePath:{}", fileUrl, archivePath);
-            HttpUtil.downloadFileFromUrl(fileUrl, FileUtil.newFile(archivePath), new StreamProgress() {
-                @Override
-                public void start() {
-                    uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), DOWNLOADING, null);
-                }
+            try (var permit = executorRegistry.acquire(ExecutorRegistry.HTTP)) {
+                HttpUtil.downloadFileFromUrl(fileUrl, FileUtil.newFile(archivePath), new StreamProgress() {
+                    @Override
+                    public void start() {
+                        uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), DOWNLOADING, null);
+                    }
 
-                @Override
-                public void progress(long total, long progressSize) {
-                    if (progressSize % PROCESS_VALUE_SIZE == 0 || total == progressSize) {
-                        var uploadRecord = UploadRecord.builder()
-                                .id(dataInfoUploadBO.getUploadRecordId())
-                                .status(DOWNLOADING)
-                                .totalFileSize(total)
-                                .downloadedFileSize(progressSize).build();
-                        uploadRecordDAO.updateById(uploadRecord);
+                    @Override
+                    public void progress(long total, long progressSize) {
+                        if (progressSize % PROCESS_VALUE_SIZE == 0 || total == progressSize) {
+                            var uploadRecord = UploadRecord.builder()
+                                    .id(dataInfoUploadBO.getUploadRecordId())
+                                    .status(DOWNLOADING)
+                                    .totalFileSize(total)
+                                    .downloadedFileSize(progressSize).build();
+                            uploadRecordDAO.updateById(uploadRecord);
+                        }
                     }
-                }
 
-                @Override
-                public void finish() {
-                    uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), DOWNLOAD_COMPLETED, null);
-                }
-            });
+                    @Override
+                    public void finish() {
+                        uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), DOWNLOAD_COMPLETED, null);
+                    }
+                });
+            }
             log.info("Get compressed package end fileUrl:{},archivePath:{}", fileUrl, archivePath);
         }
         dataInfoUploadBO.setSavePath(archivePath);
         dataInfoUploadBO.setBaseSavePath(baseSavePath);
-        // A single image does not need to be decompressed
-        if (IMAGE_DATA_TYPE.contains(FileUtil.getMimeType(path))) {
-            function.accept(dataInfoUploadBO);
-            FileUtil.clean(baseSavePath);
-            FileUtil.del(archivePath);
-            return;
-        }
-        
-
-        
-        // Unzip files into baseSavePath (archive is outside, so won't be included)
-        log.info("Start decompression,datasetId:{},archivePath:{}, baseSavePath{}", datasetId, archivePath, baseSavePath);
-        DecompressionFileUtils.decompress(archivePath, baseSavePath);
-        
-        // Delete archive file immediately after decompression
-        log.info("Deleting archive file: {}", archivePath);
-        boolean deleted = FileUtil.del(archivePath);
-        if (deleted) {
-            log.info("Successfully deleted archive file: {}", archivePath);
-        } else {
-            log.warn("Failed to delete archive file: {}", archivePath);
-        }
-        
-        function.accept(dataInfoUploadBO);
-        FileUtil.clean(baseSavePath);
+        this.updateCheckpoint(dataInfoUploadBO, UploadCheckpointStageEnum.DOWNLOADING);
+        return true;
     }
 
     public void parsePointCloudUploadFile(DataInfoUploadBO dataInfoUploadBO) {
@@ -302,8 +601,8 @@ public class UploadDataUseCase {
                 .createdBy(userId)
                 .isDeleted(false);
         var file = FileUtil.file(dataInfoUploadBO.getSavePath());
-        var imageExtraInfoBO = ImageExtraInfoBO.builder().height(Img.from(file).getImg().getHeight(null))
-                .width(Img.from(file).getImg().getWidth(null)).build();
+        var imageSize = ImageProbe.probe(file);
+        var imageExtraInfoBO = ImageExtraInfoBO.builder().height(imageSize.getHeight()).width(imageSize.getWidth()).build();
         var fileUrl = DecompressionFileUtils.removeUrlParameter(URLUtil.decode(dataInfoUploadBO.getFileUrl()));
         var path = fileUrl.replace(minioProp.getEndpoint(), "").replace(minioProp.getBucketName() + "/", "");
         var fileBO = FileBO.builder().name(file.getName()).originalName(file.getName()).bucketName(minioProp.getBucketName())
@@ -357,10 +656,10 @@ public class UploadDataUseCase {
                 .createdBy(userId)
                 .isDeleted(false);
         var totalDataNum = Long.valueOf(files.size());
-        AtomicReference<Long> parsedDataNum = new AtomicReference<>(0L);
         var uploadRecordBOBuilder = UploadRecordBO.builder()
-                .id(dataInfoUploadBO.getUploadRecordId()).totalDataNum(totalDataNum).parsedDataNum(parsedDataNum.get()).status(UploadStatusEnum.PARSING);
+                .id(dataInfoUploadBO.getUploadRecordId()).totalDataNum(totalDataNum).parsedDataNum(0L).status(UploadStatusEnum.PARSING);
         if (CollectionUtil.isNotEmpty(files)) {
+            var uploadProgress = uploadUseCase.startParseProgress(dataInfoUploadBO.getUploadRecordId(), userId, totalDataNum);
             CountDownLatch countDownLatch = new CountDownLatch(files.size());
             files.forEach(f -> parseExecutorService.submit(Objects.requireNonNull(TtlRunnable.get(() -> {
                 try {
@@ -399,9 +698,7 @@ public class UploadDataUseCase {
                 } catch (Exception e) {
                     log.error("Handle data error", e);
                 } finally {
-                    parsedDataNum.set(parsedDataNum.get() + 1);
-                    var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(parsedDataNum.get()).build();
-                    uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
+                    uploadProgress.addParsedDataNum(1);
                     countDownLatch.countDown();
                 }
 
@@ -410,6 +707,8 @@ public class UploadDataUseCase {
                 countDownLatch.await();
             } catch (InterruptedException e) {
                 log.error("Parse image count down latch error", e);
+            } finally {
+                uploadUseCase.stopParseProgress(uploadProgress);
             }
             var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(totalDataNum).errorMessage(errorBuilder.toString()).status(PARSE_COMPLETED).build();
             uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
@@ -473,15 +772,16 @@ public class UploadDataUseCase {
         return addedDeviceNameList;
     }
 
-    public void commonParseUploadFile(DataInfoUploadBO dataInfoUploadBO, BiConsumer<String, Set<File>> sceneFileListConsumer,
-                                      Function<File, List<String>> getDataNamesFunction) {
-        var errorBuilder = new StringBuilder();
+    public void commonParseUploadFile(DataInfoUploadBO dataInfoUploadBO, BiConsumer<UploadFileIndex, Set<File>> sceneFileListConsumer,
+                                      BiFunction<UploadFileIndex, File, List<String>> getDataNamesFunction) {
+        var errors = new ConcurrentLinkedQueue<String>();
         var datasetId = dataInfoUploadBO.getDatasetId();
         var userId = dataInfoUploadBO.getUserId();
-        var datasetType = dataInfoUploadBO.getType();
         // Get the parent folder whose folder name is image_. If it is a point cloud, it contains lidar_point_cloud_parent folder.
         var sceneFileList = new HashSet<File>();
-        sceneFileListConsumer.accept(dataInfoUploadBO.getBaseSavePath(), sceneFileList);
+        // One walk of the extracted folder, all the parse stages look up their folders and files in the index
+        var fileIndex = UploadFileIndex.build(new File(dataInfoUploadBO.getBaseSavePath()));
+        sceneFileListConsumer.accept(fileIndex, sceneFileList);
         // Use dataset name instead of userId/datasetId
         var dataset = datasetDAO.getById(datasetId);
         // Avoid duplicate 'raw' if dataset name already ends with '_raw'
@@ -494,10 +794,12 @@ public class UploadDataUseCase {
             uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, COMPRESSED_FILE_ERROR.getMessage());
             return;
         }
-        var totalDataNum = sceneFileList.stream().filter(Objects::nonNull).mapToLong(file -> getDataNamesFunction.apply(file).size()).sum();
-        AtomicReference<Long> parsedDataNum = new AtomicReference<>(0L);
+        var sceneDataNameMap = new LinkedHashMap<File, List<String>>();
+        sceneFileList.stream().filter(Objects::nonNull)
+                .forEach(sceneFile -> sceneDataNameMap.put(sceneFile, getDataNamesFunction.apply(fileIndex, sceneFile)));
+        var totalDataNum = sceneDataNameMap.values().stream().mapToLong(List::size).sum();
         var uploadRecordBOBuilder = UploadRecordBO.builder()
-                .id(dataInfoUploadBO.getUploadRecordId()).totalDataNum(totalDataNum).parsedDataNum(parsedDataNum.get()).status(PARSING);
+                .id(dataInfoUploadBO.getUploadRecordId()).totalDataNum(totalDataNum).parsedDataNum(0L).status(PARSING);
         if (totalDataNum <= 0) {
             uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, COMPRESSED_PACKAGE_EMPTY.getMessage());
             throw new UsecaseException(COMPRESSED_PACKAGE_EMPTY);
@@ -511,82 +813,306 @@ public class UploadDataUseCase {
         }
         var dataAnnotationObjectBOBuilder = DataAnnotationObjectBO.builder()
                 .datasetId(datasetId).createdBy(userId).createdAt(OffsetDateTime.now()).sourceId(sourceId);
-        sceneFileList.forEach(sceneFile -> {
-            Long sceneId;
+        var uploadProgress = uploadUseCase.startParseProgress(dataInfoUploadBO.getUploadRecordId(), userId, totalDataNum);
+        var parseExecutor = this.newParseExecutor();
+        var sceneCheckpoints = this.getSceneCheckpoints(dataInfoUploadBO.getUploadRecordId());
+        try {
+            sceneDataNameMap.forEach((sceneFile, dataNameList) -> this.parseScene(sceneFile, fileIndex, dataNameList, dataInfoUploadBO,
+                    rootPath, dataAnnotationObjectBOBuilder, uploadProgress, parseExecutor, sceneCheckpoints, errors));
+        } finally {
+            parseExecutor.await();
+            uploadUseCase.stopParseProgress(uploadProgress);
+        }
+        var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(totalDataNum).errorMessage(joinErrors(errors)).status(PARSE_COMPLETED).build();
+        uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
+        if (ObjectUtil.isNotNull(sourceId) && ResultTypeEnum.MODEL_RUN.equals(dataInfoUploadBO.getResultType())) {
+            modelRunRecordUseCase.updateById(sourceId, RunStatusEnum.SUCCESS);
+        }
+    }
+
+    /**
+     * Save the scene and submit its frames to the parse executor of the upload, the frames of several
+     * scenes are parsed at the same time
+     *
+     * @param sceneFile                     Scene folder
+     * @param fileIndex                     Index of the folder containing the scene
+     * @param dataNameList                  Frame names of the scene
+     * @param dataInfoUploadBO              Upload data parameter
+     * @param rootPath                      Minio root path of the dataset
+     * @param dataAnnotationObjectBOBuilder Builder of the imported results
+     * @param uploadProgress                Parse progress of the upload
+     * @param parseExecutor                 Parse executor of the upload
+     * @param sceneCheckpoints              Scene checkpoints of the upload by scene path, filled with the new ones
+     * @param errors                        Error messages, added by the scene and by each parsed chunk
+     */
+    private void parseScene(File sceneFile, UploadFileIndex fileIndex, List<String> dataNameList, DataInfoUploadBO dataInfoUploadBO, String rootPath,
+                            DataAnnotationObjectBO.DataAnnotationObjectBOBuilder dataAnnotationObjectBOBuilder,
+                            UploadUseCase.UploadProgress uploadProgress, AdaptiveChunkExecutor parseExecutor,
+                            Map<String, UploadSceneCheckpoint> sceneCheckpoints, Queue<String> errors) {
+        var datasetId = dataInfoUploadBO.getDatasetId();
+        var userId = dataInfoUploadBO.getUserId();
+        var datasetType = dataInfoUploadBO.getType();
+        var scenePath = this.getScenePath(dataInfoUploadBO, sceneFile);
+        var sceneCheckpoint = sceneCheckpoints.get(scenePath);
+        if (sceneCheckpoint != null && Boolean.TRUE.equals(sceneCheckpoint.getIsCompleted())) {
+            log.info("Skip the parsed scene,uploadRecordId:{},scene:{}", dataInfoUploadBO.getUploadRecordId(), scenePath);
+            uploadProgress.addParsedDataNum(dataNameList.size());
+            return;
+        }
+        Long sceneId;
+        if (sceneCheckpoint != null) {
+            // Resumed scene, the frames saved before the restart are skipped
+            sceneId = sceneCheckpoint.getSceneId();
+            var savedDataNames = this.findDataNames(datasetId, sceneId);
+            var remainingDataNameList = dataNameList.stream().filter(dataName -> !savedDataNames.contains(dataName)).collect(Collectors.toList());
+            uploadProgress.addParsedDataNum(dataNameList.size() - remainingDataNameList.size());
+            dataNameList = remainingDataNameList;
+        } else {
             try {
                 sceneId = this.saveScene(sceneFile, dataInfoUploadBO);
             } catch (DuplicateKeyException e) {
                 log.error("The scene already exists,scene name is {}", sceneFile.getName());
-                errorBuilder.append("Duplicate scene names:").append(sceneFile.getName()).append(";");
+                errors.add("Duplicate scene names:" + sceneFile.getName() + ";");
                 return;
             }
+            sceneCheckpoint = this.saveSceneCheckpoint(dataInfoUploadBO, scenePath, sceneId);
+            if (sceneCheckpoint != null) {
+                sceneCheckpoints.put(scenePath, sceneCheckpoint);
+            }
 
-            var dataNameList = getDataNamesFunction.apply(sceneFile);
             if (CollectionUtil.isEmpty(dataNameList)) {
                 log.error("The file in {} folder is empty", sceneFile);
-                errorBuilder.append("The file in ").append(sceneFile.getName()).append(" folder is empty;");
+                errors.add("The file in " + sceneFile.getName() + " folder is empty;");
                 return;
             }
-            log.info("Get data name,pointCloudParentName:{},dataName:{} ", sceneFile, JSONUtil.toJsonStr(dataNameList));
-            var dataInfoBOBuilder = DataInfoBO.builder().datasetId(datasetId)
-                    .parentId(sceneId)
-                    .status(DataStatusEnum.VALID)
-                    .annotationStatus(DataAnnotationStatusEnum.NOT_ANNOTATED)
-                    .splitType(NOT_SPLIT)
-                    .createdAt(OffsetDateTime.now())
-                    .updatedAt(OffsetDateTime.now())
-                    .createdBy(userId)
-                    .isDeleted(false);
-            var list = ListUtil.split(dataNameList, 5);
-            CountDownLatch countDownLatch = new CountDownLatch(list.size());
-            list.forEach(subDataNameList -> parseExecutorService.submit(Objects.requireNonNull(TtlRunnable.get(() -> {
-                var dataInfoBOList = new ArrayList<DataInfoBO>();
-                var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>();
-                try {
-                    subDataNameList.forEach(dataName -> {
-                        var dataFiles = this.getSingleDataFiles(sceneFile, dataName, errorBuilder, datasetType);
-                        if (CollectionUtil.isNotEmpty(dataFiles)) {
-                            log.info("dataStart,dataName:{},dataFiles:{}",dataName,dataFiles.stream().map(File::getName).collect(Collectors.toList()));
-                            var tempDataId = ByteUtil.bytesToLong(SecureUtil.md5().digest(UUID.randomUUID().toString()));
-                            var dataAnnotationObjectBO = dataAnnotationObjectBOBuilder.build();
-                            dataAnnotationObjectBO.setDataId(tempDataId);
-                            handleDataResult(sceneFile, dataName, dataAnnotationObjectBO, dataAnnotationObjectBOList, errorBuilder);
-                            var fileNodeList = this.assembleContent(dataFiles, rootPath, dataInfoUploadBO);
-                            log.info("Get data content,frameName:{},content:{} ", dataName, JSONUtil.toJsonStr(fileNodeList));
-                            var dataInfoBO = dataInfoBOBuilder.build();
-                            dataInfoBO.setName(dataName);
-                            dataInfoBO.setOrderName(NaturalSortUtil.convert(dataName));
-                            dataInfoBO.setContent(fileNodeList);
-                            dataInfoBO.setTempDataId(tempDataId);
-                            dataInfoBOList.add(dataInfoBO);
-                        }
-                    });
-                    if (CollectionUtil.isNotEmpty(dataInfoBOList)) {
-                        log.info("dataInfoBOList:{}",dataInfoBOList.stream().map(DataInfoBO::getTempDataId).collect(Collectors.toList()));
-                        log.info("dataAnnotationObjectBOList:{}",dataAnnotationObjectBOList.stream().map(DataAnnotationObjectBO::getDataId).collect(Collectors.toList()));
+        }
+        var sceneCheckpointId = sceneCheckpoint == null ? null : sceneCheckpoint.getId();
+        if (CollectionUtil.isEmpty(dataNameList)) {
+            this.completeSceneCheckpoint(sceneCheckpointId, userId);
+            return;
+        }
+        var remainingDataNum = new AtomicInteger(dataNameList.size());
+        log.info("Get data name,pointCloudParentName:{},dataName:{} ", sceneFile, JSONUtil.toJsonStr(dataNameList));
+        var dataInfoBOBuilder = DataInfoBO.builder().datasetId(datasetId)
+                .parentId(sceneId)
+                .status(DataStatusEnum.VALID)
+                .annotationStatus(DataAnnotationStatusEnum.NOT_ANNOTATED)
+                .splitType(NOT_SPLIT)
+                .createdAt(OffsetDateTime.now())
+                .updatedAt(OffsetDateTime.now())
+                .createdBy(userId)
+                .isDeleted(false);
+        parseExecutor.submit(dataNameList, subDataNameList -> {
+            var dataInfoBOList = new ArrayList<DataInfoBO>();
+            var dataAnnotationObjectBOList = new ArrayList<DataAnnotationObjectBO>();
+            // Only used by the thread of the chunk, added to the shared messages when the chunk is done
+            var errorBuilder = new StringBuilder();
+            try {
+                subDataNameList.forEach(dataName -> {
+                    var dataFiles = this.getSingleDataFiles(fileIndex, sceneFile, dataName, errorBuilder, datasetType);
+                    if (CollectionUtil.isNotEmpty(dataFiles)) {
+                        log.info("dataStart,dataName:{},dataFiles:{}",dataName,dataFiles.stream().map(File::getName).collect(Collectors.toList()));
+                        var tempDataId = ByteUtil.bytesToLong(SecureUtil.md5().digest(UUID.randomUUID().toString()));
+                        var dataAnnotationObjectBO = dataAnnotationObjectBOBuilder.build();
+                        dataAnnotationObjectBO.setDataId(tempDataId);
+                        handleDataResult(fileIndex, sceneFile, dataName, dataAnnotationObjectBO, dataAnnotationObjectBOList, errorBuilder);
+                        var fileNodeList = this.assembleContent(dataFiles, rootPath, dataInfoUploadBO);
+                        log.info("Get data content,frameName:{},content:{} ", dataName, JSONUtil.toJsonStr(fileNodeList));
+                        var dataInfoBO = dataInfoBOBuilder.build();
+                        dataInfoBO.setName(dataName);
+                        dataInfoBO.setOrderName(NaturalSortUtil.convert(dataName));
+                        dataInfoBO.setContent(fileNodeList);
+                        dataInfoBO.setTempDataId(tempDataId);
+                        dataInfoBOList.add(dataInfoBO);
+                    }
+                });
+                if (CollectionUtil.isNotEmpty(dataInfoBOList)) {
+                    log.info("dataInfoBOList:{}",dataInfoBOList.stream().map(DataInfoBO::getTempDataId).collect(Collectors.toList()));
+                    log.info("dataAnnotationObjectBOList:{}",dataAnnotationObjectBOList.stream().map(DataAnnotationObjectBO::getDataId).collect(Collectors.toList()));
+                    try (var permit = executorRegistry.acquire(ExecutorRegistry.DB)) {
                         var resDataInfoList = this.insertBatch(dataInfoBOList, datasetId, errorBuilder, sceneId);
                         this.saveBatchDataResult(resDataInfoList, dataAnnotationObjectBOList);
                     }
-                } catch (Exception e) {
-                    log.error("commonParseUploadFile ", e);
-                } finally {
-                    parsedDataNum.set(parsedDataNum.get() + subDataNameList.size());
-                    var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(parsedDataNum.get()).build();
-                    uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
-                    countDownLatch.countDown();
                 }
-            }))));
-            try {
-                countDownLatch.await();
-            } catch (InterruptedException e) {
-                log.error("Parse point cloud count down latch error", e);
+            } catch (Exception e) {
+                log.error("commonParseUploadFile ", e);
+            } finally {
+                if (errorBuilder.length() > 0) {
+                    errors.add(errorBuilder.toString());
+                }
+                uploadProgress.addParsedDataNum(subDataNameList.size());
+                if (remainingDataNum.addAndGet(-subDataNameList.size()) == 0) {
+                    this.completeSceneCheckpoint(sceneCheckpointId, userId);
+                }
             }
         });
-        var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(totalDataNum).errorMessage(errorBuilder.toString()).status(PARSE_COMPLETED).build();
-        uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
-        if (ObjectUtil.isNotNull(sourceId) && ResultTypeEnum.MODEL_RUN.equals(dataInfoUploadBO.getResultType())) {
-            modelRunRecordUseCase.updateById(sourceId, RunStatusEnum.SUCCESS);
+    }
+
+    /**
+     * Error message of a parse in the order the messages were added. The chunks report duplicate data names on
+     * their own, the message is kept only when no duplicate was reported before, as with one shared builder.
+     *
+     * @param errors Error messages of the scenes and chunks
+     */
+    static String joinErrors(Collection<String> errors) {
+        var errorBuilder = new StringBuilder();
+        for (var error : errors) {
+            errorBuilder.append(errorBuilder.indexOf("Duplicate") >= 0 ? error.replace(DUPLICATE_DATA_NAMES, "") : error);
         }
+        return errorBuilder.toString();
+    }
+
+    /**
+     * Get the scene checkpoints of an upload by scene path, empty for a parse without upload record
+     *
+     * @param uploadRecordId Upload record id
+     */
+    private Map<String, UploadSceneCheckpoint> getSceneCheckpoints(Long uploadRecordId) {
+        var sceneCheckpoints = new HashMap<String, UploadSceneCheckpoint>();
+        if (ObjectUtil.isNull(uploadRecordId)) {
+            return sceneCheckpoints;
+        }
+        uploadSceneCheckpointDAO.findByUploadRecordId(uploadRecordId)
+                .forEach(sceneCheckpoint -> sceneCheckpoints.put(sceneCheckpoint.getScenePath(), sceneCheckpoint));
+        return sceneCheckpoints;
+    }
+
+    /**
+     * Scene folder relative to the decompressed folder, the same after the folder is moved on resume
+     */
+    private String getScenePath(DataInfoUploadBO dataInfoUploadBO, File sceneFile) {
+        var basePath = Paths.get(dataInfoUploadBO.getBaseSavePath()).toAbsolutePath().normalize();
+        return basePath.relativize(sceneFile.toPath().toAbsolutePath().normalize()).toString();
+    }
+
+    private UploadSceneCheckpoint saveSceneCheckpoint(DataInfoUploadBO dataInfoUploadBO, String scenePath, Long sceneId) {
+        if (ObjectUtil.isNull(dataInfoUploadBO.getUploadRecordId())) {
+            return null;
+        }
+        var sceneCheckpoint = UploadSceneCheckpoint.builder()
+                .uploadRecordId(dataInfoUploadBO.getUploadRecordId())
+                .scenePath(scenePath)
+                .sceneId(sceneId)
+                .isCompleted(false)
+                .createdBy(dataInfoUploadBO.getUserId())
+                .updatedBy(dataInfoUploadBO.getUserId())
+                .build();
+        uploadSceneCheckpointDAO.save(sceneCheckpoint);
+        return sceneCheckpoint;
+    }
+
+    private void completeSceneCheckpoint(Long sceneCheckpointId, Long userId) {
+        if (ObjectUtil.isNull(sceneCheckpointId)) {
+            return;
+        }
+        try {
+            uploadSceneCheckpointDAO.complete(sceneCheckpointId, userId);
+        } catch (Exception e) {
+            log.error("Complete scene checkpoint error,id:{}", sceneCheckpointId, e);
+        }
+    }
+
+    /**
+     * Names of the frames of a scene that are already saved
+     *
+     * @param datasetId Dataset id
+     * @param sceneId   Scene id
+     */
+    private Set<String> findDataNames(Long datasetId, Long sceneId) {
+        return dataInfoDAO.lambdaQuery()
+                .select(DataInfo::getName)
+                .eq(DataInfo::getDatasetId, datasetId)
+                .eq(DataInfo::getParentId, sceneId)
+                .eq(DataInfo::getIsDeleted, false)
+                .list().stream().map(DataInfo::getName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Create the parse executor of an upload, all its scenes share the concurrency
+     */
+    private AdaptiveChunkExecutor newParseExecutor() {
+        return new AdaptiveChunkExecutor(parseExecutorService, parseConcurrency, parseTargetChunkMillis,
+                parseInitialChunkSize, parseMaxChunkSize);
+    }
+
+    /**
+     * Parse the scenes in the order they are decompressed. The total data number grows with every ready scene
+     * and is final once the decompression is completed.
+     *
+     * @param dataInfoUploadBO     Upload data parameter
+     * @param readySceneQueue      Decompressed scene folders
+     * @param decompressFuture     Decompression of the whole archive
+     * @param getDataNamesFunction Get the frame names of a scene
+     */
+    private void streamParseUploadFile(DataInfoUploadBO dataInfoUploadBO, BlockingQueue<File> readySceneQueue,
+                                       CompletableFuture<Void> decompressFuture, BiFunction<UploadFileIndex, File, List<String>> getDataNamesFunction) {
+        var errors = new ConcurrentLinkedQueue<String>();
+        var datasetId = dataInfoUploadBO.getDatasetId();
+        var userId = dataInfoUploadBO.getUserId();
+        // Use dataset name instead of userId/datasetId
+        var dataset = datasetDAO.getById(datasetId);
+        // Avoid duplicate 'raw' if dataset name already ends with '_raw'
+        var datasetName = dataset.getName();
+        var rootPath = datasetName.endsWith("_raw") ? datasetName : String.format("%s/raw", datasetName);
+        Long sourceId = ObjectUtil.isNotNull(dataInfoUploadBO.getResultType()) ? -1L : null;
+        var dataAnnotationObjectBOBuilder = DataAnnotationObjectBO.builder()
+                .datasetId(datasetId).createdBy(userId).createdAt(OffsetDateTime.now()).sourceId(sourceId);
+        var uploadRecordBOBuilder = UploadRecordBO.builder()
+                .id(dataInfoUploadBO.getUploadRecordId()).totalDataNum(0L).parsedDataNum(0L).status(PARSING);
+        var uploadProgress = uploadUseCase.startParseProgress(dataInfoUploadBO.getUploadRecordId(), userId, 0L);
+        var parseExecutor = this.newParseExecutor();
+        var sceneCheckpoints = this.getSceneCheckpoints(dataInfoUploadBO.getUploadRecordId());
+        var sceneNum = 0;
+        var totalDataNum = 0L;
+        try {
+            while (true) {
+                File sceneFile;
+                try {
+                    sceneFile = readySceneQueue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    log.error("Wait decompressed scene error", e);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (sceneFile == null) {
+                    // All scenes are queued before the decompression completes
+                    if (decompressFuture.isDone() && readySceneQueue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                // The scene is complete once it is queued
+                var fileIndex = UploadFileIndex.build(sceneFile);
+                var dataNameList = getDataNamesFunction.apply(fileIndex, sceneFile);
+                sceneNum++;
+                totalDataNum += dataNameList.size();
+                uploadRecordBOBuilder.totalDataNum(totalDataNum);
+                uploadProgress.setTotalDataNum(totalDataNum);
+                log.info("Decompressed scene datasetId:{},scene:{},size:{}", datasetId, sceneFile, dataNameList.size());
+                this.parseScene(sceneFile, fileIndex, dataNameList, dataInfoUploadBO, rootPath, dataAnnotationObjectBOBuilder,
+                        uploadProgress, parseExecutor, sceneCheckpoints, errors);
+            }
+            try {
+                decompressFuture.join();
+            } catch (CompletionException e) {
+                log.error("Decompression file error,datasetId:{},fileUrl:{}", datasetId, dataInfoUploadBO.getFileUrl(), e);
+            }
+        } finally {
+            parseExecutor.await();
+            uploadUseCase.stopParseProgress(uploadProgress);
+        }
+        if (sceneNum == 0) {
+            log.error("The format of the compression package is incorrect. It must contain point_cloud_ or image,userId:{},datasetId:{},fileUrl:{}",
+                    userId, datasetId, dataInfoUploadBO.getFileUrl());
+            uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, COMPRESSED_FILE_ERROR.getMessage());
+            return;
+        }
+        if (totalDataNum <= 0) {
+            uploadUseCase.updateUploadRecordStatus(dataInfoUploadBO.getUploadRecordId(), FAILED, COMPRESSED_PACKAGE_EMPTY.getMessage());
+            throw new UsecaseException(COMPRESSED_PACKAGE_EMPTY);
+        }
+        var uploadRecordBO = uploadRecordBOBuilder.parsedDataNum(totalDataNum).errorMessage(joinErrors(errors)).status(PARSE_COMPLETED).build();
+        uploadRecordDAO.updateById(DefaultConverter.convert(uploadRecordBO, UploadRecord.class));
     }
 
     /**
@@ -608,19 +1134,19 @@ public class UploadDataUseCase {
     /**
      * Find a file of data
      *
+     * @param fileIndex   Index of the folder containing the scene
      * @param file        File
      * @param dataName    Data name
      * @param datasetType Dataset type
      */
-    private List<File> getSingleDataFiles(File file, String dataName, StringBuilder stringBuilder, DatasetTypeEnum datasetType) {
+    private List<File> getSingleDataFiles(UploadFileIndex fileIndex, File file, String dataName, StringBuilder stringBuilder, DatasetTypeEnum datasetType) {
         var singleDataFile = new ArrayList<File>();
         var isErr = false;
-        for (var f : file.listFiles()) {
+        for (var f : fileIndex.getDirectories(file)) {
             var boo = this.validateFilenameByType(f, datasetType);
             if (boo) {
-                var fcList = Arrays.stream(f.listFiles()).filter(fc -> (this.validateFileFormat(fc, datasetType) &&
-                                                                (this.getFilename(fc).equals(dataName))))
-                                                                .collect(Collectors.toList());
+                var fcList = fileIndex.getFiles(f, dataName).stream().filter(fc -> this.validateFileFormat(fc, datasetType))
+                        .collect(Collectors.toList());
                 var count = fcList.size();
                 switch (count) {
                     case 0:
@@ -734,12 +1260,13 @@ public class UploadDataUseCase {
     /**
      * Process the annotation results corresponding to data
      *
+     * @param fileIndex                  Index of the folder containing the scene
      * @param file                       The image is the parent of data, and the point cloud file is point_cloud
      * @param dataName                   Data name
      * @param dataAnnotationObjectBO     Data annotation object
      * @param dataAnnotationObjectBOList Data annotation object list
      */
-    public void handleDataResult(File file, String dataName, DataAnnotationObjectBO dataAnnotationObjectBO,
+    public void handleDataResult(UploadFileIndex fileIndex, File file, String dataName, DataAnnotationObjectBO dataAnnotationObjectBO,
                                 List<DataAnnotationObjectBO> dataAnnotationObjectBOList, StringBuilder errorBuilder) {
 
         // GT와 ROS 경로들 정의
@@ -752,10 +1279,10 @@ public class UploadDataUseCase {
             String folderName = source.getLeft();
             DataAnnotationObjectSourceTypeEnum sourceType = source.getRight();
 
-            var resultFile = FileUtil.loopFiles(file, 2, null).stream()
-                    .filter(fc -> fc.getName().toUpperCase().endsWith(JSON_SUFFIX)
-                            && dataName.equals(FileUtil.getPrefix(fc))
-                            && fc.getParentFile().getName().equalsIgnoreCase(folderName))
+            var resultFile = fileIndex.getDirectories(file).stream()
+                    .filter(dir -> dir.getName().equalsIgnoreCase(folderName))
+                    .flatMap(dir -> fileIndex.getFiles(dir, dataName).stream())
+                    .filter(fc -> fc.getName().toUpperCase().endsWith(JSON_SUFFIX))
                     .findFirst();
 
             if (resultFile.isPresent()) {
@@ -858,11 +1385,10 @@ public class UploadDataUseCase {
         });
         var fileBOS = uploadFileList(rootPath, files, dataInfoUploadBO);
         createUploadThumbnail(dataInfoUploadBO.getUserId(), fileBOS, rootPath);
-        fileBOS.forEach(fileBO -> {
-            if (fileBO.getName().toUpperCase().endsWith(PCD_SUFFIX)) {
-                handelPointCloudConvertRender(fileBO);
-            }
-        });
+        var pcdFileBOS = fileBOS.stream().filter(fileBO -> fileBO.getName().toUpperCase().endsWith(PCD_SUFFIX)).collect(Collectors.toList());
+        if (CollUtil.isNotEmpty(pcdFileBOS)) {
+            pointCloudConvertRenderUseCase.submit(pcdFileBOS);
+        }
         var fileIdMap = fileBOS.stream().collect(Collectors.toMap(FileBO::getPathHash, FileBO::getId));
         replaceFileId(nodeList, fileIdMap);
         nodeList.sort(Comparator.comparing(DataInfoBO.FileNodeBO::getName));
@@ -987,8 +1513,8 @@ public class UploadDataUseCase {
             var fileBO = FileBO.builder().name(file.getName()).originalName(file.getName()).bucketName(bucketName)
                     .size(file.length()).path(path).zipPath(zipPath).type(mimeType).build();
             if (Constants.IMAGE_DATA_TYPE.contains(mimeType)) {
-                var imageExtraInfoBO = ImageExtraInfoBO.builder().height(Img.from(file).getImg().getHeight(null))
-                        .width(Img.from(file).getImg().getWidth(null)).build();
+                var imageSize = ImageProbe.probe(file);
+                var imageExtraInfoBO = ImageExtraInfoBO.builder().height(imageSize.getHeight()).width(imageSize.getWidth()).build();
                 fileBO.setExtraInfo(JSONUtil.parseObj(imageExtraInfoBO));
             }
             fileBOS.add(fileBO);
@@ -997,166 +1523,105 @@ public class UploadDataUseCase {
     }
 
     /**
-     * Generate thumbnail and upload
+     * Generate thumbnail and upload. Each image is decoded once, the medium and small sizes are resized from the
+     * large one and the variants are encoded in parallel. At most thumbnailMaxImagesInFlight decoded
+     * images are held at a time, an image that fails to decode or encode is logged and skipped, the thumbnails
+     * of the other images are uploaded in one batch.
      *
      * @param userId   User id
      * @param fileBOS  File collection
      * @param rootPath Root path
      */
     private void createUploadThumbnail(Long userId, List<FileBO> fileBOS, String rootPath) {
-        try {
-            var thumbnailFileBOS = new ArrayList<FileBO>();
-            var files = new ArrayList<File>();
-            for (FileBO fileBO : fileBOS) {
-                var mimeType = fileBO.getType();
-                var savePath = tempPath + "/" + fileBO.getPath().substring(rootPath.length());
-                if (IMAGE_DATA_TYPE.contains(mimeType)) {
-                    var filePath = fileBO.getPath();
-                    var basePath = filePath.substring(0, filePath.lastIndexOf(SLANTING_BAR) + 1);
-                    var fileName = filePath.substring(filePath.lastIndexOf(SLANTING_BAR) + 1);
-                    var fileBOBuilder = FileBO.builder().name(fileBO.getName()).originalName(fileBO.getName())
-                            .bucketName(fileBO.getBucketName()).type(mimeType);
-                    var file = FileUtil.file(savePath);
-                    var suffix = FileUtil.getSuffix(fileName);
-                    suffix = suffix.equalsIgnoreCase(TIFF_SUFFIX) || suffix.equalsIgnoreCase(TIF_SUFFIX) ? "jpg" : suffix;
-                    var prefix = FileUtil.getPrefix(fileName);
-                    var baseSavePath = file.getParentFile().getAbsolutePath();
-                    var largeFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, large, suffix));
-                    var mediumFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, medium, suffix));
-                    var smallFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, small, suffix));
-                    Thumbnails.of(file).size(largeFileSize, largeFileSize).toFile(largeFile);
-                    Thumbnails.of(largeFile).size(mediumFileSize, mediumFileSize).toFile(mediumFile);
-                    Thumbnails.of(largeFile).size(smallFileSize, smallFileSize).toFile(smallFile);
-                    // large thumbnail
-                    var largePath = String.format("%s%s", basePath, FileUtil.getName(largeFile));
-                    var largeFileBO = fileBOBuilder.path(largePath).relation(LARGE_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
-                    // medium thumbnail
-                    var mediumPath = String.format("%s%s", basePath, FileUtil.getName(mediumFile));
-                    var mediumFileBO = fileBOBuilder.path(mediumPath).relation(MEDIUM_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
-                    // small thumbnail
-                    var smallPath = String.format("%s%s", basePath, FileUtil.getName(smallFile));
-                    var smallFileBO = fileBOBuilder.path(smallPath).relation(SMALL_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
-                    thumbnailFileBOS.addAll(ListUtil.toList(largeFileBO, mediumFileBO, smallFileBO));
-                    files.addAll(ListUtil.toList(largeFile, mediumFile, smallFile));
-                }
+        var thumbnailFileBOS = new ArrayList<FileBO>();
+        var files = new ArrayList<File>();
+        var inFlight = new ArrayDeque<ThumbnailTask>();
+        for (FileBO fileBO : fileBOS) {
+            var mimeType = fileBO.getType();
+            if (!IMAGE_DATA_TYPE.contains(mimeType)) {
+                continue;
             }
+            if (inFlight.size() >= Math.max(1, thumbnailMaxImagesInFlight)) {
+                collectThumbnail(inFlight.poll(), thumbnailFileBOS, files);
+            }
+            var savePath = tempPath + "/" + fileBO.getPath().substring(rootPath.length());
+            var filePath = fileBO.getPath();
+            var basePath = filePath.substring(0, filePath.lastIndexOf(SLANTING_BAR) + 1);
+            var fileName = filePath.substring(filePath.lastIndexOf(SLANTING_BAR) + 1);
+            var fileBOBuilder = FileBO.builder().name(fileBO.getName()).originalName(fileBO.getName())
+                    .bucketName(fileBO.getBucketName()).type(mimeType);
+            var file = FileUtil.file(savePath);
+            var suffix = FileUtil.getSuffix(fileName);
+            suffix = suffix.equalsIgnoreCase(TIFF_SUFFIX) || suffix.equalsIgnoreCase(TIF_SUFFIX) ? "jpg" : suffix;
+            var prefix = FileUtil.getPrefix(fileName);
+            var baseSavePath = file.getParentFile().getAbsolutePath();
+            var largeFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, large, suffix));
+            var mediumFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, medium, suffix));
+            var smallFile = FileUtil.file(baseSavePath, String.format("%s_%s.%s", prefix, small, suffix));
+            CompletableFuture<Void> encodeFuture;
             try {
-                minioService.uploadFileList(minioProp.getBucketName(), rootPath, tempPath, files);
+                // The only decode of the original, both smaller sizes are resized from the large one in memory so
+                // their dimensions round like the former thumbnails read back from the large file
+                var largeImage = Thumbnails.of(file).size(largeFileSize, largeFileSize).asBufferedImage();
+                var mediumImage = Thumbnails.of(largeImage).size(mediumFileSize, mediumFileSize).asBufferedImage();
+                var smallImage = Thumbnails.of(largeImage).size(smallFileSize, smallFileSize).asBufferedImage();
+                encodeFuture = CompletableFuture.allOf(encodeThumbnail(largeImage, largeFile),
+                        encodeThumbnail(mediumImage, mediumFile), encodeThumbnail(smallImage, smallFile));
             } catch (Exception e) {
-                log.error("Batch upload file error,filesPath:{}", JSONUtil.parseArray(files.stream().map(File::getAbsolutePath).collect(Collectors.toList())), e);
+                log.error("Create thumbnail error,file:{}", file.getAbsolutePath(), e);
+                continue;
             }
-            fileUseCase.saveBatchFile(userId, thumbnailFileBOS);
-        } catch (IOException e) {
-            log.error("Upload thumbnail error", e);
+            // large thumbnail
+            var largePath = String.format("%s%s", basePath, FileUtil.getName(largeFile));
+            var largeFileBO = fileBOBuilder.path(largePath).relation(LARGE_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
+            // medium thumbnail
+            var mediumPath = String.format("%s%s", basePath, FileUtil.getName(mediumFile));
+            var mediumFileBO = fileBOBuilder.path(mediumPath).relation(MEDIUM_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
+            // small thumbnail
+            var smallPath = String.format("%s%s", basePath, FileUtil.getName(smallFile));
+            var smallFileBO = fileBOBuilder.path(smallPath).relation(SMALL_THUMBTHUMBNAIL).relationId(fileBO.getId()).build();
+            inFlight.add(new ThumbnailTask(file, encodeFuture, ListUtil.toList(largeFileBO, mediumFileBO, smallFileBO),
+                    ListUtil.toList(largeFile, mediumFile, smallFile)));
         }
-    }
-
-    public void handelPointCloudConvertRender(FileBO pcdFileBO) {
-        // Translate DB path (with UUID) to MinIO path (without UUID)
-        String filePath = fileUseCase.translateOldPathToNew(pcdFileBO.getPath());
-        String basePath = "";
-        String fileName;
-        String binaryFileName = "";
-        String imageFileName = "";
-        if (filePath.contains(Constants.SLANTING_BAR)) {
-            basePath = filePath.substring(0, filePath.lastIndexOf(Constants.SLANTING_BAR) + 1);
-            fileName = filePath.substring(filePath.lastIndexOf(Constants.SLANTING_BAR) + 1);
-            binaryFileName = "binary-" + fileName;
-            imageFileName = "render-" + UUID.randomUUID() + ".png";
-        }
-
-        String binaryPath = String.format("%s%s", basePath, binaryFileName);
-        String imagePath = String.format("%s%s", basePath, imageFileName);
-        PresignedUrlBO binaryPreSignUrlBO;
-        PresignedUrlBO imagePreSignUrlBO;
-        try {
-            binaryPreSignUrlBO = minioService.generatePresignedUrl(pcdFileBO.getBucketName(), binaryPath, Boolean.FALSE);
-            imagePreSignUrlBO = minioService.generatePresignedUrl(pcdFileBO.getBucketName(), imagePath, Boolean.FALSE);
-
-        } catch (Throwable throwable) {
-            log.error("generate preSignUrl error!", throwable);
+        while (!inFlight.isEmpty()) {
+            collectThumbnail(inFlight.poll(), thumbnailFileBOS, files);
+        }
+        if (files.isEmpty()) {
             return;
         }
-        List<PointCloudCRRespDTO> pointCloudCRRespDTOS = callPointCloudConvertRender(pcdFileBO, binaryPreSignUrlBO, imagePreSignUrlBO);
-        if (CollUtil.isNotEmpty(pointCloudCRRespDTOS)) {
-            for (PointCloudCRRespDTO pointCloudCRRespDTO : pointCloudCRRespDTOS) {
-                if (pointCloudCRRespDTO.getCode() == 0) {
-                    FileBO binaryPcdFile = FileBO.builder().name(binaryFileName)
-                            .originalName(binaryFileName)
-                            .path(binaryPath)
-                            .type(pcdFileBO.getType())
-                            .size(pointCloudCRRespDTO.getBinaryPcdSize())
-                            .bucketName(pcdFileBO.getBucketName())
-                            .createdAt(OffsetDateTime.now())
-                            .createdBy(pcdFileBO.getCreatedBy())
-                            .relation(RelationEnum.BINARY)
-                            .relationId(pcdFileBO.getId())
-                            .pathHash(ByteUtil.bytesToLong(SecureUtil.md5().digest(binaryPath))).build();
-                    FileBO imageFile = FileBO.builder().name(imageFileName)
-                            .originalName(imageFileName)
-                            .path(imagePath)
-                            .type(FileUtil.getMimeType(imageFileName))
-                            .size(pointCloudCRRespDTO.getImageSize())
-                            .bucketName(pcdFileBO.getBucketName())
-                            .createdAt(OffsetDateTime.now())
-                            .createdBy(pcdFileBO.getCreatedBy())
-                            .relation(RelationEnum.POINT_CLOUD_RENDER_IMAGE)
-                            .relationId(pcdFileBO.getId())
-                            .pathHash(ByteUtil.bytesToLong(SecureUtil.md5().digest(imagePath)))
-                            .extraInfo(JSONUtil.parseObj(pointCloudCRRespDTO.getPointCloudRange())
-                                    .set("width", PC_RENDER_IMAGE_WIDTH)
-                                    .set("height", PC_RENDER_IMAGE_HEIGHT))
-                            .build();
-                    fileUseCase.saveBatchFile(pcdFileBO.getCreatedBy(), List.of(binaryPcdFile, imageFile));
-                }
-            }
+        try {
+            minioService.uploadFileList(minioProp.getBucketName(), rootPath, tempPath, files);
+        } catch (Exception e) {
+            log.error("Batch upload file error,filesPath:{}", JSONUtil.parseArray(files.stream().map(File::getAbsolutePath).collect(Collectors.toList())), e);
         }
+        fileUseCase.saveBatchFile(userId, thumbnailFileBOS);
     }
 
-    private List<PointCloudCRRespDTO> callPointCloudConvertRender(FileBO relationFileBO, PresignedUrlBO binaryPreSignUrlBO, PresignedUrlBO imagePreSignUrlBO) {
-        PointCloudCRReqDTO pointCloudCRReqDTO = PointCloudCRReqDTO.builder()
-                .data(List.of(buildPointCloutFileInfo(relationFileBO, binaryPreSignUrlBO, imagePreSignUrlBO)))
-                .type(1)
-                .renderParam(buildRenderParam())
-                .convertParam(ConvertParam.builder().extraFields(List.of("rgb")).build()).build();
-        ApiResult<List<PointCloudCRRespDTO>> apiResult = null;
-
-        StopWatch stopWatch = new StopWatch();
-        int count = 0;
-        while (count <= RETRY_COUNT && ObjectUtil.isNull(apiResult)) {
-            try {
-                stopWatch.start();
-                apiResult = pointCloudConvertRenderHttpCaller.callConvertRender(pointCloudCRReqDTO);
-                stopWatch.stop();
-                log.info("call pointCloudConvertRender took:{},req:{},resp:{}", stopWatch.getLastTaskTimeMillis(), JSONUtil.toJsonStr(pointCloudCRReqDTO), JSONUtil.toJsonStr(apiResult));
-                break;
-            } catch (Throwable throwable) {
-                if (stopWatch.isRunning()) {
-                    stopWatch.stop();
-                }
-                log.error("call pointCloudConvertRender service error! req:{}, resp:{}", JSONUtil.toJsonStr(pointCloudCRReqDTO), JSONUtil.toJsonStr(apiResult), throwable);
-            }
-            count++;
-        }
-        if (ObjectUtil.isNull(apiResult) || apiResult.getCode() != UsecaseCode.OK) {
-            return null;
+    /**
+     * Wait for the variants of an image, keep them if all of them were encoded, otherwise remove the written ones
+     */
+    private void collectThumbnail(ThumbnailTask task, List<FileBO> thumbnailFileBOS, List<File> files) {
+        try {
+            task.getEncodeFuture().join();
+            thumbnailFileBOS.addAll(task.getFileBOS());
+            files.addAll(task.getFiles());
+        } catch (CompletionException e) {
+            log.error("Encode thumbnail error,file:{}", task.getFile().getAbsolutePath(), e.getCause());
+            task.getFiles().forEach(FileUtil::del);
         }
-        return apiResult.getData();
     }
 
-    private PointCloudFileInfo buildPointCloutFileInfo(FileBO fileBO, PresignedUrlBO binaryPreSignUrlBO, PresignedUrlBO imagePreSignUrlBO) {
-        return PointCloudFileInfo.builder().pointCloudFile(fileBO.getInternalUrl())
-                .uploadBinaryPcdPath(binaryPreSignUrlBO.getPresignedUrl())
-                .uploadImagePath(imagePreSignUrlBO.getPresignedUrl())
-                .build();
-    }
-
-    private RenderParam buildRenderParam() {
-        return RenderParam.builder().colors(List.of(6313414L, 3640543L, 1886145L, 3402883L, 8385883L))
-                .zRange(null)
-                .width(PC_RENDER_IMAGE_WIDTH)
-                .height(PC_RENDER_IMAGE_HEIGHT)
-                .numStd(3).build();
+    /**
+     * Encode a thumbnail on the thumbnail pool, the format follows the suffix of the file
+     */
+    private CompletableFuture<Void> encodeThumbnail(BufferedImage image, File file) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Thumbnails.of(image).scale(1).toFile(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, thumbnailExecutorService);
     }
 
     private void verifyDataResult(DataImportResultBO dataImportResultBO, Long dataId, String dataName, StringBuilder errorBuilder) {
@@ -1207,7 +1672,7 @@ public class UploadDataUseCase {
             var existNames = existDataInfoList.stream().map(DataInfoBO::getName).collect(Collectors.toList());
             dataInfoBOList = dataInfoBOList.stream().filter(dataInfoBO -> !existNames.contains(dataInfoBO.getName())).collect(Collectors.toList());
             if (!errorBuilder.toString().contains("Duplicate")) {
-                errorBuilder.append("Duplicate data names;");
+                errorBuilder.append(DUPLICATE_DATA_NAMES);
             }
         }
         if (CollUtil.isEmpty(dataInfoBOList)) {
@@ -1220,7 +1685,7 @@ public class UploadDataUseCase {
         } catch (DuplicateKeyException e) {
             log.error("Duplicate data name", e);
             if (!errorBuilder.toString().contains("Duplicate")) {
-                errorBuilder.append("Duplicate data names;");
+                errorBuilder.append(DUPLICATE_DATA_NAMES);
             }
             return List.of();
         }
@@ -1302,4 +1767,20 @@ public class UploadDataUseCase {
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Thumbnails of an image being encoded
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class ThumbnailTask {
+
+        private final File file;
+
+        private final CompletableFuture<Void> encodeFuture;
+
+        private final List<FileBO> fileBOS;
+
+        private final List<File> files;
+    }
+}
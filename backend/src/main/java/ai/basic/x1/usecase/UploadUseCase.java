@@ -7,11 +7,21 @@ import ai.basic.x1.entity.enums.UploadStatusEnum;
 import ai.basic.x1.util.DecompressionFileUtils;
 import ai.basic.x1.util.DefaultConverter;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
 import cn.hutool.core.util.IdUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import ai.basic.x1.adapter.port.minio.MinioProp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +38,27 @@ public class UploadUseCase {
     @Autowired
     private MinioProp minioProp;
 
+    @Value("${upload.progress.flushInterval:1000}")
+    private long progressFlushInterval;
+
+    /**
+     * Parse progresses of the running uploads, written by the single flusher
+     */
+    private final Set<UploadProgress> runningProgresses = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService progressFlusher;
+
+    @PostConstruct
+    public void init() {
+        progressFlusher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("x1-upload-progress-", true));
+        progressFlusher.scheduleWithFixedDelay(this::flushProgresses, progressFlushInterval, progressFlushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        progressFlusher.shutdown();
+    }
+
     public UploadRecordBO createUploadRecord(String fileUrl, Long datasetId) {
         var serialNumber = IdUtil.getSnowflakeNextId();
     
@@ -106,6 +137,67 @@ public class UploadUseCase {
         uploadRecordDAO.updateById(uploadRecord);
     }
 
+    /**
+     * Start tracking the parse progress of an upload. The parse threads only count, the progress is written
+     * to the upload record at most once per flush interval until it is stopped.
+     *
+     * @param uploadRecordId Upload record ID
+     * @param userId         User who uploads, the flusher runs without a request context
+     * @param totalDataNum   Total data number, may grow while parsing
+     * @return Parse progress
+     */
+    public UploadProgress startParseProgress(Long uploadRecordId, Long userId, long totalDataNum) {
+        var uploadProgress = new UploadProgress(uploadRecordId, userId);
+        uploadProgress.setTotalDataNum(totalDataNum);
+        runningProgresses.add(uploadProgress);
+        return uploadProgress;
+    }
+
+    /**
+     * Stop writing the parse progress, the final status is written by the caller afterwards
+     *
+     * @param uploadProgress Parse progress
+     */
+    public void stopParseProgress(UploadProgress uploadProgress) {
+        runningProgresses.remove(uploadProgress);
+        // Wait for a flush in progress, so that it cannot overwrite the final status
+        synchronized (uploadProgress) {
+            uploadProgress.stopped = true;
+        }
+    }
+
+    private void flushProgresses() {
+        runningProgresses.forEach(uploadProgress -> {
+            try {
+                flushProgress(uploadProgress);
+            } catch (Exception e) {
+                log.error("Flush upload progress error,uploadRecordId:{}", uploadProgress.uploadRecordId, e);
+            }
+        });
+    }
+
+    private void flushProgress(UploadProgress uploadProgress) {
+        synchronized (uploadProgress) {
+            if (uploadProgress.stopped) {
+                return;
+            }
+            var parsedDataNum = uploadProgress.getParsedDataNum();
+            var totalDataNum = uploadProgress.getTotalDataNum();
+            if (parsedDataNum == uploadProgress.flushedParsedDataNum && totalDataNum == uploadProgress.flushedTotalDataNum) {
+                return;
+            }
+            var uploadRecord = UploadRecord.builder()
+                    .id(uploadProgress.uploadRecordId)
+                    .status(UploadStatusEnum.PARSING)
+                    .totalDataNum(totalDataNum)
+                    .parsedDataNum(parsedDataNum)
+                    .updatedBy(uploadProgress.userId).build();
+            uploadRecordDAO.updateById(uploadRecord);
+            uploadProgress.flushedParsedDataNum = parsedDataNum;
+            uploadProgress.flushedTotalDataNum = totalDataNum;
+        }
+    }
+
     /**
      * Query import records according to serial number
      *
@@ -118,4 +210,48 @@ public class UploadUseCase {
         var uploadRecordList = uploadRecordDAO.list(lambdaQueryWrapper);
         return DefaultConverter.convert(uploadRecordList, UploadRecordBO.class);
     }
+
+    /**
+     * Parse progress of an upload, counted by the parse threads without locking
+     */
+    public static class UploadProgress {
+
+        private final Long uploadRecordId;
+
+        private final Long userId;
+
+        private final LongAdder parsedDataNum = new LongAdder();
+
+        private volatile long totalDataNum;
+
+        /**
+         * Guarded by the progress, only accessed by the flusher and when stopping
+         */
+        private long flushedParsedDataNum = -1;
+
+        private long flushedTotalDataNum = -1;
+
+        private boolean stopped;
+
+        private UploadProgress(Long uploadRecordId, Long userId) {
+            this.uploadRecordId = uploadRecordId;
+            this.userId = userId;
+        }
+
+        public void addParsedDataNum(long num) {
+            parsedDataNum.add(num);
+        }
+
+        public long getParsedDataNum() {
+            return parsedDataNum.sum();
+        }
+
+        public void setTotalDataNum(long totalDataNum) {
+            this.totalDataNum = totalDataNum;
+        }
+
+        public long getTotalDataNum() {
+            return totalDataNum;
+        }
+    }
 }
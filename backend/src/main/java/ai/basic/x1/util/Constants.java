@@ -187,6 +187,12 @@ public interface Constants {
     String DATASET_MODEL_RUN_CONSUMER_GROUP = "dataset-model-group";
     String DATASET_MODEL_RUN_CONSUMER_NAME = "dataset-model-consumer";
 
+    String POINT_CLOUD_CONVERT_RENDER_STREAM_KEY = "ai:basic:xtreme1:pointCloud:convertRender";
+
+    String POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP = "point-cloud-convert-render-group";
+    String POINT_CLOUD_CONVERT_RENDER_CONSUMER_NAME = "point-cloud-convert-render-consumer";
+    String POINT_CLOUD_CONVERT_RENDER_RETRY_KEY = "ai:basic:xtreme1:pointCloud:convertRender:retry";
+
     String SIMILARITY_RESULT_PATH_FORMAT = "datasetSimilarity/result/%s";
     String SIMILARITY_SUBMIT_FILE_PATH_FORMAT = "datasetSimilarity/commit/%s";
 
@@ -0,0 +1,206 @@
+package ai.basic.x1.util;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copy plan of one (source class, target class) pair, used by {@link DefaultConverter}.
+ * The getters and setters with the same property name are resolved once to method handles and cached,
+ * so a conversion is a constructor call plus one getter/setter call per property. Values whose types
+ * differ between the two sides are converted element by element for lists and with hutool {@link Convert}
+ * otherwise, the same as the bean copy it replaces. Properties declared with the same type are assigned by reference.
+ */
+final class CopyPlan {
+
+    private static final Map<Class<?>, Map<Class<?>, CopyPlan>> PLAN_CACHE = new ConcurrentHashMap<>();
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Marks a pair that cannot be copied through method handles, e.g. a target without accessible no-arg constructor
+     */
+    private static final CopyPlan UNSUPPORTED = new CopyPlan(null, new PropertyCopy[0]);
+
+    private final MethodHandle constructor;
+
+    private final PropertyCopy[] properties;
+
+    private CopyPlan(MethodHandle constructor, PropertyCopy[] properties) {
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * Get the cached plan of a pair
+     *
+     * @param sourceClass Source class
+     * @param targetClass Target class
+     * @return Copy plan, null if the pair has to fall back to the hutool bean copy
+     */
+    static CopyPlan of(Class<?> sourceClass, Class<?> targetClass) {
+        var plan = PLAN_CACHE.computeIfAbsent(sourceClass, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(targetClass, k -> build(sourceClass, targetClass));
+        return plan == UNSUPPORTED ? null : plan;
+    }
+
+    Object newInstance() throws Throwable {
+        return (Object) constructor.invokeExact();
+    }
+
+    void copy(Object source, Object target) throws Throwable {
+        for (PropertyCopy property : properties) {
+            property.copy(source, target);
+        }
+    }
+
+    private static CopyPlan build(Class<?> sourceClass, Class<?> targetClass) {
+        if (Modifier.isAbstract(targetClass.getModifiers()) || Map.class.isAssignableFrom(targetClass)
+                || Collection.class.isAssignableFrom(targetClass)) {
+            return UNSUPPORTED;
+        }
+        try {
+            var constructor = LOOKUP.unreflectConstructor(targetClass.getDeclaredConstructor()).asType(CONSTRUCTOR_TYPE);
+            var getters = getters(sourceClass);
+            var properties = new ArrayList<PropertyCopy>();
+            for (Map.Entry<String, Method> setterEntry : setters(targetClass).entrySet()) {
+                var getter = getters.get(setterEntry.getKey());
+                if (getter == null) {
+                    continue;
+                }
+                var setter = setterEntry.getValue();
+                properties.add(new PropertyCopy(
+                        LOOKUP.unreflect(getter).asType(GETTER_TYPE),
+                        LOOKUP.unreflect(setter).asType(SETTER_TYPE),
+                        getter.getGenericReturnType(),
+                        setter.getGenericParameterTypes()[0],
+                        setter.getParameterTypes()[0]));
+            }
+            return new CopyPlan(constructor, properties.toArray(new PropertyCopy[0]));
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static Map<String, Method> getters(Class<?> clazz) {
+        var getters = new HashMap<String, Method>();
+        for (Method method : clazz.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                    || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            var name = method.getName();
+            if (name.startsWith("get") && name.length() > 3) {
+                getters.putIfAbsent(StrUtil.lowerFirst(name.substring(3)), method);
+            } else if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                getters.putIfAbsent(StrUtil.lowerFirst(name.substring(2)), method);
+            }
+        }
+        return getters;
+    }
+
+    private static Map<String, Method> setters(Class<?> clazz) {
+        // Any return type is accepted so that chained setters are copied as well
+        var setters = new HashMap<String, Method>();
+        for (Method method : clazz.getMethods()) {
+            var name = method.getName();
+            if (!Modifier.isStatic(method.getModifiers()) && method.getParameterCount() == 1
+                    && name.startsWith("set") && name.length() > 3) {
+                setters.putIfAbsent(StrUtil.lowerFirst(name.substring(3)), method);
+            }
+        }
+        return setters;
+    }
+
+    private static final class PropertyCopy {
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private final Type targetType;
+
+        private final Class<?> targetClass;
+
+        private final boolean primitive;
+
+        /**
+         * Same declared type on both sides, the value is assigned without any check
+         */
+        private final boolean direct;
+
+        private PropertyCopy(MethodHandle getter, MethodHandle setter, Type sourceType, Type targetType, Class<?> targetClass) {
+            this.getter = getter;
+            this.setter = setter;
+            this.targetType = targetType;
+            this.targetClass = MethodType.methodType(targetClass).wrap().returnType();
+            this.primitive = targetClass.isPrimitive();
+            this.direct = sourceType.equals(targetType);
+        }
+
+        private void copy(Object source, Object target) throws Throwable {
+            var value = (Object) getter.invokeExact(source);
+            if (value == null) {
+                if (!primitive) {
+                    setter.invokeExact(target, (Object) null);
+                }
+                return;
+            }
+            if (!direct) {
+                value = convertValue(value);
+            }
+            setter.invokeExact(target, value);
+        }
+
+        private Object convertValue(Object value) {
+            if (targetType instanceof ParameterizedType) {
+                var parameterizedType = (ParameterizedType) targetType;
+                var elementType = parameterizedType.getActualTypeArguments()[0];
+                if (parameterizedType.getRawType() == List.class && value instanceof List && elementType instanceof Class) {
+                    return convertList((List<?>) value, (Class<?>) elementType);
+                }
+            } else if (targetClass.isInstance(value)) {
+                return value;
+            }
+            return Convert.convertWithCheck(targetType, value, null, false);
+        }
+
+        private Object convertList(List<?> list, Class<?> elementClass) {
+            var needConvert = list.stream().anyMatch(element -> element != null && !elementClass.isInstance(element));
+            if (!needConvert) {
+                return list;
+            }
+            var result = new ArrayList<>(list.size());
+            for (Object element : list) {
+                if (element == null || elementClass.isInstance(element)) {
+                    result.add(element);
+                } else if (element instanceof Map || elementClass.isEnum() || elementClass.getName().startsWith("java.")) {
+                    result.add(Convert.convertWithCheck(elementClass, element, null, false));
+                } else {
+                    result.add(DefaultConverter.convert(element, elementClass));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ai.basic.x1.util;
+
+import ai.basic.x1.entity.DataResultObjectExportBO;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts the class attributes of an annotation object to the exported object. The fields are read
+ * straight from the attribute json instead of a reflective bean copy, this runs once per object of an export.
+ */
+public class DataResultObjectExportConverter {
+
+    private static final String[] CONTOUR_KEYS = {"pointN", "size3D", "center3D", "rotation3D"};
+
+    /**
+     * Copy the attributes that share a name with {@link DataResultObjectExportBO}
+     *
+     * @param classAttributes Object class attributes
+     * @return Export object
+     */
+    public static DataResultObjectExportBO convert(JSONObject classAttributes) {
+        var exportBO = new DataResultObjectExportBO();
+        if (classAttributes == null) {
+            return exportBO;
+        }
+        exportBO.setId(classAttributes.getStr("id"));
+        exportBO.setType(classAttributes.getStr("type"));
+        exportBO.setClassId(classAttributes.getLong("classId"));
+        exportBO.setClassName(classAttributes.getStr("className"));
+        exportBO.setTrackId(classAttributes.getStr("trackId"));
+        exportBO.setTrackName(classAttributes.getStr("trackName"));
+        exportBO.setClassValues(classAttributes.getJSONArray("classValues"));
+        exportBO.setContour(classAttributes.getJSONObject("contour"));
+        exportBO.setModelConfidence(classAttributes.getBigDecimal("modelConfidence"));
+        exportBO.setModelClass(classAttributes.getStr("modelClass"));
+        return exportBO;
+    }
+
+    /**
+     * Convert an object of a result export, keeping only the geometry of the contour and resolving
+     * the model confidence and class from the model output keys
+     *
+     * @param classAttributes Object class attributes
+     * @return Export object
+     */
+    public static DataResultObjectExportBO convertResult(JSONObject classAttributes) {
+        var exportBO = convert(classAttributes);
+        if (classAttributes == null) {
+            return exportBO;
+        }
+        exportBO.setContour(convertContour(classAttributes.getJSONObject("contour")));
+
+        var confidence = classAttributes.get("confidence");
+        if (confidence != null) {
+            exportBO.setModelConfidence(toBigDecimal(confidence));
+        }
+
+        var modelClassName = classAttributes.get("className");
+        if (modelClassName == null) {
+            modelClassName = classAttributes.get("modelClass");
+        }
+        var modelClass = modelClassName != null ? modelClassName.toString() : null;
+        if (modelClass != null) {
+            if (modelClass.contains("Car")) {
+                exportBO.setClassId(1L);
+            } else if (modelClass.contains("Pedestrian")) {
+                exportBO.setClassId(2L);
+            }
+        }
+        exportBO.setClassName(modelClass);
+        return exportBO;
+    }
+
+    private static JSONObject convertContour(JSONObject contourAttributes) {
+        var contour = new JSONObject();
+        if (contourAttributes == null) {
+            contour.put("points", new JSONArray());
+            return contour;
+        }
+        for (String key : CONTOUR_KEYS) {
+            var value = contourAttributes.get(key);
+            if (value != null) {
+                contour.put(key, value);
+            }
+        }
+        var points = contourAttributes.get("points");
+        contour.put("points", points != null ? points : new JSONArray());
+        return contour;
+    }
+
+    private static BigDecimal toBigDecimal(Object confidence) {
+        if (confidence instanceof BigDecimal) {
+            return (BigDecimal) confidence;
+        } else if (confidence instanceof Number) {
+            return BigDecimal.valueOf(((Number) confidence).doubleValue());
+        } else if (confidence instanceof String) {
+            return new BigDecimal((String) confidence);
+        }
+        return BigDecimal.ZERO;
+    }
+}
@@ -2,10 +2,12 @@ package ai.basic.x1.util;
 
 import ai.basic.x1.usecase.exception.UsecaseException;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
@@ -15,6 +17,13 @@ import org.springframework.http.HttpStatus;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static ai.basic.x1.entity.enums.UploadStatusEnum.FAILED;
 import static ai.basic.x1.usecase.exception.UsecaseCode.DATASET_DATA_FILE_URL_ERROR;
@@ -29,6 +38,11 @@ import static cn.hutool.core.util.CharsetUtil.UTF_8;
 @Slf4j
 public class DecompressionFileUtils {
 
+    /**
+     * Entries of a zip file written at the same time when the caller does not bound them
+     */
+    private static final int DEFAULT_MAX_ENTRIES_IN_FLIGHT = 4;
+
     /**
      * Unzip the zip file
      *
@@ -36,6 +50,26 @@ public class DecompressionFileUtils {
      * @param unZipPath The storage path of the generated files after decompression
      */
     public static void zipDecompress(String filePath, String unZipPath) throws IOException {
+        zipDecompress(filePath, unZipPath, Runnable::run, 1, null, null).join();
+    }
+
+    /**
+     * Unzip the zip file, the entries are written by the workers of the executor. ZipFile reads the entries
+     * from the central directory, so the entries can be read in parallel and the files of a scene are known
+     * before any of them is written. Only maxInFlight workers are submitted, they take the entries scene by
+     * scene, so the method returns at once and the first scenes are ready while the rest is still written.
+     *
+     * @param filePath           File path
+     * @param unZipPath          The storage path of the generated files after decompression
+     * @param executor           Executor writing the entries
+     * @param maxInFlight        Maximum number of entries written at the same time
+     * @param sceneDirPredicate  Matches the directory names whose parent directory is a scene, null if no scene event is needed
+     * @param sceneReadyListener Called with the scene directory once all files of the scene are written
+     * @return Future completed when all entries are written and the zip file is deleted
+     */
+    public static CompletableFuture<Void> zipDecompress(String filePath, String unZipPath, Executor executor, int maxInFlight,
+                                                        Predicate<String> sceneDirPredicate,
+                                                        Consumer<File> sceneReadyListener) throws IOException {
         var zfile = FileUtil.file(filePath);
         ZipFile zipFile;
         try {
@@ -43,29 +77,101 @@ public class DecompressionFileUtils {
         } catch (IOException e) {
             zipFile = new ZipFile(zfile);
         }
+        var fileEntries = new ArrayList<ZipArchiveEntry>();
         for (var enumeration = zipFile.getEntries(); enumeration.hasMoreElements(); ) {
             var zae = enumeration.nextElement();
             var dir = unZipPath + File.separator + zae.getName();
             if (dir.contains(MACOSX)) {
                 continue;
             }
-            log.info("Decompressing......{}", dir);
-            var file = new File(dir);
             if (zae.isDirectory()) {
-                file.mkdir();
+                FileUtil.mkdir(dir);
                 continue;
             }
-            FileUtil.mkParentDirs(file);
-            //write file
-            try (var zis = zipFile.getInputStream(zae);
-                 var fos = new FileOutputStream(file);
-                 var bos = new BufferedOutputStream(fos)) {
-                IOUtils.copy(zis, bos);
-            } catch (IOException e) {
-                log.error(e.getMessage());
+            fileEntries.add(zae);
+        }
+        var sceneMap = groupByScene(fileEntries, sceneDirPredicate);
+        var remainingMap = new HashMap<String, AtomicInteger>(sceneMap.size());
+        var pendingEntries = new ConcurrentLinkedQueue<Map.Entry<String, ZipArchiveEntry>>();
+        sceneMap.forEach((scenePath, entries) -> {
+            remainingMap.put(scenePath, new AtomicInteger(entries.size()));
+            entries.forEach(zae -> pendingEntries.add(new AbstractMap.SimpleImmutableEntry<>(scenePath, zae)));
+        });
+
+        var archive = zipFile;
+        var workers = new CompletableFuture[Math.min(Math.max(maxInFlight, 1), pendingEntries.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                Map.Entry<String, ZipArchiveEntry> pendingEntry;
+                while ((pendingEntry = pendingEntries.poll()) != null) {
+                    var scenePath = pendingEntry.getKey();
+                    try {
+                        writeZipEntry(archive, pendingEntry.getValue(), unZipPath);
+                    } finally {
+                        if (scenePath != null && sceneReadyListener != null
+                                && remainingMap.get(scenePath).decrementAndGet() == 0) {
+                            sceneReadyListener.accept(FileUtil.file(unZipPath, scenePath));
+                        }
+                    }
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(workers).whenComplete((v, e) -> {
+            IOUtils.closeQuietly(archive);
+            zfile.delete();
+        });
+    }
+
+    /**
+     * Group the file entries by the scene directory they belong to, entries outside any scene are grouped under null
+     */
+    static Map<String, List<ZipArchiveEntry>> groupByScene(List<ZipArchiveEntry> fileEntries,
+                                                           Predicate<String> sceneDirPredicate) {
+        var sceneMap = new LinkedHashMap<String, List<ZipArchiveEntry>>();
+        if (sceneDirPredicate == null) {
+            sceneMap.put(null, fileEntries);
+            return sceneMap;
+        }
+        var scenePaths = new HashSet<String>();
+        for (var zae : fileEntries) {
+            var names = StrUtil.split(zae.getName(), SLANTING_BAR);
+            for (int i = 0; i < names.size() - 1; i++) {
+                if (sceneDirPredicate.test(names.get(i).toLowerCase().trim())) {
+                    scenePaths.add(String.join(SLANTING_BAR, names.subList(0, i)));
+                }
+            }
+        }
+        for (var zae : fileEntries) {
+            sceneMap.computeIfAbsent(findScenePath(zae.getName(), scenePaths), k -> new ArrayList<>()).add(zae);
+        }
+        return sceneMap;
+    }
+
+    /**
+     * The deepest parent directory of the entry that is a scene, looked up directory by directory from the entry upwards
+     */
+    private static String findScenePath(String entryName, Set<String> scenePaths) {
+        for (int end = entryName.lastIndexOf(SLANTING_BAR); end > 0; end = entryName.lastIndexOf(SLANTING_BAR, end - 1)) {
+            var path = entryName.substring(0, end);
+            if (scenePaths.contains(path)) {
+                return path;
             }
         }
-        zfile.delete();
+        return scenePaths.contains("") ? "" : null;
+    }
+
+    private static void writeZipEntry(ZipFile zipFile, ZipArchiveEntry zae, String unZipPath) {
+        var file = new File(unZipPath + File.separator + zae.getName());
+        log.debug("Decompressing......{}", file);
+        FileUtil.mkParentDirs(file);
+        //write file
+        try (var zis = zipFile.getInputStream(zae);
+             var fos = new FileOutputStream(file);
+             var bos = new BufferedOutputStream(fos)) {
+            IOUtils.copy(zis, bos);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
     }
 
     /**
@@ -83,7 +189,7 @@ public class DecompressionFileUtils {
                     continue;
                 }
                 var file = new File(dir);
-                log.info("Decompressing......{}", dir);
+                log.debug("Decompressing......{}", dir);
                 if (nte.isDirectory()) {
                     file.mkdirs();
                 } else {
@@ -102,6 +208,17 @@ public class DecompressionFileUtils {
     }
 
     public static void decompress(String filePath, String decompressPath) throws IOException {
+        decompress(filePath, decompressPath, Runnable::run);
+    }
+
+    /**
+     * Decompress the file, zip entries are written in parallel by the executor, tar entries are read in order
+     *
+     * @param filePath       File path
+     * @param decompressPath The storage path of the decompressed files
+     * @param executor       Executor writing the zip entries
+     */
+    public static void decompress(String filePath, String decompressPath, Executor executor) throws IOException {
         String fileType = filePath.toUpperCase();
         if (fileType.endsWith(TAR)) {
             // Decompressed .TAR package The .TAR package is read with a normal FileInputStream stream
@@ -114,7 +231,7 @@ public class DecompressionFileUtils {
             tarDecompress(new BZip2CompressorInputStream(new FileInputStream(filePath)), decompressPath);
         } else if (fileType.endsWith(ZIP)) {
             // Decompressed .ZIP package
-            zipDecompress(filePath, decompressPath);
+            zipDecompress(filePath, decompressPath, executor, DEFAULT_MAX_ENTRIES_IN_FLIGHT, null, null).join();
         } else {
             throw new UsecaseException("The decompression of files in this format is not currently supported");
         }
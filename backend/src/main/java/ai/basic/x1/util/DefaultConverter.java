@@ -5,10 +5,9 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjectUtil;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -95,31 +94,14 @@ public class DefaultConverter {
      * @return
      */
     public static <S, D> List<D> convert(List<S> sourceList, Class<D> target) {
-        try {
-            if (CollUtil.isEmpty(sourceList)) {
-                return ObjectUtil.isNull(sourceList) ? null : new ArrayList<>();
-            } else {
-                List<D> list = new ArrayList();
-                Iterator iterator = sourceList.iterator();
-
-                while (iterator.hasNext()) {
-                    S source = (S) iterator.next();
-                    D dest = target.getDeclaredConstructor().newInstance();
-                    BeanUtil.copyProperties(source, dest);
-                    list.add(dest);
-                }
-
-                return list;
-            }
-        } catch (InstantiationException e) {
-            throw new RuntimeException("Cast " + sourceList.getClass() + " to " + target + " error.", e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Cast " + sourceList.getClass() + " to " + target + " error.", e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException("Cast " + sourceList.getClass() + " to " + target + " error.", e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("Cast " + sourceList.getClass() + " to " + target + " error.", e);
+        if (CollUtil.isEmpty(sourceList)) {
+            return ObjectUtil.isNull(sourceList) ? null : new ArrayList<>();
+        }
+        List<D> list = new ArrayList<>(sourceList.size());
+        for (S source : sourceList) {
+            list.add(copy(source, target, sourceList.getClass()));
         }
+        return list;
     }
 
     /**
@@ -132,21 +114,30 @@ public class DefaultConverter {
      * @return
      */
     public static <S, D> D convert(S source, Class<D> target) {
+        if (ObjectUtil.isEmpty(source)) {
+            return null;
+        }
+        return copy(source, target, source.getClass());
+    }
+
+    /**
+     * Copy through the cached {@link CopyPlan} of the pair, maps and pairs without a plan use the hutool bean copy
+     */
+    private static <S, D> D copy(S source, Class<D> target, Class<?> errorSourceClass) {
         try {
-            if (ObjectUtil.isEmpty(source)) {
-                return null;
+            var plan = source == null || source instanceof Map ? null : CopyPlan.of(source.getClass(), target);
+            if (plan == null) {
+                D dest = target.getDeclaredConstructor().newInstance();
+                BeanUtil.copyProperties(source, dest);
+                return dest;
             }
-            D dest = target.getDeclaredConstructor().newInstance();
-            BeanUtil.copyProperties(source, dest);
+            D dest = target.cast(plan.newInstance());
+            plan.copy(source, dest);
             return dest;
-        } catch (InstantiationException e) {
-            throw new RuntimeException("Cast " + source.getClass() + " to " + target + " error.", e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Cast " + source.getClass() + " to " + target + " error.", e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException("Cast " + source.getClass() + " to " + target + " error.", e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException("Cast " + source.getClass() + " to " + target + " error.", e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Cast " + errorSourceClass + " to " + target + " error.", e);
         }
     }
 }
@@ -0,0 +1,65 @@
+package ai.basic.x1.util;
+
+import cn.hutool.core.img.Img;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads the width and height of an image from its header through an {@link javax.imageio.ImageReader},
+ * without decoding the raster. Formats without a header reader fall back to a full decode.
+ */
+@Slf4j
+public class ImageProbe {
+
+    /**
+     * Get the size of an image
+     *
+     * @param file Image file
+     * @return Image size
+     */
+    public static ImageSize probe(File file) {
+        var imageSize = readHeader(file);
+        if (imageSize == null) {
+            var image = Img.from(file).getImg();
+            imageSize = new ImageSize(image.getWidth(null), image.getHeight(null));
+        }
+        return imageSize;
+    }
+
+    private static ImageSize readHeader(File file) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            var readers = ImageIO.getImageReaders(input);
+            while (readers.hasNext()) {
+                var reader = readers.next();
+                try {
+                    input.seek(0);
+                    reader.setInput(input, true, true);
+                    return new ImageSize(reader.getWidth(0), reader.getHeight(0));
+                } catch (IOException e) {
+                    log.debug("Read image header error, file:{}, reader:{}", file, reader.getClass().getName(), e);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Open image error, file:{}", file, e);
+        }
+        return null;
+    }
+
+    @Value
+    public static class ImageSize {
+
+        int width;
+
+        int height;
+    }
+}
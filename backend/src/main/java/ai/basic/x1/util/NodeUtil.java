@@ -0,0 +1,25 @@
+package ai.basic.x1.util;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RuntimeUtil;
+
+/**
+ * Identity of this service instance, used to own jobs and stream consumers among several nodes
+ */
+public class NodeUtil {
+
+    private static final String NODE_ID = NetUtil.getLocalHostName() + "-" + RuntimeUtil.getPid() + "-" + IdUtil.fastSimpleUUID().substring(0, 8);
+
+    private NodeUtil() {
+    }
+
+    /**
+     * Get the id of this node, unique per process and stable while it runs
+     *
+     * @return Node id
+     */
+    public static String getNodeId() {
+        return NODE_ID;
+    }
+}
@@ -38,6 +38,17 @@ public class TarUtil {
         return tarGzFile;
     }
 
+    /**
+     * 메모리상의 내용을 TAR 엔트리 하나로 추가 (스트리밍 아카이빙용)
+     */
+    public static void putEntry(TarArchiveOutputStream tarOut, String entryName, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(entryName);
+        entry.setSize(content.length);
+        tarOut.putArchiveEntry(entry);
+        tarOut.write(content);
+        tarOut.closeArchiveEntry();
+    }
+
     private static void addFilesToTar(TarArchiveOutputStream tarOut, File file, String base) throws IOException {
         String entryName = base + file.getName();
         TarArchiveEntry entry = new TarArchiveEntry(file, entryName);
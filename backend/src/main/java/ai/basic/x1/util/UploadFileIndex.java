@@ -0,0 +1,118 @@
+package ai.basic.x1.util;
+
+import cn.hutool.core.io.IORuntimeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable index of an extracted upload folder, built with one walk of the folder.
+ * The parse stages look up the sub folders of a folder and the files of a folder by their name
+ * without listing the folder again.
+ */
+public final class UploadFileIndex {
+
+    private final List<File> directories;
+
+    private final Map<Path, List<File>> directoriesByParent;
+
+    /**
+     * Files of a folder by their name without extension
+     */
+    private final Map<Path, Map<String, List<File>>> filesByParent;
+
+    private UploadFileIndex(List<File> directories, Map<Path, List<File>> directoriesByParent,
+                            Map<Path, Map<String, List<File>>> filesByParent) {
+        this.directories = directories;
+        this.directoriesByParent = directoriesByParent;
+        this.filesByParent = filesByParent;
+    }
+
+    /**
+     * Index a folder and all its sub folders
+     *
+     * @param root Folder
+     * @return Index of the folder
+     */
+    public static UploadFileIndex build(File root) {
+        var rootPath = normalize(root);
+        var directories = new ArrayList<File>();
+        var directoriesByParent = new HashMap<Path, List<File>>();
+        var filesByParent = new HashMap<Path, Map<String, List<File>>>();
+        try (var paths = Files.walk(rootPath)) {
+            paths.filter(path -> !path.equals(rootPath)).forEach(path -> {
+                var file = path.toFile();
+                var parent = path.getParent();
+                if (Files.isDirectory(path)) {
+                    directories.add(file);
+                    directoriesByParent.computeIfAbsent(parent, key -> new ArrayList<>()).add(file);
+                } else {
+                    filesByParent.computeIfAbsent(parent, key -> new LinkedHashMap<>())
+                            .computeIfAbsent(getName(file), key -> new ArrayList<>(1)).add(file);
+                }
+            });
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+        directoriesByParent.replaceAll((parent, files) -> List.copyOf(files));
+        filesByParent.replaceAll((parent, fileMap) -> {
+            fileMap.replaceAll((name, files) -> List.copyOf(files));
+            return Collections.unmodifiableMap(fileMap);
+        });
+        return new UploadFileIndex(List.copyOf(directories), Map.copyOf(directoriesByParent), Map.copyOf(filesByParent));
+    }
+
+    /**
+     * All folders below the indexed folder
+     */
+    public List<File> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Sub folders of a folder
+     *
+     * @param parent Folder
+     */
+    public List<File> getDirectories(File parent) {
+        return directoriesByParent.getOrDefault(normalize(parent), List.of());
+    }
+
+    /**
+     * Files of a folder
+     *
+     * @param parent Folder
+     */
+    public List<File> getFiles(File parent) {
+        return filesByParent.getOrDefault(normalize(parent), Map.of()).values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Files of a folder with the name, usually the data name
+     *
+     * @param parent Folder
+     * @param name   File name without extension
+     */
+    public List<File> getFiles(File parent, String name) {
+        return filesByParent.getOrDefault(normalize(parent), Map.of()).getOrDefault(name, List.of());
+    }
+
+    /**
+     * File name without the last extension, the same as the data name of the file
+     */
+    private static String getName(File file) {
+        var fileName = file.getName();
+        var index = fileName.lastIndexOf(".");
+        return index < 0 ? fileName : fileName.substring(0, index);
+    }
+
+    private static Path normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+}
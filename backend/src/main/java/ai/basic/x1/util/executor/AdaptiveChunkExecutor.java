@@ -0,0 +1,110 @@
+package ai.basic.x1.util.executor;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs the items of several lists in chunks on an executor, with at most maxConcurrency chunks of all lists running.
+ * A chunk is cut when a running chunk completes, its size follows the measured cost per item so that a chunk takes
+ * about the target time, and is at most the remaining items divided by the concurrency, so that a list with few items
+ * is still spread over the threads and the last chunks of a large list get smaller.
+ * <p>
+ * Lists are submitted and awaited from one thread, the submitter blocks while all chunks are running.
+ */
+public class AdaptiveChunkExecutor {
+
+    /**
+     * Weight of the latest chunk in the average cost per item
+     */
+    private static final double COST_WEIGHT = 0.3;
+
+    private final ExecutorService executorService;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final long targetChunkNanos;
+
+    private final int initialChunkSize;
+
+    private final int maxChunkSize;
+
+    /**
+     * Average nanos per item of the completed chunks, negative before the first one
+     */
+    private double itemNanos = -1;
+
+    /**
+     * @param executorService   Executor of the chunks
+     * @param maxConcurrency    Running chunks of all lists
+     * @param targetChunkMillis Expected duration of a chunk
+     * @param initialChunkSize  Chunk size before the cost is measured
+     * @param maxChunkSize      Largest chunk size
+     */
+    public AdaptiveChunkExecutor(ExecutorService executorService, int maxConcurrency, long targetChunkMillis,
+                                 int initialChunkSize, int maxChunkSize) {
+        this.executorService = executorService;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.targetChunkNanos = TimeUnit.MILLISECONDS.toNanos(targetChunkMillis);
+        this.maxChunkSize = Math.max(1, maxChunkSize);
+        this.initialChunkSize = Math.min(Math.max(1, initialChunkSize), this.maxChunkSize);
+    }
+
+    /**
+     * Run the items of a list in chunks, returns once the last chunk is started
+     *
+     * @param items         Items
+     * @param chunkConsumer Handles a chunk, called on the executor
+     * @param <T>           Item type
+     */
+    public <T> void submit(List<T> items, Consumer<List<T>> chunkConsumer) {
+        var from = 0;
+        while (from < items.size()) {
+            permits.acquireUninterruptibly();
+            var to = from + nextChunkSize(items.size() - from);
+            var chunk = items.subList(from, to);
+            try {
+                executorService.execute(() -> run(chunk, chunkConsumer));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Wait until the chunks of all submitted lists are completed
+     */
+    public void await() {
+        permits.acquireUninterruptibly(maxConcurrency);
+        permits.release(maxConcurrency);
+    }
+
+    private <T> void run(List<T> chunk, Consumer<List<T>> chunkConsumer) {
+        var start = System.nanoTime();
+        try {
+            chunkConsumer.accept(chunk);
+        } finally {
+            record(chunk.size(), System.nanoTime() - start);
+            permits.release();
+        }
+    }
+
+    private synchronized void record(int size, long nanos) {
+        var sample = (double) nanos / size;
+        itemNanos = itemNanos < 0 ? sample : COST_WEIGHT * sample + (1 - COST_WEIGHT) * itemNanos;
+    }
+
+    private synchronized int nextChunkSize(int remaining) {
+        var chunkSize = itemNanos < 0 ? initialChunkSize : (int) Math.min(maxChunkSize, targetChunkNanos / Math.max(itemNanos, 1));
+        var share = (remaining + maxConcurrency - 1) / maxConcurrency;
+        return Math.max(1, Math.min(Math.min(chunkSize, share), remaining));
+    }
+}
@@ -0,0 +1,79 @@
+package ai.basic.x1.util.executor;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thread pools of the use cases, keyed by pool name
+ */
+@Data
+@ConfigurationProperties(prefix = "executor")
+public class ExecutorProp {
+
+    private Map<String, Pool> pools = new HashMap<>();
+
+    /**
+     * Run the pools marked virtual on virtual threads, needs a JDK with virtual threads (21+) at runtime
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Concurrent accesses per resource (minio, http, db) in virtual thread mode, where the pool sizes no longer bound them
+     */
+    private Map<String, Integer> limits = new HashMap<>();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Core threads, the number of available processors if not set
+         */
+        private Integer coreSize;
+
+        /**
+         * Max threads, the core size if not set
+         */
+        private Integer maxSize;
+
+        /**
+         * Capacity of the task queue
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Idle time before a thread above the core size is stopped
+         */
+        private long keepAliveSeconds = 60;
+
+        /**
+         * What happens to a task when the queue is full
+         */
+        private RejectPolicy rejectPolicy = RejectPolicy.ABORT;
+
+        /**
+         * Run the tasks on virtual threads when virtual thread mode is enabled, the other settings are then ignored
+         */
+        private boolean virtual = false;
+    }
+
+    public enum RejectPolicy {
+
+        /**
+         * Throw RejectedExecutionException to the submitter
+         */
+        ABORT,
+
+        /**
+         * Run the task in the submitting thread
+         */
+        CALLER_RUNS,
+
+        /**
+         * Block the submitting thread until the queue has room
+         */
+        BLOCK
+    }
+}
@@ -0,0 +1,200 @@
+package ai.basic.x1.util.executor;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.alibaba.ttl.threadpool.TtlExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Named thread pools of the use cases, configured by executor.pools in application.yml.
+ * The pools have bounded queues, transmit the TransmittableThreadLocal context of the submitter and
+ * publish executor.* meters (queued, active, pool size, task and idle time) tagged with the pool name.
+ * <p>
+ * With executor.virtual-threads the pools marked virtual start a virtual thread per task instead, and the
+ * blocking minio, http and db accesses of those tasks are capped by {@link #acquire(String)}.
+ */
+@Slf4j
+public class ExecutorRegistry implements DisposableBean {
+
+    public static final String UPLOAD = "upload";
+
+    public static final String UPLOAD_PARSE = "upload-parse";
+
+    public static final String UPLOAD_DECOMPRESS = "upload-decompress";
+
+    public static final String UPLOAD_THUMBNAIL = "upload-thumbnail";
+
+    public static final String EXPORT = "export";
+
+    public static final String EXPORT_FETCH = "export-fetch";
+
+    public static final String EXPORT_SERIALIZE = "export-serialize";
+
+    public static final String MODEL = "model";
+
+    public static final String DATASET = "dataset";
+
+    public static final String DATA_INFO = "data-info";
+
+    public static final String MINIO_DELETE = "minio-delete";
+
+    public static final String POINT_CLOUD_RENDER = "point-cloud-render";
+
+    public static final String MINIO = "minio";
+
+    public static final String HTTP = "http";
+
+    public static final String DB = "db";
+
+    private static final Permit NO_LIMIT = () -> {
+    };
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, looked up at runtime so that the code still compiles for Java 11
+     */
+    private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private final ExecutorProp executorProp;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean virtualThreads;
+
+    private final Map<String, ExecutorService> pools = new ConcurrentHashMap<>();
+
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    private final Map<String, Semaphore> limits = new ConcurrentHashMap<>();
+
+    public ExecutorRegistry(ExecutorProp executorProp, MeterRegistry meterRegistry) {
+        this.executorProp = executorProp;
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = executorProp.isVirtualThreads() && NEW_VIRTUAL_THREAD_EXECUTOR != null;
+        if (executorProp.isVirtualThreads() && !virtualThreads) {
+            log.warn("Virtual threads are not supported by java {}, the pools use platform threads", Runtime.version());
+        }
+    }
+
+    /**
+     * Get the pool, created on first use
+     *
+     * @param name Pool name
+     * @return Executor service
+     */
+    public ExecutorService get(String name) {
+        return executors.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Take a permit of a resource before accessing it, to be closed after the access. Only limited in
+     * virtual thread mode, the platform pools already bound the concurrent accesses.
+     *
+     * @param resource Resource name, {@link #MINIO}, {@link #HTTP} or {@link #DB}
+     * @return Permit
+     */
+    public Permit acquire(String resource) {
+        var permits = executorProp.getLimits().get(resource);
+        if (!virtualThreads || permits == null) {
+            return NO_LIMIT;
+        }
+        var semaphore = limits.computeIfAbsent(resource, k -> {
+            var limit = new Semaphore(permits, true);
+            meterRegistry.gauge("executor.limit.available", Tags.of("resource", resource), limit, Semaphore::availablePermits);
+            return limit;
+        });
+        semaphore.acquireUninterruptibly();
+        return semaphore::release;
+    }
+
+    private ExecutorService create(String name) {
+        var pool = executorProp.getPools().getOrDefault(name, new ExecutorProp.Pool());
+        if (virtualThreads && pool.isVirtual()) {
+            var virtualExecutor = newVirtualThreadExecutor();
+            if (virtualExecutor != null) {
+                pools.put(name, virtualExecutor);
+                log.info("Create executor {} on virtual threads", name);
+                return TtlExecutors.getTtlExecutorService(ExecutorServiceMetrics.monitor(meterRegistry, virtualExecutor, name, Tags.empty()));
+            }
+        }
+        var coreSize = pool.getCoreSize() != null ? pool.getCoreSize() : Runtime.getRuntime().availableProcessors();
+        var maxSize = pool.getMaxSize() != null ? Math.max(pool.getMaxSize(), coreSize) : coreSize;
+        var threadPoolExecutor = new ThreadPoolExecutor(coreSize, maxSize, pool.getKeepAliveSeconds(), TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(pool.getQueueCapacity()), new NamedThreadFactory("x1-" + name + "-", false),
+                getRejectedExecutionHandler(name, pool.getRejectPolicy()));
+        pools.put(name, threadPoolExecutor);
+        log.info("Create executor {},coreSize:{},maxSize:{},queueCapacity:{},rejectPolicy:{}", name, coreSize, maxSize,
+                pool.getQueueCapacity(), pool.getRejectPolicy());
+        var timedExecutor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, name, Tags.empty());
+        return TtlExecutors.getTtlExecutorService(timedExecutor);
+    }
+
+    private RejectedExecutionHandler getRejectedExecutionHandler(String name, ExecutorProp.RejectPolicy rejectPolicy) {
+        switch (rejectPolicy) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case BLOCK:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Executor " + name + " is shutdown");
+                    }
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for executor " + name, e);
+                    }
+                };
+            default:
+                return (task, executor) -> {
+                    throw new RejectedExecutionException("Executor " + name + " is saturated, queued:" + executor.getQueue().size());
+                };
+        }
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            // Preview api of java 19/20 without --enable-preview
+            log.warn("Create virtual thread executor error, the pool uses platform threads", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        pools.values().forEach(ExecutorService::shutdown);
+        for (var entry : pools.entrySet()) {
+            if (!entry.getValue().awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Executor {} did not terminate in time", entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Permit of a limited resource
+     */
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
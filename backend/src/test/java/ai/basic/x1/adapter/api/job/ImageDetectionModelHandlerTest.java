@@ -0,0 +1,243 @@
+package ai.basic.x1.adapter.api.job;
+
+import ai.basic.x1.adapter.port.dao.ModelRunRecordDAO;
+import ai.basic.x1.adapter.port.dao.mybatis.model.ModelClass;
+import ai.basic.x1.adapter.port.rpc.ImageDetectionModelHttpCaller;
+import ai.basic.x1.adapter.port.rpc.ModelCallGuard;
+import ai.basic.x1.adapter.port.rpc.ModelCallProp;
+import ai.basic.x1.entity.*;
+import ai.basic.x1.entity.enums.ModelCodeEnum;
+import ai.basic.x1.usecase.ModelUseCase;
+import ai.basic.x1.usecase.exception.UsecaseCode;
+import cn.hutool.http.HttpStatus;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static ai.basic.x1.util.Constants.FILE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs batches of images against a local stub of the image detection model service
+ */
+class ImageDetectionModelHandlerTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private HttpServer server;
+
+    private String url;
+
+    /**
+     * Data ids of the requests the stub received, in the order of the images
+     */
+    private final List<List<Long>> requests = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Answer of the stub for the data ids of a request
+     */
+    private final AtomicReference<Function<List<Long>, StubResponse>> stubResponse = new AtomicReference<>();
+
+    private ImageDetectionModelHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/predict", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/predict";
+        stubResponse.set(ids -> answer(ids));
+
+        var modelCallProp = new ModelCallProp();
+        var policy = modelCallProp.getPolicy(ModelCodeEnum.IMAGE_DETECTION);
+        policy.setBatchSize(BATCH_SIZE);
+        policy.setMaxAttempts(1);
+        policy.setReadTimeoutMillis(2000);
+        var modelCallGuard = new ModelCallGuard(modelCallProp);
+        var httpCaller = new ImageDetectionModelHttpCaller();
+        ReflectionTestUtils.setField(httpCaller, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(httpCaller, "modelCallGuard", modelCallGuard);
+        var modelUseCase = mock(ModelUseCase.class);
+        when(modelUseCase.getModelClassMapByModelId(anyLong())).thenReturn(Map.of(
+                "car", ModelClass.builder().code("car").name("Car").build(),
+                "person", ModelClass.builder().code("person").name("Person").build()));
+
+        handler = new ImageDetectionModelHandler();
+        ReflectionTestUtils.setField(handler, "modelHttpCaller", httpCaller);
+        ReflectionTestUtils.setField(handler, "modelCallGuard", modelCallGuard);
+        ReflectionTestUtils.setField(handler, "modelUseCase", modelUseCase);
+        ReflectionTestUtils.setField(handler, "modelRunRecordDAO", mock(ModelRunRecordDAO.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void responsesAreMappedToTheirImagesById() {
+        // The stub answers in reverse order, the results follow the messages
+        var results = handler.modelRunBatch(messages(1, 2, 3, 4, 5));
+
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)), requests);
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            var dataId = i + 1L;
+            var result = (ImageDetectionObjectBO) results.get(i);
+            assertEquals(UsecaseCode.OK.getCode(), result.getCode());
+            assertEquals(dataId, result.getDataId());
+            // The box of the stub carries the id it answered for
+            var object = result.getObjects().get(0);
+            assertEquals(0, BigDecimal.valueOf(dataId).compareTo(object.getPoints().get(0).getX()));
+            assertEquals(dataId % 2 == 0 ? "Person" : "Car", object.getModelClass());
+        }
+    }
+
+    @Test
+    void imageMissingInTheResponseGetsAnError() {
+        stubResponse.set(ids -> answer(ids.stream().filter(id -> id != 2L).collect(Collectors.toList())));
+
+        var results = handler.modelRunBatch(messages(1, 2, 3));
+
+        assertOk(results.get(0), 1L);
+        assertError(results.get(1), 2L);
+        assertEquals("no result of the data", results.get(1).getMessage());
+        assertOk(results.get(2), 3L);
+    }
+
+    @Test
+    void failedRequestFailsOnlyItsOwnImages() {
+        stubResponse.set(ids -> ids.contains(3L)
+                ? new StubResponse(HttpStatus.HTTP_INTERNAL_ERROR, "model crashed")
+                : answer(ids));
+
+        var results = handler.modelRunBatch(messages(1, 2, 3, 4, 5));
+
+        assertEquals(3, requests.size());
+        assertOk(results.get(0), 1L);
+        assertOk(results.get(1), 2L);
+        assertError(results.get(2), 3L);
+        assertError(results.get(3), 4L);
+        assertOk(results.get(4), 5L);
+        assertNotNull(results.get(2).getMessage());
+    }
+
+    @Test
+    void imageWithoutFileIsNotSent() {
+        var messages = messages(1, 2, 3);
+        messages.get(1).getDataInfo().setContent(List.of());
+
+        var results = handler.modelRunBatch(messages);
+
+        assertEquals(List.of(List.of(1L), List.of(3L)), requests);
+        assertOk(results.get(0), 1L);
+        assertError(results.get(1), 2L);
+        assertEquals("file is not found", results.get(1).getMessage());
+        assertOk(results.get(2), 3L);
+    }
+
+    private static void assertOk(ModelTaskInfoBO result, Long dataId) {
+        assertEquals(UsecaseCode.OK.getCode(), result.getCode(), "result of " + dataId);
+        assertEquals(dataId, ((ImageDetectionObjectBO) result).getDataId());
+    }
+
+    private static void assertError(ModelTaskInfoBO result, Long dataId) {
+        assertEquals(UsecaseCode.ERROR.getCode(), result.getCode(), "result of " + dataId);
+        assertEquals(dataId, ((ImageDetectionObjectBO) result).getDataId());
+    }
+
+    private List<ModelMessageBO> messages(long... dataIds) {
+        var resultFilterParam = new JSONObject();
+        resultFilterParam.set("classes", List.of("car", "person"));
+        return LongStream.of(dataIds).mapToObj(dataId -> {
+            var file = new RelationFileBO();
+            file.setUrl("http://127.0.0.1/image/" + dataId + ".jpg");
+            var dataInfo = DataInfoBO.builder()
+                    .id(dataId)
+                    .content(List.of(DataInfoBO.FileNodeBO.builder().type(FILE).file(file).build()))
+                    .build();
+            return ModelMessageBO.builder()
+                    .modelCode(ModelCodeEnum.IMAGE_DETECTION)
+                    .datasetId(10L)
+                    .dataId(dataId)
+                    .modelId(20L)
+                    .modelSerialNo(30L)
+                    .resultFilterParam(resultFilterParam)
+                    .dataInfo(dataInfo)
+                    .url(url)
+                    .build();
+        }).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Answer of the model for the images, one box per image in reverse order
+     */
+    private static StubResponse answer(List<Long> ids) {
+        var data = new ArrayList<Map<String, Object>>();
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            var id = ids.get(i);
+            var object = new LinkedHashMap<String, Object>();
+            object.put("label", id % 2 == 0 ? "person" : "car");
+            object.put("confidence", 0.9);
+            object.put("leftTopX", id);
+            object.put("leftTopY", 0);
+            object.put("rightBottomX", id + 10);
+            object.put("rightBottomY", 10);
+            var response = new LinkedHashMap<String, Object>();
+            response.put("id", id);
+            response.put("code", "OK");
+            response.put("objects", List.of(object));
+            data.add(response);
+        }
+        var body = new LinkedHashMap<String, Object>();
+        body.put("code", "OK");
+        body.put("message", "success");
+        body.put("data", data);
+        return new StubResponse(HttpStatus.HTTP_OK, JSONUtil.toJsonStr(body));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var request = JSONUtil.parseObj(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            var ids = request.getJSONArray("datas").stream()
+                    .map(imageData -> ((JSONObject) imageData).getLong("id"))
+                    .collect(Collectors.toList());
+            requests.add(ids);
+            var response = stubResponse.get().apply(ids);
+            var body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response.status, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static class StubResponse {
+
+        private final int status;
+
+        private final String body;
+
+        private StubResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ai.basic.x1.adapter.port.dao;
+
+import ai.basic.x1.adapter.port.dao.mybatis.mapper.DataAnnotationObjectMapper;
+import ai.basic.x1.adapter.port.dao.mybatis.model.DataAnnotationObject;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Deletes the rows of a field value chunk by chunk through a mocked mapper
+ */
+class AbstractDAOTest {
+
+    private static final Long DATASET_ID = 2L;
+
+    private DataAnnotationObjectMapper mapper;
+
+    private DataAnnotationObjectDAO dao;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), DataAnnotationObject.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(DataAnnotationObjectMapper.class);
+        when(mapper.deleteBatchIds(anyCollection())).thenAnswer(invocation -> invocation.<Collection<?>>getArgument(0).size());
+        dao = new DataAnnotationObjectDAO();
+        ReflectionTestUtils.setField(dao, "baseMapper", mapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rowsAreSelectedAndDeletedChunkByChunk() {
+        when(mapper.selectList(any())).thenReturn(rows(1, 1000), rows(1001, 2000), rows(2001, 2500));
+
+        var removedCount = dao.removeAllByFieldInBatches(DataAnnotationObject::getId, DataAnnotationObject::getDatasetId, DATASET_ID, 1000);
+
+        assertEquals(2500, removedCount);
+        var wrapperCaptor = ArgumentCaptor.forClass(Wrapper.class);
+        verify(mapper, times(3)).selectList(wrapperCaptor.capture());
+        var sql = wrapperCaptor.getValue().getCustomSqlSegment();
+        assertTrue(sql.contains("dataset_id") && sql.endsWith("LIMIT 1000"), sql);
+        assertEquals("id", wrapperCaptor.getValue().getSqlSelect());
+        var idsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mapper, times(3)).deleteBatchIds(idsCaptor.capture());
+        assertEquals(List.of(1000, 1000, 500), idsCaptor.getAllValues().stream().map(Collection::size).collect(Collectors.toList()));
+        assertEquals(ids(1001, 2000), idsCaptor.getAllValues().get(1));
+    }
+
+    @Test
+    void fullLastChunkEndsWithAnEmptySelect() {
+        when(mapper.selectList(any())).thenReturn(rows(1, 1000), List.of());
+
+        assertEquals(1000, dao.removeAllByFieldInBatches(DataAnnotationObject::getId, DataAnnotationObject::getDatasetId, DATASET_ID, 1000));
+        verify(mapper, times(2)).selectList(any());
+        verify(mapper, times(1)).deleteBatchIds(anyCollection());
+    }
+
+    @Test
+    void chunkThatRemovesNothingStopsTheDelete() {
+        when(mapper.selectList(any())).thenReturn(rows(1, 1000));
+        when(mapper.deleteBatchIds(anyCollection())).thenReturn(0);
+
+        assertEquals(0, dao.removeAllByFieldInBatches(DataAnnotationObject::getId, DataAnnotationObject::getDatasetId, DATASET_ID, 1000));
+        verify(mapper, times(1)).selectList(any());
+    }
+
+    private static List<DataAnnotationObject> rows(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> DataAnnotationObject.builder().id(id).datasetId(DATASET_ID).build())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).boxed().collect(Collectors.toList());
+    }
+}
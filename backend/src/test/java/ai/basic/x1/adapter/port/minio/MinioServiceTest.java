@@ -0,0 +1,259 @@
+package ai.basic.x1.adapter.port.minio;
+
+import ai.basic.x1.util.executor.ExecutorRegistry;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.ErrorResponse;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Counts the requests MinioService sends to a MinIO stand-in
+ */
+class MinioServiceTest {
+
+    private static final String BUCKET = "xtreme1";
+
+    private static final int UPLOADS = 100;
+
+    private final AtomicInteger bucketExistsCount = new AtomicInteger();
+
+    private final AtomicInteger makeBucketCount = new AtomicInteger();
+
+    private final AtomicInteger putObjectCount = new AtomicInteger();
+
+    private final AtomicInteger removeObjectsCount = new AtomicInteger();
+
+    private final AtomicInteger removeObjectsCompletedCount = new AtomicInteger();
+
+    /**
+     * Keys of all multi-object delete requests
+     */
+    private final Queue<String> removedNames = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Errors MinIO returns for the keys of a delete request
+     */
+    private final AtomicReference<Function<List<String>, Iterable<Result<DeleteError>>>> removeErrors =
+            new AtomicReference<>(names -> List.of());
+
+    private final ListAppender<ILoggingEvent> logAppender = new ListAppender<>();
+
+    private ExtendMinioClient minioClient;
+
+    private MinioService minioService;
+
+    private ExecutorService deleteExecutor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        minioClient = mock(ExtendMinioClient.class);
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenAnswer(invocation -> {
+            bucketExistsCount.incrementAndGet();
+            return makeBucketCount.get() > 0;
+        });
+        doAnswer(invocation -> {
+            makeBucketCount.incrementAndGet();
+            return null;
+        }).when(minioClient).makeBucket(any(MakeBucketArgs.class));
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            putObjectCount.incrementAndGet();
+            return null;
+        });
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            removeObjectsCount.incrementAndGet();
+            var names = new ArrayList<String>();
+            invocation.<RemoveObjectsArgs>getArgument(0).objects()
+                    .forEach(deleteObject -> names.add((String) ReflectionTestUtils.getField(deleteObject, "name")));
+            removedNames.addAll(names);
+            return removeErrors.get().apply(names);
+        });
+        var minioProp = new MinioProp();
+        minioProp.setBucketName(BUCKET);
+        var executorRegistry = mock(ExecutorRegistry.class);
+        when(executorRegistry.acquire(any())).thenReturn(() -> {
+        });
+        deleteExecutor = Executors.newFixedThreadPool(4);
+        when(executorRegistry.get(ExecutorRegistry.MINIO_DELETE)).thenReturn(deleteExecutor);
+        logAppender.start();
+        ((Logger) LoggerFactory.getLogger(MinioService.class)).addAppender(logAppender);
+
+        minioService = new MinioService();
+        ReflectionTestUtils.setField(minioService, "extendMinioClient", minioClient);
+        ReflectionTestUtils.setField(minioService, "minioProp", minioProp);
+        ReflectionTestUtils.setField(minioService, "executorRegistry", executorRegistry);
+        minioService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((Logger) LoggerFactory.getLogger(MinioService.class)).detachAppender(logAppender);
+        deleteExecutor.shutdownNow();
+    }
+
+    @Test
+    void bucketIsVerifiedOnceForManyUploads() throws Exception {
+        minioService.initBucket();
+        for (int i = 0; i < UPLOADS; i++) {
+            upload("file-" + i);
+        }
+
+        assertEquals(1, bucketExistsCount.get());
+        assertEquals(1, makeBucketCount.get());
+        assertEquals(UPLOADS, putObjectCount.get());
+        // One request per upload instead of a bucketExists round-trip before every PUT
+        assertEquals(UPLOADS + 2, bucketExistsCount.get() + makeBucketCount.get() + putObjectCount.get());
+    }
+
+    @Test
+    void missingBucketIsCheckedAgain() throws Exception {
+        minioService.initBucket();
+        upload("file-0");
+        var noSuchBucket = mock(ErrorResponseException.class);
+        when(noSuchBucket.errorResponse()).thenReturn(new ErrorResponse("NoSuchBucket", "", BUCKET, "", "", "", ""));
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(noSuchBucket).thenAnswer(invocation -> {
+            putObjectCount.incrementAndGet();
+            return null;
+        });
+
+        assertThrows(ErrorResponseException.class, () -> upload("file-1"));
+        upload("file-2");
+        upload("file-3");
+
+        assertEquals(2, bucketExistsCount.get(), "checked again once after NoSuchBucket");
+        assertEquals(3, putObjectCount.get());
+    }
+
+    @Test
+    void prefixOf100kKeysIsRemovedInBatchesOf1000() throws Exception {
+        listing(names(100000), null);
+
+        assertEquals(0, minioService.removeObjectsByPrefix("dataset/"));
+
+        assertTrue(removeObjectsCount.get() <= 100, "delete requests: " + removeObjectsCount.get());
+        assertEquals(100000, removedNames.size());
+        assertEquals(new HashSet<>(names(100000)), new HashSet<>(removedNames));
+    }
+
+    @Test
+    void keysAreRemovedInBatchesOf1000() {
+        assertEquals(0, minioService.removeObjects(BUCKET, names(100000)));
+
+        assertEquals(100, removeObjectsCount.get());
+        assertEquals(100000, removedNames.size());
+    }
+
+    @Test
+    void keyErrorsAreCountedAndAggregatedByCode() throws Exception {
+        listing(names(2500), null);
+        removeErrors.set(names -> names.stream()
+                .filter(name -> name.endsWith("7.pcd"))
+                .map(name -> new Result<>(deleteError(name.endsWith("77.pcd") ? "NoSuchVersion" : "AccessDenied", name)))
+                .collect(Collectors.toList()));
+
+        assertEquals(250, minioService.removeObjectsByPrefix("dataset/"));
+
+        assertLogged("Failed to remove 225 objects of xtreme1/dataset/ with AccessDenied");
+        assertLogged("Failed to remove 25 objects of xtreme1/dataset/ with NoSuchVersion");
+        assertLogged("listed: 2500, removed: 2250, failed: 250");
+    }
+
+    @Test
+    void failedRequestCountsEveryKeyOfTheBatchOnce() {
+        // Two key errors are returned before the response breaks off
+        removeErrors.set(names -> List.of(
+                new Result<>(deleteError("AccessDenied", names.get(0))),
+                new Result<>(deleteError("AccessDenied", names.get(1))),
+                new Result<>(new IOException("connection reset"))));
+
+        assertEquals(1000, minioService.removeObjects(BUCKET, names(1000)));
+
+        assertLogged("Failed to remove 2 objects of xtreme1 with AccessDenied");
+        assertLogged("Failed to remove 998 objects of xtreme1 with IOException");
+        assertLogged("listed: 1000, removed: 0, failed: 1000");
+    }
+
+    @Test
+    void submittedBatchesAreJoinedWhenTheListingFails() throws Exception {
+        listing(names(2500), new IOException("listing broken off"));
+        removeErrors.set(names -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            removeObjectsCompletedCount.incrementAndGet();
+            return List.of();
+        });
+
+        assertThrows(RuntimeException.class, () -> minioService.removeObjectsByPrefix("dataset/"));
+
+        // The two full batches were submitted before the failure and are finished when the call returns
+        assertEquals(2, removeObjectsCount.get());
+        assertEquals(2, removeObjectsCompletedCount.get());
+    }
+
+    /**
+     * Objects listed under the prefix, followed by a failed result if listingError is given
+     */
+    private void listing(List<String> names, Exception listingError) throws Exception {
+        var results = names.stream()
+                .map(name -> new Result<Item>(new Item(name) {
+                }))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (listingError != null) {
+            results.add(new Result<>(listingError));
+        }
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(results);
+    }
+
+    private static List<String> names(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "dataset/Scene_" + i / 100 + "/" + i + ".pcd").collect(Collectors.toList());
+    }
+
+    private static DeleteError deleteError(String code, String objectName) {
+        var error = new DeleteError();
+        ReflectionTestUtils.setField(error, "code", code);
+        ReflectionTestUtils.setField(error, "objectName", objectName);
+        ReflectionTestUtils.setField(error, "message", code);
+        return error;
+    }
+
+    private void assertLogged(String message) {
+        assertTrue(logAppender.list.stream()
+                        .filter(event -> event.getLevel().isGreaterOrEqual(Level.INFO))
+                        .anyMatch(event -> event.getFormattedMessage().contains(message)),
+                () -> message + " not in " + logAppender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList()));
+    }
+
+    private void upload(String fileName) throws Exception {
+        var content = new byte[]{1, 2, 3};
+        minioService.uploadFileWithoutUrl(BUCKET, fileName, new ByteArrayInputStream(content), "application/octet-stream", content.length);
+    }
+}
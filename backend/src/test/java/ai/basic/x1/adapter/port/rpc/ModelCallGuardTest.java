@@ -0,0 +1,294 @@
+package ai.basic.x1.adapter.port.rpc;
+
+import ai.basic.x1.entity.enums.ModelCodeEnum;
+import ai.basic.x1.usecase.exception.UsecaseException;
+import cn.hutool.http.HttpStatus;
+import cn.hutool.http.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Calls a local stub of a model service that injects latency and bursts of 5xx answers through the guard
+ */
+class ModelCallGuardTest {
+
+    private static final ModelCodeEnum MODEL = ModelCodeEnum.IMAGE_DETECTION;
+
+    private HttpServer server;
+
+    private String url;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Arrival times of the requests in nanoseconds
+     */
+    private final List<Long> requestTimes = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Answers of the next requests, the default answer is used once they are used up
+     */
+    private final BlockingDeque<StubResponse> stubResponses = new LinkedBlockingDeque<>();
+
+    private volatile StubResponse defaultResponse = new StubResponse(HttpStatus.HTTP_OK, 0);
+
+    private ModelCallProp.Policy policy;
+
+    private ModelCallGuard guard;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/predict", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/predict";
+
+        var modelCallProp = new ModelCallProp();
+        policy = modelCallProp.getPolicy(MODEL);
+        policy.setConnectTimeoutMillis(1000);
+        policy.setReadTimeoutMillis(1000);
+        policy.setMaxAttempts(1);
+        policy.setInitialBackoffMillis(0);
+        policy.setMaxBackoffMillis(0);
+        policy.setFailureThreshold(100);
+        policy.setOpenMillis(200);
+        policy.setMaxConcurrentCalls(4);
+        policy.setMaxWaitMillis(1000);
+        guard = new ModelCallGuard(modelCallProp);
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    void retriesThroughA5xxBurst() {
+        policy.setMaxAttempts(4);
+        policy.setInitialBackoffMillis(20);
+        policy.setMaxBackoffMillis(100);
+        burst(HttpStatus.HTTP_UNAVAILABLE, 2);
+
+        assertEquals("ok", callStub());
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    void slowAnswerCountsAsFailedAttempt() {
+        policy.setMaxAttempts(2);
+        policy.setReadTimeoutMillis(200);
+        stubResponses.add(new StubResponse(HttpStatus.HTTP_OK, 1000));
+
+        assertEquals("ok", callStub());
+        assertEquals(2, requestCount.get());
+    }
+
+    @Test
+    void backoffIsFullJitterUpToTheExponentialCap() {
+        policy.setMaxAttempts(4);
+        policy.setInitialBackoffMillis(100);
+        policy.setMaxBackoffMillis(200);
+        defaultResponse = new StubResponse(HttpStatus.HTTP_INTERNAL_ERROR, 0);
+        // Caps of the three retries: 100, 200 and 200 instead of 400
+        var caps = List.of(100L, 200L, 200L);
+        var waits = new ArrayList<Long>();
+        for (int call = 0; call < 10; call++) {
+            requestTimes.clear();
+            assertThrows(UsecaseException.class, this::callStub);
+            assertEquals(4, requestTimes.size());
+            for (int retry = 0; retry < caps.size(); retry++) {
+                var waitMillis = TimeUnit.NANOSECONDS.toMillis(requestTimes.get(retry + 1) - requestTimes.get(retry));
+                // Slack for the request itself and the scheduling of the threads
+                assertTrue(waitMillis <= caps.get(retry) + 100, "wait of retry " + (retry + 1) + ": " + waitMillis + "ms");
+                waits.add(waitMillis * 100 / caps.get(retry));
+            }
+        }
+        // A random part of the cap is waited, the retries of the callers do not line up
+        assertTrue(Collections.min(waits) < 50, "waits in percent of the cap: " + waits);
+    }
+
+    @Test
+    void circuitOpensHalfOpensAndCloses() throws InterruptedException {
+        policy.setFailureThreshold(3);
+        burst(HttpStatus.HTTP_BAD_GATEWAY, 3);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UsecaseException.class, this::callStub);
+        }
+
+        var open = assertThrows(UsecaseException.class, this::callStub);
+        assertTrue(open.getMessage().contains("circuit is open"));
+        assertEquals(3, requestCount.get(), "an open circuit does not call the service");
+
+        Thread.sleep(policy.getOpenMillis() + 50);
+        assertEquals("ok", callStub(), "trial call after openMillis");
+        assertEquals("ok", callStub(), "closed circuit");
+        assertEquals(5, requestCount.get());
+    }
+
+    @Test
+    void failedTrialOpensTheCircuitAgain() throws InterruptedException {
+        policy.setFailureThreshold(2);
+        burst(HttpStatus.HTTP_UNAVAILABLE, 3);
+        assertThrows(UsecaseException.class, this::callStub);
+        assertThrows(UsecaseException.class, this::callStub);
+        Thread.sleep(policy.getOpenMillis() + 50);
+
+        var trial = assertThrows(UsecaseException.class, this::callStub);
+        assertFalse(trial.getMessage().contains("circuit is open"), "the trial reaches the service");
+        var open = assertThrows(UsecaseException.class, this::callStub);
+        assertTrue(open.getMessage().contains("circuit is open"), "one failed trial opens the circuit again");
+        assertEquals(3, requestCount.get());
+
+        Thread.sleep(policy.getOpenMillis() + 50);
+        assertEquals("ok", callStub());
+    }
+
+    @Test
+    void halfOpenCircuitLetsOneTrialThrough() throws Exception {
+        policy.setFailureThreshold(1);
+        burst(HttpStatus.HTTP_UNAVAILABLE, 1);
+        assertThrows(UsecaseException.class, this::callStub);
+        Thread.sleep(policy.getOpenMillis() + 50);
+        stubResponses.add(new StubResponse(HttpStatus.HTTP_OK, 300));
+
+        var trial = executorService.submit(this::callStub);
+        awaitRequests(2);
+        var concurrent = assertThrows(UsecaseException.class, this::callStub);
+        assertTrue(concurrent.getMessage().contains("circuit is open"), "only the trial call is let through");
+
+        assertEquals("ok", trial.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", callStub());
+    }
+
+    @Test
+    void bulkheadWaitTimesOut() throws Exception {
+        policy.setMaxConcurrentCalls(1);
+        policy.setMaxWaitMillis(100);
+        policy.setFailureThreshold(1);
+        stubResponses.add(new StubResponse(HttpStatus.HTTP_OK, 500));
+
+        var slow = executorService.submit(this::callStub);
+        awaitRequests(1);
+        var start = System.nanoTime();
+        var busy = assertThrows(UsecaseException.class, this::callStub);
+        var waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(busy.getMessage().contains("service is busy"), busy.getMessage());
+        assertTrue(waitMillis >= 100 && waitMillis < 400, "waited " + waitMillis + "ms");
+        assertEquals("ok", slow.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requestCount.get(), "the rejected call does not reach the service");
+        // A full bulkhead is not a failure of the service, the circuit stays closed
+        assertEquals("ok", callStub());
+    }
+
+    @Test
+    void concurrentCallsAreCapped() throws Exception {
+        policy.setMaxConcurrentCalls(2);
+        policy.setMaxWaitMillis(5000);
+        defaultResponse = new StubResponse(HttpStatus.HTTP_OK, 100);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> guard.call(MODEL, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return get();
+                } finally {
+                    running.decrementAndGet();
+                }
+            })));
+        }
+        for (var future : futures) {
+            assertEquals("ok", future.get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, maxRunning.get());
+    }
+
+    private String callStub() {
+        return guard.call(MODEL, this::get);
+    }
+
+    /**
+     * Request of a model caller, a non 200 answer fails the call
+     */
+    private String get() {
+        var httpResponse = HttpUtil.createGet(url)
+                .setConnectionTimeout(policy.getConnectTimeoutMillis())
+                .setReadTimeout(policy.getReadTimeoutMillis())
+                .execute();
+        if (httpResponse.getStatus() != HttpStatus.HTTP_OK) {
+            throw new UsecaseException(httpResponse.getStatus() + " " + httpResponse.body());
+        }
+        return httpResponse.body();
+    }
+
+    private void burst(int status, int count) {
+        for (int i = 0; i < count; i++) {
+            stubResponses.add(new StubResponse(status, 0));
+        }
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (requestCount.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, requestCount.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestTimes.add(System.nanoTime());
+        requestCount.incrementAndGet();
+        var response = stubResponses.poll();
+        if (response == null) {
+            response = defaultResponse;
+        }
+        try {
+            if (response.delayMillis > 0) {
+                Thread.sleep(response.delayMillis);
+            }
+            var body = (response.status == HttpStatus.HTTP_OK ? "ok" : "model error").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response.status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The caller gave up on a slow answer
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static class StubResponse {
+
+        private final int status;
+
+        private final long delayMillis;
+
+        private StubResponse(int status, long delayMillis) {
+            this.status = status;
+            this.delayMillis = delayMillis;
+        }
+    }
+}
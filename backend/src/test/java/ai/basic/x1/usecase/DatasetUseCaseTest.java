@@ -0,0 +1,204 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.dao.*;
+import ai.basic.x1.adapter.port.dao.mybatis.model.Dataset;
+import ai.basic.x1.adapter.port.dao.mybatis.model.DatasetDeleteJob;
+import ai.basic.x1.adapter.port.dao.mybatis.model.ExportRecord;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadRecord;
+import ai.basic.x1.entity.enums.DatasetDeleteJobStatusEnum;
+import ai.basic.x1.util.NodeUtil;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+import static ai.basic.x1.entity.enums.DatasetDeleteJobStatusEnum.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Claims, resumes and runs the dataset delete jobs: objects first, then the rows in chunks
+ */
+class DatasetUseCaseTest {
+
+    private static final Long DATASET_ID = 2L;
+
+    private static final String DATASET_NAME = "lidar-set";
+
+    private DatasetUseCase useCase;
+
+    private DatasetDeleteJobDAO datasetDeleteJobDAO;
+
+    private DatasetDAO datasetDAO;
+
+    private DataInfoUseCase dataInfoUseCase;
+
+    private FileUseCase fileUseCase;
+
+    private ExecutorService executorService;
+
+    private LambdaQueryChainWrapper<Dataset> datasetQuery;
+
+    private List<AbstractDAO<?, ?>> rowDAOs;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        datasetDeleteJobDAO = mock(DatasetDeleteJobDAO.class);
+        datasetDAO = mock(DatasetDAO.class);
+        dataInfoUseCase = mock(DataInfoUseCase.class);
+        fileUseCase = mock(FileUseCase.class);
+        executorService = mock(ExecutorService.class);
+        datasetQuery = mock(LambdaQueryChainWrapper.class);
+        when(datasetDAO.lambdaQuery()).thenReturn(datasetQuery);
+        when(datasetQuery.eq(any(), any())).thenReturn(datasetQuery);
+        when(dataInfoUseCase.findContentFileIdsByDatasetId(DATASET_ID)).thenReturn(new HashSet<>(Set.of(10L, 11L)));
+        var exportRecordDAO = mock(ExportRecordDAO.class);
+        when(exportRecordDAO.findAllByDatasetId(DATASET_ID)).thenReturn(List.of(ExportRecord.builder().fileId(12L).build()));
+        var uploadRecordDAO = mock(UploadRecordDAO.class);
+        when(uploadRecordDAO.findAllByDatasetId(DATASET_ID)).thenReturn(List.of(UploadRecord.builder().fileUrl("http://minio/upload.zip").build()));
+
+        useCase = new DatasetUseCase();
+        ReflectionTestUtils.setField(useCase, "datasetDeleteJobDAO", datasetDeleteJobDAO);
+        ReflectionTestUtils.setField(useCase, "datasetDAO", datasetDAO);
+        ReflectionTestUtils.setField(useCase, "dataInfoUseCase", dataInfoUseCase);
+        ReflectionTestUtils.setField(useCase, "fileUseCase", fileUseCase);
+        ReflectionTestUtils.setField(useCase, "executorService", executorService);
+        ReflectionTestUtils.setField(useCase, "deleteMaxAttempts", 3);
+        ReflectionTestUtils.setField(useCase, "deleteLeaseMillis", 300000L);
+        ReflectionTestUtils.setField(useCase, "exportRecordDAO", exportRecordDAO);
+        ReflectionTestUtils.setField(useCase, "uploadRecordDAO", uploadRecordDAO);
+        rowDAOs = new ArrayList<>(List.of(exportRecordDAO, uploadRecordDAO));
+        for (var entry : Map.of(
+                "dataAnnotationObjectDAO", DataAnnotationObjectDAO.class,
+                "dataAnnotationClassificationDAO", DataAnnotationClassificationDAO.class,
+                "dataAnnotationRecordDAO", DataAnnotationRecordDAO.class,
+                "modelDatasetResultDAO", ModelDatasetResultDAO.class,
+                "modelRunRecordDAO", ModelRunRecordDAO.class).entrySet()) {
+            var dao = mock(entry.getValue());
+            ReflectionTestUtils.setField(useCase, entry.getKey(), dao);
+            rowDAOs.add(dao);
+        }
+    }
+
+    @Test
+    void deleteJobClaimedByAnotherNodeIsNotRun() {
+        var job = job(0);
+        when(datasetDeleteJobDAO.findClaimable(eq(3), any())).thenReturn(List.of(job));
+        when(datasetDeleteJobDAO.claim(eq(job), eq(NodeUtil.getNodeId()), eq(3), any())).thenReturn(false);
+
+        useCase.maintainDeleteJobs();
+
+        verify(executorService, never()).execute(any());
+        verify(datasetDeleteJobDAO, never()).heartbeat(any(), any());
+    }
+
+    @Test
+    void expiredDeleteJobIsResumedAndKeptAlive() {
+        var job = job(1);
+        when(datasetDeleteJobDAO.findClaimable(eq(3), any())).thenReturn(List.of(job), List.of());
+        when(datasetDeleteJobDAO.claim(eq(job), eq(NodeUtil.getNodeId()), eq(3), any())).thenReturn(true);
+
+        useCase.maintainDeleteJobs();
+        useCase.maintainDeleteJobs();
+
+        verify(executorService).execute(any());
+        verify(datasetDeleteJobDAO).heartbeat(argThat((Collection<Long> ids) -> ids.contains(job.getId())), eq(NodeUtil.getNodeId()));
+    }
+
+    @Test
+    void deleteJobRemovesObjectsBeforeTheRowsInChunks() {
+        var job = runInline(job(0));
+
+        useCase.maintainDeleteJobs();
+
+        var inOrder = inOrder(datasetDeleteJobDAO, fileUseCase, rowDAOs.get(0), dataInfoUseCase);
+        inOrder.verify(datasetDeleteJobDAO).updateStatus(job, REMOVING_OBJECTS, 0, null);
+        inOrder.verify(fileUseCase).deleteWithRelationsByIds(Set.of(10L, 11L, 12L));
+        inOrder.verify(datasetDeleteJobDAO).updateStatus(job, REMOVING_ROWS, 0, null);
+        inOrder.verify(rowDAOs.get(0)).removeAllByFieldInBatches(any(), any(), eq(DATASET_ID), eq(1000));
+        inOrder.verify(dataInfoUseCase).deleteByDatasetIdInBatches(DATASET_ID);
+        inOrder.verify(datasetDeleteJobDAO).release(job, NodeUtil.getNodeId(), COMPLETED, 0, null);
+        verify(fileUseCase).deleteByUrls(List.of("http://minio/upload.zip"));
+        verify(fileUseCase).deleteDatasetFolder(DATASET_NAME);
+        for (var dao : rowDAOs) {
+            verify(dao).removeAllByFieldInBatches(any(), any(), eq(DATASET_ID), eq(1000));
+            verify(dao, never()).remove(any());
+        }
+        verify(datasetDAO).removeById(DATASET_ID);
+        assertNoClaimedJobs();
+    }
+
+    @Test
+    void objectsLeftBehindFailTheJobAndKeepTheRows() {
+        var job = runInline(job(0));
+        when(fileUseCase.deleteWithRelationsByIds(any())).thenReturn(2);
+        when(fileUseCase.deleteDatasetFolder(DATASET_NAME)).thenReturn(1);
+
+        useCase.maintainDeleteJobs();
+
+        verify(datasetDeleteJobDAO).release(job, NodeUtil.getNodeId(), FAILED, 3, null);
+        verify(datasetDeleteJobDAO, never()).updateStatus(any(), eq(REMOVING_ROWS), any(), any());
+        for (var dao : rowDAOs) {
+            verify(dao, never()).removeAllByFieldInBatches(any(), any(), any(), anyInt());
+        }
+        verify(dataInfoUseCase, never()).deleteByDatasetIdInBatches(any());
+        assertNoClaimedJobs();
+    }
+
+    @Test
+    void errorFailsTheJobWithItsMessage() {
+        var job = runInline(job(0));
+        when(fileUseCase.deleteByUrls(any())).thenThrow(new IllegalStateException("minio is down"));
+
+        useCase.maintainDeleteJobs();
+
+        verify(datasetDeleteJobDAO).release(job, NodeUtil.getNodeId(), FAILED, null, "minio is down");
+        verify(dataInfoUseCase, never()).deleteByDatasetIdInBatches(any());
+        assertNoClaimedJobs();
+    }
+
+    @Test
+    void folderOfANameTakenByAnotherDatasetIsKept() {
+        var job = runInline(job(0));
+        when(datasetQuery.count()).thenReturn(1L);
+
+        useCase.maintainDeleteJobs();
+
+        verify(fileUseCase, never()).deleteDatasetFolder(any());
+        verify(datasetDeleteJobDAO).release(job, NodeUtil.getNodeId(), COMPLETED, 0, null);
+    }
+
+    /**
+     * The job is found by the next maintenance, claimed by this node and run on the calling thread
+     */
+    private DatasetDeleteJob runInline(DatasetDeleteJob job) {
+        when(datasetDeleteJobDAO.findClaimable(eq(3), any())).thenReturn(List.of(job));
+        when(datasetDeleteJobDAO.claim(eq(job), eq(NodeUtil.getNodeId()), eq(3), any())).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executorService).execute(any());
+        return job;
+    }
+
+    private void assertNoClaimedJobs() {
+        var claimedDeleteJobIds = (Set<?>) ReflectionTestUtils.getField(useCase, "claimedDeleteJobIds");
+        assertTrue(Objects.requireNonNull(claimedDeleteJobIds).isEmpty());
+    }
+
+    private static DatasetDeleteJob job(int attemptCount) {
+        return DatasetDeleteJob.builder()
+                .id(5L)
+                .datasetId(DATASET_ID)
+                .datasetName(DATASET_NAME)
+                .status(DatasetDeleteJobStatusEnum.SUBMITTED)
+                .failedObjectCount(0)
+                .attemptCount(attemptCount)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.dao.FileDAO;
+import ai.basic.x1.adapter.port.dao.mybatis.model.File;
+import ai.basic.x1.adapter.port.minio.ExtendMinioClient;
+import ai.basic.x1.adapter.port.minio.MinioProp;
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.entity.FileBO;
+import ai.basic.x1.entity.RelationFileBO;
+import ai.basic.x1.util.DefaultConverter;
+import cn.hutool.core.collection.CollectionUtil;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves and signs 10k files with two relation files each, against the former per-file filtering and signing,
+ * run with mvn -P benchmark test-compile exec:exec -Dbenchmark=FileUseCaseBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FileUseCaseBenchmark {
+
+    private static final int FILE_COUNT = 10000;
+
+    private static final String BUCKET = "data-storage";
+
+    private List<Long> ids;
+
+    private FileUseCase fileUseCase;
+
+    private MinioService minioService;
+
+    @Setup
+    public void setUp() {
+        var files = new ArrayList<File>(FILE_COUNT);
+        var relationFiles = new ArrayList<File>(FILE_COUNT * 2);
+        ids = new ArrayList<>(FILE_COUNT);
+        for (long id = 1; id <= FILE_COUNT; id++) {
+            var path = "dataset/raw/0123456789abcdef0123456789abcdef/Scene_" + id / 100 + "/" + id;
+            files.add(FileUseCaseTest.file(id, null, BUCKET, path + ".pcd"));
+            relationFiles.add(FileUseCaseTest.file(FILE_COUNT + id, id, BUCKET, path + ".bin"));
+            relationFiles.add(FileUseCaseTest.file(2 * FILE_COUNT + id, id, BUCKET, path + "_large.jpg"));
+            ids.add(id);
+        }
+        var minioProp = new MinioProp();
+        minioProp.setEndpoint("http://127.0.0.1:9000/");
+        minioProp.setBucketName(BUCKET);
+        minioService = new MinioService();
+        ReflectionTestUtils.setField(minioService, "minioProp", minioProp);
+        ReflectionTestUtils.setField(minioService, "extendMinioClient", new ExtendMinioClient(ExtendMinioClient.builder()
+                .endpoint(minioProp.getEndpoint()).credentials("admin", "password").build()));
+        // Known region, the urls are signed locally
+        @SuppressWarnings("unchecked")
+        var bucketRegionMap = (Map<String, String>) ReflectionTestUtils.getField(minioService, "bucketRegionMap");
+        Objects.requireNonNull(bucketRegionMap).put(BUCKET, "us-east-1");
+
+        fileUseCase = new FileUseCase();
+        ReflectionTestUtils.setField(fileUseCase, "fileDAO", new FileDAO() {
+            @Override
+            public List<File> listByIds(Collection<? extends Serializable> idList) {
+                return files;
+            }
+
+            @Override
+            public List<File> list(Wrapper<File> queryWrapper) {
+                return relationFiles;
+            }
+        });
+        ReflectionTestUtils.setField(fileUseCase, "minioService", minioService);
+        ReflectionTestUtils.setField(fileUseCase, "minioProp", minioProp);
+    }
+
+    /**
+     * Every invocation signs all urls again
+     */
+    @Setup(Level.Invocation)
+    public void clearUrlCache() {
+        minioService.init();
+    }
+
+    @Benchmark
+    public Map<Long, RelationFileBO> findMapByIds() {
+        return fileUseCase.findMapByIds(ids);
+    }
+
+    @Benchmark
+    public List<RelationFileBO> perFileFindByIds() throws Exception {
+        return legacyFindByIds(ids);
+    }
+
+    /**
+     * Former findByIds, the relation files of every file are filtered from all of them and each url is signed alone
+     */
+    private List<RelationFileBO> legacyFindByIds(List<Long> ids) throws Exception {
+        var fileDAO = (FileDAO) ReflectionTestUtils.getField(fileUseCase, "fileDAO");
+        var fileBOs = DefaultConverter.convert(fileDAO.listByIds(ids), RelationFileBO.class);
+        var relationFiles = fileDAO.list((Wrapper<File>) null);
+        for (var fileBO : Objects.requireNonNull(fileBOs)) {
+            setUrl(fileBO);
+            if (CollectionUtil.isNotEmpty(relationFiles)) {
+                var relationFileBOs = DefaultConverter.convert(relationFiles.stream()
+                        .filter(relationFile -> relationFile.getRelationId().equals(fileBO.getId())).collect(Collectors.toList()), FileBO.class);
+                for (var relationFileBO : Objects.requireNonNull(relationFileBOs)) {
+                    setUrl(relationFileBO);
+                }
+                fileBO.setRelationFiles(relationFileBOs);
+            }
+        }
+        return fileBOs;
+    }
+
+    private void setUrl(FileBO fileBO) throws Exception {
+        var minioPath = fileUseCase.translateOldPathToNew(fileBO.getPath());
+        fileBO.setInternalUrl(minioService.getInternalUrl(fileBO.getBucketName(), minioPath));
+        fileBO.setUrl(minioService.getUrl(fileBO.getBucketName(), minioPath));
+    }
+}
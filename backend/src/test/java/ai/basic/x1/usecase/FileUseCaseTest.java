@@ -0,0 +1,154 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.dao.FileDAO;
+import ai.basic.x1.adapter.port.dao.mybatis.model.File;
+import ai.basic.x1.adapter.port.minio.MinioProp;
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.entity.FileBO;
+import ai.basic.x1.entity.enums.RelationEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Groups the relation files under their files and signs the urls of each bucket in one batch
+ */
+class FileUseCaseTest {
+
+    private static final String DEFAULT_BUCKET = "data-storage";
+
+    private static final String OTHER_BUCKET = "archive";
+
+    private FileUseCase fileUseCase;
+
+    private FileDAO fileDAO;
+
+    private MinioService minioService;
+
+    @BeforeEach
+    void setUp() {
+        fileDAO = mock(FileDAO.class);
+        minioService = mock(MinioService.class);
+        when(minioService.presignAll(anyString(), anyCollection())).thenAnswer(invocation -> {
+            String bucketName = invocation.getArgument(0);
+            Collection<String> objectNames = invocation.getArgument(1);
+            return objectNames.stream().distinct()
+                    .collect(Collectors.toMap(Function.identity(), objectName -> internalUrl(bucketName, objectName)));
+        });
+        when(minioService.getExternalUrl(anyString())).thenAnswer(invocation -> "external:" + invocation.getArgument(0));
+        var minioProp = new MinioProp();
+        minioProp.setBucketName(DEFAULT_BUCKET);
+        fileUseCase = new FileUseCase();
+        ReflectionTestUtils.setField(fileUseCase, "fileDAO", fileDAO);
+        ReflectionTestUtils.setField(fileUseCase, "minioService", minioService);
+        ReflectionTestUtils.setField(fileUseCase, "minioProp", minioProp);
+    }
+
+    @Test
+    void relationFilesAreGroupedUnderTheirFile() {
+        when(fileDAO.listByIds(anyCollection())).thenReturn(List.of(
+                file(1L, null, DEFAULT_BUCKET, "a/raw/Scene_01/1.pcd"),
+                file(2L, null, OTHER_BUCKET, "a/raw/Scene_01/2.jpg"),
+                file(3L, null, DEFAULT_BUCKET, "a/raw/Scene_01/3.jpg")));
+        when(fileDAO.list(any())).thenReturn(List.of(
+                file(11L, 1L, DEFAULT_BUCKET, "a/raw/Scene_01/1.bin"),
+                file(21L, 2L, OTHER_BUCKET, "a/raw/Scene_01/large/2.jpg"),
+                file(22L, 2L, OTHER_BUCKET, "a/raw/Scene_01/small/2.jpg")));
+
+        var fileMap = fileUseCase.findMapByIds(List.of(3L, 1L, 2L, 1L));
+
+        assertEquals(3, fileMap.size());
+        assertEquals(List.of(11L), ids(fileMap.get(1L).getRelationFiles()));
+        assertEquals(List.of(21L, 22L), ids(fileMap.get(2L).getRelationFiles()));
+        assertNull(fileMap.get(3L).getRelationFiles());
+        assertEquals(List.of(1L, 2L, 3L), ids(fileUseCase.findByIds(List.of(1L, 2L, 3L))));
+    }
+
+    @Test
+    void urlsAreSignedOncePerBucket() {
+        when(fileDAO.listByIds(anyCollection())).thenReturn(List.of(
+                file(1L, null, DEFAULT_BUCKET, "a/raw/Scene_01/1.pcd"),
+                file(2L, null, OTHER_BUCKET, "a/raw/Scene_01/2.jpg")));
+        when(fileDAO.list(any())).thenReturn(List.of(
+                file(11L, 1L, DEFAULT_BUCKET, "a/raw/Scene_01/1.bin"),
+                file(21L, 2L, OTHER_BUCKET, "a/raw/Scene_01/large/2.jpg")));
+
+        var fileMap = fileUseCase.findMapByIds(List.of(1L, 2L));
+
+        verify(minioService).presignAll(eq(DEFAULT_BUCKET), argThat(names -> names.size() == 2));
+        verify(minioService).presignAll(eq(OTHER_BUCKET), argThat(names -> names.size() == 2));
+        verifyNoMoreInteractions(ignoreStubs(minioService));
+        assertUrls(fileMap.get(1L), DEFAULT_BUCKET, "a/raw/Scene_01/1.pcd");
+        assertUrls(fileMap.get(1L).getRelationFiles().get(0), DEFAULT_BUCKET, "a/raw/Scene_01/1.bin");
+        assertUrls(fileMap.get(2L), OTHER_BUCKET, "a/raw/Scene_01/2.jpg");
+        assertUrls(fileMap.get(2L).getRelationFiles().get(0), OTHER_BUCKET, "a/raw/Scene_01/large/2.jpg");
+    }
+
+    @Test
+    void filesWithoutBucketUseTheDefaultBucket() {
+        when(fileDAO.listByIds(anyCollection())).thenReturn(List.of(
+                file(1L, null, null, "a/raw/Scene_01/1.pcd"),
+                file(2L, null, "", "a/raw/Scene_01/2.pcd")));
+        when(fileDAO.list(any())).thenReturn(List.of(file(11L, 1L, DEFAULT_BUCKET, "a/raw/Scene_01/1.bin")));
+
+        var fileMap = fileUseCase.findMapByIds(List.of(1L, 2L));
+
+        verify(minioService).presignAll(eq(DEFAULT_BUCKET), argThat(names -> names.size() == 3));
+        assertUrls(fileMap.get(1L), DEFAULT_BUCKET, "a/raw/Scene_01/1.pcd");
+        assertUrls(fileMap.get(2L), DEFAULT_BUCKET, "a/raw/Scene_01/2.pcd");
+    }
+
+    @Test
+    void urlsUseTheMinioPathWithoutUploadUuid() {
+        var uuid = "0123456789abcdef0123456789abcdef";
+        when(fileDAO.listByIds(anyCollection())).thenReturn(List.of(file(1L, null, DEFAULT_BUCKET, "a/raw/" + uuid + "/Scene_01/1.pcd")));
+        when(fileDAO.list(any())).thenReturn(List.of());
+
+        var fileBO = fileUseCase.findMapByIds(List.of(1L)).get(1L);
+
+        assertEquals("a/raw/" + uuid + "/Scene_01/1.pcd", fileBO.getPath());
+        assertUrls(fileBO, DEFAULT_BUCKET, "a/raw/Scene_01/1.pcd");
+    }
+
+    @Test
+    void noIdsOrNoFilesGiveAnEmptyMap() {
+        assertEquals(Map.of(), fileUseCase.findMapByIds(List.of()));
+        when(fileDAO.listByIds(anyCollection())).thenReturn(List.of());
+        assertEquals(Map.of(), fileUseCase.findMapByIds(List.of(1L)));
+        verifyNoInteractions(minioService);
+    }
+
+    private static void assertUrls(FileBO fileBO, String bucketName, String objectName) {
+        assertEquals(internalUrl(bucketName, objectName), fileBO.getInternalUrl(), "internal url of " + fileBO.getId());
+        assertEquals("external:" + internalUrl(bucketName, objectName), fileBO.getUrl(), "url of " + fileBO.getId());
+    }
+
+    private static String internalUrl(String bucketName, String objectName) {
+        return "http://minio:9000/" + bucketName + "/" + objectName;
+    }
+
+    private static List<Long> ids(List<? extends FileBO> fileBOs) {
+        return fileBOs.stream().map(FileBO::getId).collect(Collectors.toList());
+    }
+
+    static File file(Long id, Long relationId, String bucketName, String path) {
+        return File.builder()
+                .id(id)
+                .name(path.substring(path.lastIndexOf('/') + 1))
+                .path(path)
+                .bucketName(bucketName)
+                .relationId(relationId)
+                .relation(relationId == null ? null : RelationEnum.LARGE_THUMBTHUMBNAIL)
+                .build();
+    }
+}
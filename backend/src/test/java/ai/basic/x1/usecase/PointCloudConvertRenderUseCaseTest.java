@@ -0,0 +1,335 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.adapter.port.rpc.PointCloudConvertRenderHttpCaller;
+import ai.basic.x1.adapter.port.rpc.dto.PointCloudCRRespDTO;
+import ai.basic.x1.adapter.port.rpc.dto.PointCloudRange;
+import ai.basic.x1.entity.FileBO;
+import ai.basic.x1.entity.PointCloudConvertRenderTaskBO;
+import ai.basic.x1.entity.PresignedUrlBO;
+import ai.basic.x1.entity.RelationFileBO;
+import ai.basic.x1.util.executor.ExecutorRegistry;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static ai.basic.x1.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs point cloud batches against a local stub of the convert render service
+ */
+@SuppressWarnings("unchecked")
+class PointCloudConvertRenderUseCaseTest {
+
+    private static final int CALLER_TIMEOUT_MILLIS = 500;
+
+    private HttpServer server;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Answer of the stub, status code and body for the number of files of a request
+     */
+    private final AtomicReference<Function<Integer, StubResponse>> stubResponse = new AtomicReference<>();
+
+    private PointCloudConvertRenderUseCase useCase;
+
+    private RedisTemplate<String, Object> streamRedisTemplate;
+
+    private StreamOperations<String, Object, Object> streamOperations;
+
+    private ZSetOperations<String, Object> zSetOperations;
+
+    private FileUseCase fileUseCase;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/convert_render", this::handle);
+        server.start();
+
+        var httpCaller = new PointCloudConvertRenderHttpCaller();
+        ReflectionTestUtils.setField(httpCaller, "url", "http://127.0.0.1:" + server.getAddress().getPort() + "/convert_render");
+        ReflectionTestUtils.setField(httpCaller, "timeout", CALLER_TIMEOUT_MILLIS);
+
+        streamRedisTemplate = mock(RedisTemplate.class);
+        streamOperations = mock(StreamOperations.class);
+        zSetOperations = mock(ZSetOperations.class);
+        when(streamRedisTemplate.opsForStream()).thenReturn(streamOperations);
+        when(streamRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+        fileUseCase = mock(FileUseCase.class);
+        when(fileUseCase.translateOldPathToNew(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        var minioService = mock(MinioService.class);
+        when(minioService.generatePresignedUrl(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> PresignedUrlBO.builder().presignedUrl("http://minio/" + invocation.getArgument(1)).build());
+        var executorRegistry = mock(ExecutorRegistry.class);
+        when(executorRegistry.acquire(ExecutorRegistry.HTTP)).thenReturn(() -> {
+        });
+
+        useCase = new PointCloudConvertRenderUseCase();
+        ReflectionTestUtils.setField(useCase, "streamRedisTemplate", streamRedisTemplate);
+        ReflectionTestUtils.setField(useCase, "pointCloudConvertRenderHttpCaller", httpCaller);
+        ReflectionTestUtils.setField(useCase, "fileUseCase", fileUseCase);
+        ReflectionTestUtils.setField(useCase, "minioService", minioService);
+        ReflectionTestUtils.setField(useCase, "executorRegistry", executorRegistry);
+        ReflectionTestUtils.setField(useCase, "batchSize", 8);
+        ReflectionTestUtils.setField(useCase, "maxAttempts", 5);
+        ReflectionTestUtils.setField(useCase, "initialBackoffMillis", 2000L);
+        ReflectionTestUtils.setField(useCase, "maxBackoffMillis", 300000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void convertedFilesAreSavedAndAcknowledged() {
+        stubResponse.set(size -> StubResponse.ok(successResults(size)));
+        var records = givenFiles(1L, 2L);
+
+        useCase.handleBatch(records);
+
+        assertEquals(1, requestCount.get(), "one request for the whole batch");
+        var savedFileBOS = ArgumentCaptor.forClass(List.class);
+        verify(fileUseCase).saveBatchFile(eq(7L), savedFileBOS.capture());
+        assertEquals(4, savedFileBOS.getValue().size(), "binary pcd and render image per file");
+        verifyAcknowledged(records);
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void failingServiceQueuesEveryFileForRetry() {
+        stubResponse.set(size -> new StubResponse(500, "{\"message\":\"overloaded\"}"));
+        var records = givenFiles(1L, 2L);
+
+        var before = System.currentTimeMillis();
+        useCase.handleBatch(records);
+
+        verify(fileUseCase, never()).saveBatchFile(anyLong(), anyList());
+        var retries = captureRetries(2);
+        retries.forEach((taskBO, dueAt) -> {
+            assertEquals(1, taskBO.getAttempt());
+            assertTrue(dueAt >= before + 2000, "due after the initial backoff");
+        });
+        // Acknowledged at once, the retry is queued from the retry set
+        verifyAcknowledged(records);
+    }
+
+    @Test
+    void slowServiceTimesOutAndQueuesRetry() {
+        stubResponse.set(size -> {
+            sleep(CALLER_TIMEOUT_MILLIS * 3L);
+            return StubResponse.ok(successResults(size));
+        });
+        var records = givenFiles(1L);
+
+        var start = System.currentTimeMillis();
+        useCase.handleBatch(records);
+
+        assertTrue(System.currentTimeMillis() - start < CALLER_TIMEOUT_MILLIS * 3L, "the caller does not wait for the slow service");
+        verify(fileUseCase, never()).saveBatchFile(anyLong(), anyList());
+        assertEquals(1, captureRetries(1).size());
+        verifyAcknowledged(records);
+    }
+
+    @Test
+    void failedItemIsRetriedAlone() {
+        stubResponse.set(size -> {
+            var results = successResults(size);
+            results.get(1).setCode(1);
+            return StubResponse.ok(results);
+        });
+        var records = givenFiles(1L, 2L);
+
+        useCase.handleBatch(records);
+
+        var savedFileBOS = ArgumentCaptor.forClass(List.class);
+        verify(fileUseCase).saveBatchFile(eq(7L), savedFileBOS.capture());
+        assertTrue(((List<FileBO>) savedFileBOS.getValue()).stream().allMatch(fileBO -> fileBO.getRelationId() == 1L));
+        var retries = captureRetries(1);
+        assertEquals(2L, retries.keySet().iterator().next().getFileId());
+        verifyAcknowledged(records);
+    }
+
+    @Test
+    void lastAttemptIsGivenUp() {
+        stubResponse.set(size -> new StubResponse(500, "{}"));
+        var record = record(1L, 4);
+        givenFileRows(1L);
+
+        useCase.handleBatch(List.of(record));
+
+        verifyNoInteractions(zSetOperations);
+        verifyAcknowledged(List.of(record));
+    }
+
+    @Test
+    void dueRetryIsQueuedByTheNodeThatRemovedIt() {
+        var taskJson = JSONUtil.toJsonStr(PointCloudConvertRenderTaskBO.builder().fileId(1L).attempt(1).build());
+        when(zSetOperations.rangeByScore(eq(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(Set.<Object>of(taskJson));
+
+        when(zSetOperations.remove(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY, taskJson)).thenReturn(0L);
+        useCase.queueDueRetries();
+        verify(streamOperations, never()).add(any(ObjectRecord.class));
+
+        when(zSetOperations.remove(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY, taskJson)).thenReturn(1L);
+        useCase.queueDueRetries();
+        var added = ArgumentCaptor.forClass(ObjectRecord.class);
+        verify(streamOperations).add(added.capture());
+        var taskBO = JSONUtil.toBean(added.getValue().getValue().toString(), PointCloudConvertRenderTaskBO.class);
+        assertEquals(1L, taskBO.getFileId());
+        assertEquals(1, taskBO.getAttempt());
+    }
+
+    @Test
+    void idlePendingMessagesAreClaimed() {
+        ReflectionTestUtils.setField(useCase, "reclaimIdleMillis", 60000L);
+        var consumer = Consumer.from(POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, "other-node");
+        var idle = new PendingMessage(RecordId.of("1-0"), consumer, Duration.ofMinutes(5), 1);
+        var busy = new PendingMessage(RecordId.of("2-0"), consumer, Duration.ofSeconds(5), 1);
+        var poisoned = new PendingMessage(RecordId.of("3-0"), consumer, Duration.ofMinutes(5), 6);
+        when(streamOperations.pending(eq(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY), eq(POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP),
+                any(Range.class), anyLong()))
+                .thenReturn(new PendingMessages(POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, List.of(idle, busy, poisoned)));
+        when(streamRedisTemplate.execute(any(RedisCallback.class))).thenReturn(List.of(idle.getId()));
+        var idleRecord = record(1L, 0);
+        when(streamOperations.range(eq(String.class), eq(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY), any(Range.class)))
+                .thenReturn(List.of(idleRecord));
+
+        var claimed = useCase.claimIdleRecords(Consumer.from(POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, "this-node"));
+
+        assertEquals(List.of(idleRecord), claimed);
+        verify(streamOperations).acknowledge(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY, POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, poisoned.getId());
+        verify(streamOperations, never()).acknowledge(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY, POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, busy.getId());
+    }
+
+    private List<ObjectRecord<String, String>> givenFiles(Long... fileIds) {
+        givenFileRows(fileIds);
+        var records = new ArrayList<ObjectRecord<String, String>>();
+        for (Long fileId : fileIds) {
+            records.add(record(fileId, 0));
+        }
+        return records;
+    }
+
+    private void givenFileRows(Long... fileIds) {
+        var fileMap = new LinkedHashMap<Long, RelationFileBO>();
+        for (Long fileId : fileIds) {
+            var fileBO = new RelationFileBO();
+            fileBO.setId(fileId);
+            fileBO.setBucketName("x1");
+            fileBO.setPath("dataset/raw/scene/" + fileId + ".pcd");
+            fileBO.setInternalUrl("http://minio/dataset/raw/scene/" + fileId + ".pcd");
+            fileBO.setCreatedBy(7L);
+            fileMap.put(fileId, fileBO);
+        }
+        when(fileUseCase.findMapByIds(anyCollection())).thenReturn(fileMap);
+    }
+
+    private ObjectRecord<String, String> record(Long fileId, int attempt) {
+        var taskBO = PointCloudConvertRenderTaskBO.builder().fileId(fileId).attempt(attempt).build();
+        return StreamRecords.newRecord()
+                .in(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY)
+                .ofObject(JSONUtil.toJsonStr(taskBO))
+                .withId(RecordId.of(fileId + "-0"));
+    }
+
+    private void verifyAcknowledged(List<ObjectRecord<String, String>> records) {
+        for (var record : records) {
+            verify(streamOperations).acknowledge(POINT_CLOUD_CONVERT_RENDER_STREAM_KEY,
+                    POINT_CLOUD_CONVERT_RENDER_CONSUMER_GROUP, record.getId());
+        }
+    }
+
+    /**
+     * Retries put on the retry set, by task with their due time
+     */
+    private LinkedHashMap<PointCloudConvertRenderTaskBO, Long> captureRetries(int count) {
+        var members = ArgumentCaptor.forClass(Object.class);
+        var scores = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOperations, times(count)).add(eq(POINT_CLOUD_CONVERT_RENDER_RETRY_KEY), members.capture(), scores.capture());
+        var retries = new LinkedHashMap<PointCloudConvertRenderTaskBO, Long>();
+        for (int i = 0; i < count; i++) {
+            retries.put(JSONUtil.toBean(members.getAllValues().get(i).toString(), PointCloudConvertRenderTaskBO.class),
+                    scores.getAllValues().get(i).longValue());
+        }
+        return retries;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        var request = JSONUtil.parseObj(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        var response = stubResponse.get().apply(request.getJSONArray("data").size());
+        var body = response.body.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.sendResponseHeaders(response.status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            // The caller timed out and closed the connection
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<PointCloudCRRespDTO> successResults(int size) {
+        var results = new ArrayList<PointCloudCRRespDTO>();
+        for (int i = 0; i < size; i++) {
+            results.add(PointCloudCRRespDTO.builder()
+                    .code(0).imageSize(100L).binaryPcdSize(200L).pointCloudRange(new PointCloudRange()).build());
+        }
+        return results;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class StubResponse {
+
+        private final int status;
+
+        private final String body;
+
+        private StubResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private static StubResponse ok(Object data) {
+            return new StubResponse(200, JSONUtil.createObj().set("code", "OK").set("data", data).toString());
+        }
+    }
+}
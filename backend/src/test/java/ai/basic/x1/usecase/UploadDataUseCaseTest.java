@@ -0,0 +1,279 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.dao.UploadCheckpointDAO;
+import ai.basic.x1.adapter.port.dao.UploadRecordDAO;
+import ai.basic.x1.adapter.port.dao.UploadSceneCheckpointDAO;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadCheckpoint;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadRecord;
+import ai.basic.x1.adapter.port.minio.MinioProp;
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.entity.DataInfoUploadBO;
+import ai.basic.x1.entity.FileBO;
+import ai.basic.x1.entity.enums.DatasetTypeEnum;
+import ai.basic.x1.entity.enums.UploadCheckpointStageEnum;
+import ai.basic.x1.entity.enums.UploadStatusEnum;
+import ai.basic.x1.util.NodeUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONUtil;
+import net.coobird.thumbnailator.Thumbnails;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static ai.basic.x1.entity.enums.UploadStatusEnum.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Decides from the upload record and the lease whether an upload checkpoint is kept, resumed or removed,
+ * and creates the thumbnails of the uploaded images
+ */
+class UploadDataUseCaseTest {
+
+    private static final Long UPLOAD_RECORD_ID = 1L;
+
+    private static final String ROOT_PATH = "upload/2/";
+
+    private UploadDataUseCase useCase;
+
+    private UploadCheckpointDAO uploadCheckpointDAO;
+
+    private UploadRecordDAO uploadRecordDAO;
+
+    private UploadUseCase uploadUseCase;
+
+    private ExecutorService executorService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        uploadCheckpointDAO = mock(UploadCheckpointDAO.class);
+        uploadRecordDAO = mock(UploadRecordDAO.class);
+        uploadUseCase = mock(UploadUseCase.class);
+        executorService = mock(ExecutorService.class);
+        useCase = new UploadDataUseCase();
+        ReflectionTestUtils.setField(useCase, "uploadCheckpointDAO", uploadCheckpointDAO);
+        ReflectionTestUtils.setField(useCase, "uploadSceneCheckpointDAO", mock(UploadSceneCheckpointDAO.class));
+        ReflectionTestUtils.setField(useCase, "uploadRecordDAO", uploadRecordDAO);
+        ReflectionTestUtils.setField(useCase, "uploadUseCase", uploadUseCase);
+        ReflectionTestUtils.setField(useCase, "executorService", executorService);
+        ReflectionTestUtils.setField(useCase, "checkpointMaxAttempts", 3);
+        ReflectionTestUtils.setField(useCase, "checkpointLeaseMillis", 300000L);
+    }
+
+    @Test
+    void interruptedUploadKeepsItsCheckpoint() {
+        givenUploadRecordStatus(PARSING);
+
+        ReflectionTestUtils.invokeMethod(useCase, "finishCheckpoint", UPLOAD_RECORD_ID);
+
+        verify(uploadCheckpointDAO).release(UPLOAD_RECORD_ID, NodeUtil.getNodeId());
+        verify(uploadCheckpointDAO, never()).removeByUploadRecordId(any());
+    }
+
+    @Test
+    void completedOrFailedUploadRemovesItsCheckpoint() {
+        givenUploadRecordStatus(PARSE_COMPLETED);
+        ReflectionTestUtils.invokeMethod(useCase, "finishCheckpoint", UPLOAD_RECORD_ID);
+        givenUploadRecordStatus(FAILED);
+        ReflectionTestUtils.invokeMethod(useCase, "finishCheckpoint", UPLOAD_RECORD_ID);
+
+        verify(uploadCheckpointDAO, times(2)).removeByUploadRecordId(UPLOAD_RECORD_ID);
+        verify(uploadCheckpointDAO, never()).release(any(), any());
+    }
+
+    @Test
+    void uploadClaimedByAnotherNodeIsNotResumed() {
+        var checkpoint = checkpoint(1);
+        when(uploadCheckpointDAO.findClaimable(any())).thenReturn(List.of(checkpoint));
+        when(uploadCheckpointDAO.claim(eq(checkpoint), eq(NodeUtil.getNodeId()), any())).thenReturn(false);
+
+        useCase.maintainUploads();
+
+        verify(executorService, never()).execute(any());
+    }
+
+    @Test
+    void expiredUploadIsResumedAndKeptAlive() {
+        var checkpoint = checkpoint(1);
+        when(uploadCheckpointDAO.findClaimable(any())).thenReturn(List.of(checkpoint), List.of());
+        when(uploadCheckpointDAO.claim(eq(checkpoint), eq(NodeUtil.getNodeId()), any())).thenReturn(true);
+
+        useCase.maintainUploads();
+        useCase.maintainUploads();
+
+        verify(executorService).execute(any());
+        verify(uploadCheckpointDAO).heartbeat(argThat((Collection<Long> ids) -> ids.contains(UPLOAD_RECORD_ID)),
+                eq(NodeUtil.getNodeId()));
+    }
+
+    @Test
+    void uploadInterruptedTooOftenIsFailed() {
+        var checkpoint = checkpoint(3);
+        when(uploadCheckpointDAO.findClaimable(any())).thenReturn(List.of(checkpoint));
+        when(uploadCheckpointDAO.claim(eq(checkpoint), eq(NodeUtil.getNodeId()), any())).thenReturn(true);
+
+        useCase.maintainUploads();
+
+        verify(executorService, never()).execute(any());
+        verify(uploadUseCase).updateUploadRecordStatus(eq(UPLOAD_RECORD_ID), eq(FAILED), anyString());
+        verify(uploadCheckpointDAO).removeByUploadRecordId(UPLOAD_RECORD_ID);
+    }
+
+    @Test
+    void chunkErrorsAreJoinedWithDuplicateNamesOnce() {
+        var errors = new ConcurrentLinkedQueue<>(List.of("1.json the objects exist object type error;",
+                "Duplicate data names;", "2.json the objects exist object contour miss;Duplicate data names;"));
+
+        assertEquals("1.json the objects exist object type error;Duplicate data names;2.json the objects exist object contour miss;",
+                UploadDataUseCase.joinErrors(errors));
+        assertEquals("Duplicate scene names:Scene_01;3.pcd error;",
+                UploadDataUseCase.joinErrors(List.of("Duplicate scene names:Scene_01;", "3.pcd error;Duplicate data names;")));
+        assertEquals("", UploadDataUseCase.joinErrors(new ConcurrentLinkedQueue<>()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void thumbnailsMatchTheThreeDecodeOutput() throws Exception {
+        var images = List.of(
+                image("Scene_01/camera_image_0/1.jpg", 1920, 1080, "image/jpeg"),
+                image("Scene_01/camera_image_1/1.png", 500, 1200, "image/png"),
+                image("Scene_01/camera_image_2/1.tiff", 801, 601, "image/tiff"),
+                image("Scene_01/camera_image_3/1.bmp", 150, 90, "image/bmp"));
+        var minioService = mock(MinioService.class);
+        var fileUseCase = mock(FileUseCase.class);
+        var thumbnailExecutorService = Executors.newFixedThreadPool(2);
+        try {
+            configureThumbnails(useCase, tempDir.toString(), minioService, fileUseCase, thumbnailExecutorService);
+
+            ReflectionTestUtils.invokeMethod(useCase, "createUploadThumbnail", 3L, images, ROOT_PATH);
+        } finally {
+            thumbnailExecutorService.shutdownNow();
+        }
+
+        var filesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(minioService).uploadFileList(eq("xtreme1"), eq(ROOT_PATH), eq(tempDir.toString()), filesCaptor.capture());
+        var thumbnails = (List<File>) filesCaptor.getValue();
+        var expected = new ArrayList<File>();
+        for (var image : images) {
+            expected.addAll(legacyThumbnails(tempDir.resolve(image.getPath().substring(ROOT_PATH.length())).toFile(),
+                    tempDir.resolve("legacy").toFile()));
+        }
+        assertEquals(expected.size(), thumbnails.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(FileUtil.getSuffix(expected.get(i)), FileUtil.getSuffix(thumbnails.get(i)), thumbnails.get(i).getName());
+            assertEquals(formatName(expected.get(i)), formatName(thumbnails.get(i)), thumbnails.get(i).getName());
+            assertEquals(dimensions(expected.get(i)), dimensions(thumbnails.get(i)), thumbnails.get(i).getName());
+        }
+        verify(fileUseCase).saveBatchFile(eq(3L), argThat((List<FileBO> fileBOS) -> fileBOS.size() == expected.size()));
+    }
+
+    /**
+     * Image written under the temp path, the file of the FileBO
+     */
+    private FileBO image(String path, int width, int height, String type) throws IOException {
+        writeImage(tempDir.resolve(path).toFile(), width, height);
+        return FileBO.builder().id((long) path.hashCode()).name(FileUtil.getName(path)).bucketName("xtreme1")
+                .path(ROOT_PATH + path).type(type).build();
+    }
+
+    /**
+     * The thumbnail settings with their defaults
+     */
+    static void configureThumbnails(UploadDataUseCase useCase, String tempPath, MinioService minioService,
+                                    FileUseCase fileUseCase, ExecutorService thumbnailExecutorService) {
+        var minioProp = new MinioProp();
+        minioProp.setBucketName("xtreme1");
+        ReflectionTestUtils.setField(useCase, "tempPath", tempPath);
+        ReflectionTestUtils.setField(useCase, "largeFileSize", 400);
+        ReflectionTestUtils.setField(useCase, "mediumFileSize", 200);
+        ReflectionTestUtils.setField(useCase, "smallFileSize", 100);
+        ReflectionTestUtils.setField(useCase, "large", "large");
+        ReflectionTestUtils.setField(useCase, "medium", "medium");
+        ReflectionTestUtils.setField(useCase, "small", "small");
+        ReflectionTestUtils.setField(useCase, "thumbnailMaxImagesInFlight", 4);
+        ReflectionTestUtils.setField(useCase, "minioProp", minioProp);
+        ReflectionTestUtils.setField(useCase, "minioService", minioService);
+        ReflectionTestUtils.setField(useCase, "fileUseCase", fileUseCase);
+        ReflectionTestUtils.setField(useCase, "thumbnailExecutorService", thumbnailExecutorService);
+    }
+
+    /**
+     * Gradient image in the format of the file suffix
+     */
+    static void writeImage(File file, int width, int height) throws IOException {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x + y) % 256);
+            }
+        }
+        FileUtil.mkParentDirs(file);
+        ImageIO.write(image, FileUtil.getSuffix(file), file);
+    }
+
+    /**
+     * Former thumbnails, the original is decoded for the large one and the large file is decoded for each smaller one
+     */
+    static List<File> legacyThumbnails(File file, File dir) throws IOException {
+        var suffix = FileUtil.getSuffix(file);
+        suffix = suffix.equalsIgnoreCase("tiff") || suffix.equalsIgnoreCase("tif") ? "jpg" : suffix;
+        var prefix = FileUtil.getPrefix(file) + "_" + file.getParentFile().getName();
+        FileUtil.mkdir(dir);
+        var largeFile = FileUtil.file(dir, String.format("%s_%s.%s", prefix, "large", suffix));
+        var mediumFile = FileUtil.file(dir, String.format("%s_%s.%s", prefix, "medium", suffix));
+        var smallFile = FileUtil.file(dir, String.format("%s_%s.%s", prefix, "small", suffix));
+        Thumbnails.of(file).size(400, 400).toFile(largeFile);
+        Thumbnails.of(largeFile).size(200, 200).toFile(mediumFile);
+        Thumbnails.of(largeFile).size(100, 100).toFile(smallFile);
+        return List.of(largeFile, mediumFile, smallFile);
+    }
+
+    private static String formatName(File file) throws IOException {
+        try (var input = ImageIO.createImageInputStream(file)) {
+            return ImageIO.getImageReaders(input).next().getFormatName().toLowerCase();
+        }
+    }
+
+    private static List<Integer> dimensions(File file) throws IOException {
+        var image = ImageIO.read(file);
+        return List.of(image.getWidth(), image.getHeight());
+    }
+
+    private void givenUploadRecordStatus(UploadStatusEnum status) {
+        when(uploadRecordDAO.getById(UPLOAD_RECORD_ID)).thenReturn(UploadRecord.builder().id(UPLOAD_RECORD_ID).status(status).build());
+    }
+
+    private static UploadCheckpoint checkpoint(int attemptCount) {
+        var uploadParam = DataInfoUploadBO.builder()
+                .uploadRecordId(UPLOAD_RECORD_ID)
+                .datasetId(2L)
+                .userId(3L)
+                .type(DatasetTypeEnum.LIDAR_FUSION)
+                .fileUrl("http://127.0.0.1/upload.zip").build();
+        return UploadCheckpoint.builder()
+                .id(10L)
+                .uploadRecordId(UPLOAD_RECORD_ID)
+                .datasetId(2L)
+                .uploadParam(JSONUtil.toJsonStr(uploadParam))
+                .stage(UploadCheckpointStageEnum.DOWNLOADING)
+                .attemptCount(attemptCount).build();
+    }
+}
@@ -0,0 +1,98 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.minio.MinioService;
+import ai.basic.x1.entity.FileBO;
+import cn.hutool.core.io.FileUtil;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thumbnails of 8 camera images of 1920x1200, decoded once with the variants encoded on the thumbnail pool,
+ * against the former three decodes per image. With encodeThreads 0 the variants are encoded on the calling
+ * thread and the score is images per second on one core, run with
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=UploadThumbnailBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@OperationsPerInvocation(UploadThumbnailBenchmark.IMAGE_COUNT)
+public class UploadThumbnailBenchmark {
+
+    static final int IMAGE_COUNT = 8;
+
+    private static final String ROOT_PATH = "upload/2/";
+
+    /**
+     * Threads of the thumbnail pool, 0 encodes on the calling thread
+     */
+    @Param({"0", "4"})
+    public int encodeThreads;
+
+    private File tempDir;
+
+    private List<FileBO> images;
+
+    private UploadDataUseCase useCase;
+
+    private ExecutorService thumbnailExecutorService;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("thumbnail-benchmark").toFile();
+        images = new ArrayList<>(IMAGE_COUNT);
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            var path = "Scene_01/camera_image_" + i + "/1.jpg";
+            UploadDataUseCaseTest.writeImage(FileUtil.file(tempDir, path), 1920, 1200);
+            images.add(FileBO.builder().id((long) i).name("1.jpg").bucketName("xtreme1").path(ROOT_PATH + path)
+                    .type("image/jpeg").build());
+        }
+        thumbnailExecutorService = encodeThreads == 0 ? MoreExecutors.newDirectExecutorService()
+                : Executors.newFixedThreadPool(encodeThreads);
+        useCase = new UploadDataUseCase();
+        UploadDataUseCaseTest.configureThumbnails(useCase, tempDir.getAbsolutePath(), new MinioService() {
+            @Override
+            public void uploadFileList(String bucketName, String rootPath, String tempPath, List<File> fileList) {
+            }
+        }, new FileUseCase() {
+            @Override
+            public List<FileBO> saveBatchFile(Long userId, List<FileBO> fileBOS) {
+                return fileBOS;
+            }
+        }, thumbnailExecutorService);
+    }
+
+    @TearDown
+    public void tearDown() {
+        thumbnailExecutorService.shutdownNow();
+        FileUtil.del(tempDir);
+    }
+
+    @Benchmark
+    public void createUploadThumbnail() {
+        ReflectionTestUtils.invokeMethod(useCase, "createUploadThumbnail", 3L, images, ROOT_PATH);
+    }
+
+    @Benchmark
+    public List<File> threeDecodeThumbnails() throws IOException {
+        var files = new ArrayList<File>(IMAGE_COUNT * 3);
+        var legacyDir = FileUtil.file(tempDir, "legacy");
+        for (var image : images) {
+            files.addAll(UploadDataUseCaseTest.legacyThumbnails(FileUtil.file(tempDir,
+                    image.getPath().substring(ROOT_PATH.length())), legacyDir));
+        }
+        return files;
+    }
+}
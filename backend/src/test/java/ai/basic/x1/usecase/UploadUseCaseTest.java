@@ -0,0 +1,124 @@
+package ai.basic.x1.usecase;
+
+import ai.basic.x1.adapter.port.dao.UploadRecordDAO;
+import ai.basic.x1.adapter.port.dao.mybatis.model.UploadRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts upload parse progress from many threads while the flusher writes it
+ */
+class UploadUseCaseTest {
+
+    private static final int THREADS = 16;
+
+    private static final int INCREMENTS_PER_THREAD = 10000;
+
+    private final List<UploadRecord> writtenRecords = Collections.synchronizedList(new ArrayList<>());
+
+    private UploadUseCase uploadUseCase;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        var uploadRecordDAO = mock(UploadRecordDAO.class);
+        when(uploadRecordDAO.updateById(any(UploadRecord.class))).thenAnswer(invocation -> {
+            writtenRecords.add(invocation.getArgument(0));
+            return true;
+        });
+        uploadUseCase = new UploadUseCase();
+        ReflectionTestUtils.setField(uploadUseCase, "uploadRecordDAO", uploadRecordDAO);
+        ReflectionTestUtils.setField(uploadUseCase, "progressFlushInterval", 1L);
+        uploadUseCase.init();
+        executorService = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+        uploadUseCase.destroy();
+    }
+
+    @Test
+    void countsAreExactUnderContention() throws InterruptedException {
+        var total = (long) THREADS * INCREMENTS_PER_THREAD;
+        var uploadProgress = uploadUseCase.startParseProgress(1L, 2L, total);
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executorService.execute(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+                        uploadProgress.addParsedDataNum(1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        assertEquals(total, uploadProgress.getParsedDataNum());
+        // Let the flusher write the final count before stopping
+        var deadline = System.currentTimeMillis() + 5000;
+        while (lastWrittenParsedDataNum() != total && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        uploadUseCase.stopParseProgress(uploadProgress);
+
+        assertEquals(total, lastWrittenParsedDataNum());
+        List<UploadRecord> records;
+        synchronized (writtenRecords) {
+            records = new ArrayList<>(writtenRecords);
+        }
+        var previous = 0L;
+        for (var record : records) {
+            assertEquals(1L, record.getId());
+            assertEquals(total, record.getTotalDataNum());
+            assertTrue(record.getParsedDataNum() >= previous, "progress never goes back");
+            assertTrue(record.getParsedDataNum() <= total, "progress never exceeds the total");
+            previous = record.getParsedDataNum();
+        }
+        // The writes are coalesced, far fewer than one per increment
+        assertTrue(records.size() < total / 100, "writes: " + records.size());
+    }
+
+    @Test
+    void stoppedProgressIsNotWrittenAgain() throws InterruptedException {
+        var uploadProgress = uploadUseCase.startParseProgress(1L, 2L, 10);
+        uploadProgress.addParsedDataNum(5);
+        uploadUseCase.stopParseProgress(uploadProgress);
+        var writes = writtenRecords.size();
+
+        uploadProgress.addParsedDataNum(5);
+        Thread.sleep(50);
+
+        assertEquals(writes, writtenRecords.size());
+    }
+
+    private long lastWrittenParsedDataNum() {
+        synchronized (writtenRecords) {
+            return writtenRecords.isEmpty() ? -1 : writtenRecords.get(writtenRecords.size() - 1).getParsedDataNum();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ai.basic.x1.util;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.DataInfo;
+import ai.basic.x1.entity.DataInfoBO;
+import cn.hutool.core.bean.BeanUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data rows with nested content converted per second by the copy plans and by the hutool bean copy,
+ * run with mvn -P benchmark test-compile exec:exec -Dbenchmark=CopyPlanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CopyPlanBenchmark.ROW_COUNT)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyPlanBenchmark {
+
+    static final int ROW_COUNT = 1000;
+
+    private List<DataInfo> dataInfos;
+
+    @Setup
+    public void setUp() {
+        dataInfos = new ArrayList<>(ROW_COUNT);
+        for (long id = 1; id <= ROW_COUNT; id++) {
+            dataInfos.add(DefaultConverterTest.dataInfo(id));
+        }
+    }
+
+    @Benchmark
+    public List<DataInfoBO> copyPlan() {
+        return DefaultConverter.convert(dataInfos, DataInfoBO.class);
+    }
+
+    @Benchmark
+    public List<DataInfoBO> beanCopy() {
+        var dataInfoBOs = new ArrayList<DataInfoBO>(dataInfos.size());
+        for (var dataInfo : dataInfos) {
+            var dataInfoBO = new DataInfoBO();
+            BeanUtil.copyProperties(dataInfo, dataInfoBO);
+            dataInfoBOs.add(dataInfoBO);
+        }
+        return dataInfoBOs;
+    }
+}
@@ -0,0 +1,54 @@
+package ai.basic.x1.util;
+
+import ai.basic.x1.entity.DataResultObjectExportBO;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exported objects per second of the direct mapping and of the bean copy it replaces,
+ * run with mvn -P benchmark test-compile exec:exec -Dbenchmark=DataResultObjectExportConverterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DataResultObjectExportConverterBenchmark.OBJECT_COUNT)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataResultObjectExportConverterBenchmark {
+
+    static final int OBJECT_COUNT = 1000;
+
+    private List<JSONObject> objects;
+
+    @Setup
+    public void setUp() {
+        objects = new ArrayList<>(OBJECT_COUNT);
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            var object = JSONUtil.parseObj(i % 2 == 0 ? DataResultObjectExportConverterTest.BOX : DataResultObjectExportConverterTest.RECT);
+            object.set("id", String.valueOf(i));
+            objects.add(object);
+        }
+    }
+
+    @Benchmark
+    public void directMapping(Blackhole blackhole) {
+        for (var object : objects) {
+            blackhole.consume(DataResultObjectExportConverter.convertResult(object));
+        }
+    }
+
+    @Benchmark
+    public void beanCopy(Blackhole blackhole) {
+        for (var object : objects) {
+            DataResultObjectExportBO exportBO = DataResultObjectExportConverterTest.legacyConvertResult(object);
+            blackhole.consume(exportBO);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ai.basic.x1.util;
+
+import ai.basic.x1.entity.DataResultObjectExportBO;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the direct mapping of exported objects with the bean copy it replaces
+ */
+class DataResultObjectExportConverterTest {
+
+    static final String BOX = "{\"id\":\"8f1c\",\"type\":\"3D_BOX\",\"classId\":5,\"className\":\"Car\",\"trackId\":\"t-1\","
+            + "\"trackName\":\"1\",\"classValues\":[{\"id\":\"a1\",\"name\":\"occluded\",\"value\":\"yes\"}],"
+            + "\"contour\":{\"pointN\":120,\"size3D\":{\"x\":4.2,\"y\":1.8,\"z\":1.5},\"center3D\":{\"x\":10.5,\"y\":-2,\"z\":0.7},"
+            + "\"rotation3D\":{\"x\":0,\"y\":0,\"z\":1.57},\"points\":[],\"viewIndex\":0},"
+            + "\"modelConfidence\":0.87,\"modelClass\":\"Car\",\"confidence\":0.9}";
+
+    static final String RECT = "{\"id\":\"3b2a\",\"type\":\"RECTANGLE\",\"modelClass\":\"Pedestrian\",\"confidence\":\"0.75\","
+            + "\"contour\":{\"points\":[{\"x\":1,\"y\":2},{\"x\":30,\"y\":40}],\"area\":1102}}";
+
+    @Test
+    void convertCopiesTheSameFieldsAsTheBeanCopyAndToBean() {
+        for (var json : List.of(BOX, RECT, "{\"id\":\"x\",\"classId\":\"7\",\"modelConfidence\":1}")) {
+            var classAttributes = JSONUtil.parseObj(json);
+            assertEquals(legacyConvert(classAttributes), DataResultObjectExportConverter.convert(classAttributes), json);
+            assertEquals(JSONUtil.toBean(classAttributes, DataResultObjectExportBO.class),
+                    DataResultObjectExportConverter.convert(classAttributes), json);
+        }
+    }
+
+    @Test
+    void convertResultMatchesTheFormerInlineMapping() {
+        var withoutContour = JSONUtil.parseObj(BOX);
+        withoutContour.remove("contour");
+        var integerConfidence = JSONUtil.parseObj(BOX);
+        integerConfidence.set("confidence", 1);
+        var unknownClass = JSONUtil.parseObj(RECT);
+        unknownClass.set("modelClass", "Cyclist");
+        for (var classAttributes : List.of(JSONUtil.parseObj(BOX), JSONUtil.parseObj(RECT), withoutContour, integerConfidence, unknownClass)) {
+            assertEquals(legacyConvertResult(classAttributes), DataResultObjectExportConverter.convertResult(classAttributes),
+                    classAttributes.toString());
+        }
+    }
+
+    @Test
+    void convertResultResolvesContourConfidenceAndClass() {
+        var exportBO = DataResultObjectExportConverter.convertResult(JSONUtil.parseObj(RECT));
+
+        // Only the geometry of the contour is exported
+        assertEquals(JSONUtil.parseObj("{\"points\":[{\"x\":1,\"y\":2},{\"x\":30,\"y\":40}]}"), exportBO.getContour());
+        assertEquals(0, new BigDecimal("0.75").compareTo(exportBO.getModelConfidence()));
+        assertEquals("Pedestrian", exportBO.getClassName());
+        assertEquals(2L, exportBO.getClassId());
+    }
+
+    /**
+     * Former DefaultConverter.convert of the class attributes
+     */
+    static DataResultObjectExportBO legacyConvert(JSONObject classAttributes) {
+        var exportBO = new DataResultObjectExportBO();
+        BeanUtil.copyProperties(classAttributes, exportBO);
+        return exportBO;
+    }
+
+    /**
+     * Former mapping of DataInfoUseCase.processData
+     */
+    static DataResultObjectExportBO legacyConvertResult(JSONObject classAttrs) {
+        var contourAttrs = (JSONObject) classAttrs.get("contour");
+        if (contourAttrs == null) {
+            contourAttrs = new JSONObject();
+        }
+        var exportBO = legacyConvert(classAttrs);
+        var contour = new JSONObject();
+        for (var key : List.of("pointN", "size3D", "center3D", "rotation3D")) {
+            if (contourAttrs.get(key) != null) {
+                contour.put(key, contourAttrs.get(key));
+            }
+        }
+        contour.put("points", contourAttrs.get("points") != null ? contourAttrs.get("points") : new JSONArray());
+        exportBO.setContour(contour);
+        var confObj = classAttrs.get("confidence");
+        if (confObj != null) {
+            if (confObj instanceof BigDecimal) {
+                exportBO.setModelConfidence((BigDecimal) confObj);
+            } else if (confObj instanceof Number) {
+                exportBO.setModelConfidence(BigDecimal.valueOf(((Number) confObj).doubleValue()));
+            } else if (confObj instanceof String) {
+                exportBO.setModelConfidence(new BigDecimal((String) confObj));
+            } else {
+                exportBO.setModelConfidence(BigDecimal.ZERO);
+            }
+        }
+        var modelClassName = classAttrs.get("className");
+        if (modelClassName == null) {
+            modelClassName = classAttrs.get("modelClass");
+        }
+        var modelClass = modelClassName != null ? modelClassName.toString() : null;
+        if (modelClass != null) {
+            if (modelClass.contains("Car")) {
+                exportBO.setClassId(1L);
+            } else if (modelClass.contains("Pedestrian")) {
+                exportBO.setClassId(2L);
+            }
+        }
+        exportBO.setClassName(modelClass);
+        return exportBO;
+    }
+}
@@ -0,0 +1,133 @@
+package ai.basic.x1.util;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes the entries of a zip file scene by scene with a bounded number of workers
+ */
+class DecompressionFileUtilsTest {
+
+    private static final Predicate<String> SCENE_DIR = name -> name.startsWith("lidar_point_cloud") || name.startsWith("camera_image");
+
+    private static final List<String> ENTRIES = List.of(
+            "upload/Scene_01/lidar_point_cloud_0/1.pcd",
+            "upload/Scene_01/lidar_point_cloud_0/2.pcd",
+            "upload/Scene_01/camera_image_0/1.jpg",
+            "upload/Scene_02/lidar_point_cloud_0/1.pcd",
+            "upload/Scene_02/camera_image_0/1.jpg",
+            "upload/readme.txt");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void entriesAreGroupedUnderTheDeepestScene() {
+        var sceneMap = DecompressionFileUtils.groupByScene(entries(
+                "lidar_point_cloud_0/1.pcd",
+                "a/lidar_point_cloud_0/1.pcd",
+                "a/b/lidar_point_cloud_0/1.pcd",
+                "a/b/camera_image_0/1.jpg",
+                "a/b/readme.txt",
+                "a/bc/1.pcd"), SCENE_DIR);
+
+        assertEquals(List.of("lidar_point_cloud_0/1.pcd"), names(sceneMap.get("")));
+        // a/bc is not inside the scene a/b
+        assertEquals(List.of("a/lidar_point_cloud_0/1.pcd", "a/bc/1.pcd"), names(sceneMap.get("a")));
+        assertEquals(List.of("a/b/lidar_point_cloud_0/1.pcd", "a/b/camera_image_0/1.jpg", "a/b/readme.txt"), names(sceneMap.get("a/b")));
+        assertFalse(sceneMap.containsKey(null));
+    }
+
+    @Test
+    void entriesOutsideAnySceneAreGroupedUnderNull() {
+        var sceneMap = DecompressionFileUtils.groupByScene(entries(ENTRIES.toArray(new String[0])), SCENE_DIR);
+
+        assertEquals(Arrays.asList("upload/Scene_01", "upload/Scene_02", null), new ArrayList<>(sceneMap.keySet()));
+        assertEquals(3, sceneMap.get("upload/Scene_01").size());
+        assertEquals(List.of("upload/readme.txt"), names(sceneMap.get(null)));
+        assertEquals(Collections.singleton(null), DecompressionFileUtils.groupByScene(entries("a/1.pcd"), null).keySet());
+    }
+
+    @Test
+    void onlyMaxInFlightWorkersAreSubmitted() throws IOException {
+        var unZipPath = tempDir.resolve("unzip");
+        var tasks = new ArrayList<Runnable>();
+        var readyScenes = new ArrayList<File>();
+
+        var future = DecompressionFileUtils.zipDecompress(zip().toString(), unZipPath.toString(), tasks::add, 2,
+                SCENE_DIR, readyScenes::add);
+
+        // Nothing is written by the caller, the workers are left to the executor
+        assertEquals(2, tasks.size());
+        assertFalse(future.isDone());
+        assertFalse(Files.exists(unZipPath.resolve(ENTRIES.get(0))));
+
+        tasks.forEach(Runnable::run);
+
+        assertTrue(future.isDone());
+        assertEquals(List.of(unZipPath.resolve("upload/Scene_01").toFile(), unZipPath.resolve("upload/Scene_02").toFile()), readyScenes);
+        for (var entry : ENTRIES) {
+            assertEquals(entry, Files.readString(unZipPath.resolve(entry)));
+        }
+    }
+
+    @Test
+    void sceneIsReadyOnceAllItsFilesAreWritten() throws IOException {
+        var unZipPath = tempDir.resolve("unzip");
+        var pool = Executors.newFixedThreadPool(4);
+        var missingFiles = new ConcurrentLinkedQueue<String>();
+        var readyScenes = new ConcurrentLinkedQueue<String>();
+        try {
+            DecompressionFileUtils.zipDecompress(zip().toString(), unZipPath.toString(), pool, 3, SCENE_DIR, sceneDir -> {
+                var scenePath = unZipPath.relativize(sceneDir.toPath()).toString().replace(File.separatorChar, '/');
+                readyScenes.add(scenePath);
+                ENTRIES.stream().filter(entry -> entry.startsWith(scenePath + "/"))
+                        .filter(entry -> !Files.exists(unZipPath.resolve(entry)))
+                        .forEach(missingFiles::add);
+            }).join();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(Set.of("upload/Scene_01", "upload/Scene_02"), new HashSet<>(readyScenes));
+        assertEquals(2, readyScenes.size());
+        assertTrue(missingFiles.isEmpty(), "files missing when their scene was ready: " + missingFiles);
+    }
+
+    private Path zip() throws IOException {
+        var zip = tempDir.resolve("upload.zip");
+        try (var zos = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+            for (var entry : ENTRIES) {
+                zos.putNextEntry(new ZipEntry(entry));
+                zos.write(entry.getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static List<ZipArchiveEntry> entries(String... names) {
+        return Arrays.stream(names).map(ZipArchiveEntry::new).collect(Collectors.toList());
+    }
+
+    private static List<String> names(List<ZipArchiveEntry> entries) {
+        return entries.stream().map(ZipArchiveEntry::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,276 @@
+package ai.basic.x1.util;
+
+import ai.basic.x1.adapter.port.dao.mybatis.model.DataInfo;
+import ai.basic.x1.entity.DataInfoBO;
+import ai.basic.x1.entity.enums.DataAnnotationStatusEnum;
+import ai.basic.x1.entity.enums.DataStatusEnum;
+import ai.basic.x1.entity.enums.ItemTypeEnum;
+import ai.basic.x1.entity.enums.SplitTypeEnum;
+import cn.hutool.core.bean.BeanUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the copies of the cached copy plans with the hutool bean copy they replace
+ */
+class DefaultConverterTest {
+
+    @Test
+    void dataInfoWithNestedContentIsCopiedLikeTheBeanCopy() {
+        var dataInfo = dataInfo(1L);
+
+        var dataInfoBO = DefaultConverter.convert(dataInfo, DataInfoBO.class);
+
+        assertNotNull(CopyPlan.of(DataInfo.class, DataInfoBO.class));
+        assertNotNull(CopyPlan.of(DataInfo.FileNode.class, DataInfoBO.FileNodeBO.class));
+        assertEquals(beanCopy(dataInfo, DataInfoBO.class), dataInfoBO);
+        var scene = dataInfoBO.getContent().get(1);
+        assertEquals(DataInfoBO.FileNodeBO.class, scene.getClass());
+        assertEquals(DataInfoBO.FileNodeBO.class, scene.getFiles().get(0).getClass());
+        assertEquals(List.of(2L, 3L), List.of(scene.getFiles().get(0).getFileId(), scene.getFiles().get(1).getFileId()));
+        assertTrue(dataInfoBO.getIsDeleted());
+        assertSame(dataInfo.getCreatedAt(), dataInfoBO.getCreatedAt());
+    }
+
+    @Test
+    void listsAreCopiedLikeTheBeanCopy() {
+        var dataInfos = List.of(dataInfo(1L), dataInfo(2L), new DataInfo());
+
+        var dataInfoBOs = DefaultConverter.convert(dataInfos, DataInfoBO.class);
+
+        assertEquals(dataInfos.size(), dataInfoBOs.size());
+        for (int i = 0; i < dataInfos.size(); i++) {
+            assertEquals(beanCopy(dataInfos.get(i), DataInfoBO.class), dataInfoBOs.get(i));
+        }
+        assertEquals(List.of(), DefaultConverter.convert(List.<DataInfo>of(), DataInfoBO.class));
+        assertNull(DefaultConverter.convert((List<DataInfo>) null, DataInfoBO.class));
+        assertNull(DefaultConverter.convert((DataInfo) null, DataInfoBO.class));
+    }
+
+    @Test
+    void booleanGettersAreCopiedLikeTheBeanCopy() {
+        var source = new Flags();
+        source.setActive(true);
+        source.setVisible(Boolean.FALSE);
+        source.setIsDeleted(Boolean.TRUE);
+
+        var target = DefaultConverter.convert(source, Flags.class);
+
+        assertEquals(beanCopy(source, Flags.class), target);
+        assertTrue(target.isActive());
+        assertFalse(target.getVisible());
+        assertTrue(target.getIsDeleted());
+    }
+
+    @Test
+    void chainedSettersAreCopiedLikeTheBeanCopy() {
+        var source = new Source(7L, "car", List.of(1, 2), List.of("3", "4"), List.of(new Node("a", List.of())), true);
+
+        var target = DefaultConverter.convert(source, ChainedTarget.class);
+
+        assertNotNull(CopyPlan.of(Source.class, ChainedTarget.class));
+        assertEquals(beanCopy(source, ChainedTarget.class), target);
+        assertEquals(7L, target.getId());
+        assertEquals("car", target.getName());
+    }
+
+    @Test
+    void mismatchedListElementTypesAreConvertedLikeTheBeanCopy() {
+        var source = new Source(7L, "car", Arrays.asList(1, null, 3), List.of("4", "5"),
+                List.of(new Node("a", List.of(new Node("b", List.of())))), true);
+
+        var target = DefaultConverter.convert(source, Target.class);
+
+        assertEquals(beanCopy(source, Target.class), target);
+        assertEquals(Arrays.asList(1L, null, 3L), target.getValues());
+        assertEquals(List.of(4L, 5L), target.getIds());
+        var node = target.getNodes().get(0);
+        assertEquals(NodeBO.class, node.getClass());
+        assertEquals(NodeBO.class, node.getChildren().get(0).getClass());
+        assertEquals("b", node.getChildren().get(0).getName());
+    }
+
+    @Test
+    void matchingListElementsAreShared() {
+        var source = new Source(7L, "car", List.of(1), List.of("4"), List.of(), true);
+        var target = DefaultConverter.convert(source, SameTypes.class);
+
+        assertEquals(beanCopy(source, SameTypes.class), target);
+        assertSame(source.getValues(), target.getValues());
+    }
+
+    @Test
+    void mapsFallBackToTheBeanCopy() {
+        var map = new LinkedHashMap<String, Object>();
+        map.put("id", "7");
+        map.put("name", "car");
+        map.put("values", List.of(1, 2));
+        map.put("ids", List.of("3"));
+        map.put("nodes", List.of(Map.of("name", "a")));
+        map.put("enabled", "true");
+
+        var target = DefaultConverter.convert(map, Target.class);
+
+        assertEquals(beanCopy(map, Target.class), target);
+        assertEquals(7L, target.getId());
+        assertEquals(List.of(3L), target.getIds());
+
+        var source = new Source(7L, "car", List.of(1), List.of("4"), List.of(), true);
+        @SuppressWarnings("unchecked")
+        var sourceMap = (Map<String, Object>) DefaultConverter.convert(source, HashMap.class);
+        assertNull(CopyPlan.of(Source.class, HashMap.class));
+        assertEquals(beanCopy(source, HashMap.class), sourceMap);
+        assertEquals("car", sourceMap.get("name"));
+    }
+
+    @Test
+    void enumsAndNumbersAreConvertedLikeTheBeanCopy() {
+        var source = new Source(7L, "SCENE", List.of(), List.of(), List.of(), false);
+
+        var target = DefaultConverter.convert(source, Converted.class);
+
+        assertEquals(beanCopy(source, Converted.class), target);
+        assertEquals(ItemTypeEnum.SCENE, target.getName());
+        assertEquals("7", target.getId());
+    }
+
+    private static <T> T beanCopy(Object source, Class<T> targetClass) {
+        try {
+            var target = targetClass.getDeclaredConstructor().newInstance();
+            BeanUtil.copyProperties(source, target);
+            return target;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static DataInfo dataInfo(Long id) {
+        var image = DataInfo.FileNode.builder().name("image_0").fileId(id * 10).type("file").build();
+        var scene = DataInfo.FileNode.builder().name("Scene_01").type("directory").files(new ArrayList<>(List.of(
+                DataInfo.FileNode.builder().name("1.pcd").fileId(2L).type("file").build(),
+                DataInfo.FileNode.builder().name("2.pcd").fileId(3L).type("file").build()))).build();
+        return DataInfo.builder()
+                .id(id)
+                .datasetId(2L)
+                .name("data-" + id)
+                .orderName("00" + id)
+                .content(new ArrayList<>(List.of(image, scene)))
+                .type(ItemTypeEnum.SINGLE_DATA)
+                .parentId(0L)
+                .status(DataStatusEnum.INVALID)
+                .annotationStatus(DataAnnotationStatusEnum.ANNOTATED)
+                .splitType(SplitTypeEnum.TRAINING)
+                .isDeleted(true)
+                .delUniqueKey(0L)
+                .createdAt(OffsetDateTime.now())
+                .createdBy(3L)
+                .tempDataId(4L)
+                .build();
+    }
+
+    @Data
+    public static class Flags {
+
+        private boolean active;
+
+        private Boolean visible;
+
+        private Boolean isDeleted;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Source {
+
+        private Long id;
+
+        private String name;
+
+        private List<Integer> values;
+
+        private List<String> ids;
+
+        private List<Node> nodes;
+
+        private boolean enabled;
+    }
+
+    @Data
+    public static class Target {
+
+        private Long id;
+
+        private String name;
+
+        private List<Long> values;
+
+        private List<Long> ids;
+
+        private List<NodeBO> nodes;
+
+        private Boolean enabled;
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class ChainedTarget {
+
+        private Long id;
+
+        private String name;
+
+        private List<Long> ids;
+
+        private boolean enabled;
+    }
+
+    @Data
+    public static class SameTypes {
+
+        private Long id;
+
+        private List<Integer> values;
+    }
+
+    @Data
+    public static class Converted {
+
+        private String id;
+
+        private ItemTypeEnum name;
+
+        private String enabled;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Node {
+
+        private String name;
+
+        private List<Node> children;
+    }
+
+    @Data
+    public static class NodeBO {
+
+        private String name;
+
+        private List<NodeBO> children;
+    }
+}
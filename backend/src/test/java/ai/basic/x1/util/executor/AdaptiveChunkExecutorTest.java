@@ -0,0 +1,158 @@
+package ai.basic.x1.util.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the upload shapes of many small scenes and one huge scene through the adaptive chunking
+ */
+@Slf4j
+class AdaptiveChunkExecutorTest {
+
+    private static final int CONCURRENCY = 4;
+
+    private ExecutorService executorService;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        // More threads than the limit, the limit is kept by the executor and not by the pool
+        executorService = Executors.newFixedThreadPool(CONCURRENCY * 2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executorService.shutdownNow();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void manySmallScenesShareTheConcurrencyLimit() {
+        var executor = new AdaptiveChunkExecutor(executorService, CONCURRENCY, 50, 5, 100);
+        var handled = ConcurrentHashMap.<String>newKeySet();
+        var expected = new ArrayList<String>();
+        var start = System.nanoTime();
+        for (int scene = 0; scene < 200; scene++) {
+            var frames = frames("scene-" + scene, 3);
+            expected.addAll(frames);
+            executor.submit(frames, chunk -> handle(chunk, handled, 200_000));
+        }
+        executor.await();
+        report("many small scenes", expected.size(), start);
+
+        assertEquals(expected.size(), handled.size());
+        assertTrue(handled.containsAll(expected));
+        assertTrue(maxRunning.get() <= CONCURRENCY, "running chunks: " + maxRunning.get());
+        // A scene of 3 frames is spread over the threads instead of one chunk of 5
+        assertTrue(chunkSizes.stream().allMatch(size -> size <= 1), "chunk sizes: " + chunkSizes);
+    }
+
+    @Test
+    void oneHugeSceneGrowsTheChunksForCheapFrames() {
+        var executor = new AdaptiveChunkExecutor(executorService, CONCURRENCY, 50, 5, 100);
+        var handled = ConcurrentHashMap.<String>newKeySet();
+        var frames = frames("huge", 20_000);
+        var start = System.nanoTime();
+        executor.submit(frames, chunk -> handle(chunk, handled, 20_000));
+        executor.await();
+        report("one huge scene", frames.size(), start);
+
+        assertEquals(frames.size(), handled.size());
+        assertTrue(maxRunning.get() <= CONCURRENCY, "running chunks: " + maxRunning.get());
+        assertEquals(5, chunkSizes.get(0).intValue(), "initial chunk size before the cost is measured");
+        assertTrue(chunkSizes.contains(100), "cheap frames reach the largest chunk size: " + summary());
+        // The tail is split over the threads so that the last chunks get smaller
+        assertTrue(Collections.min(chunkSizes) < 5, "last chunks: " + summary());
+    }
+
+    @Test
+    void expensiveFramesShrinkTheChunks() {
+        var executor = new AdaptiveChunkExecutor(executorService, CONCURRENCY, 10, 5, 100);
+        var handled = ConcurrentHashMap.<String>newKeySet();
+        var frames = frames("slow", 200);
+        executor.submit(frames, chunk -> handle(chunk, handled, 5_000_000));
+        executor.await();
+
+        assertEquals(frames.size(), handled.size());
+        // 5ms per frame against a 10ms target gives chunks of 2 once the cost is measured
+        var laterChunkSizes = chunkSizes.subList(CONCURRENCY * 2, chunkSizes.size());
+        assertTrue(laterChunkSizes.stream().allMatch(size -> size <= 2), "chunk sizes: " + summary());
+    }
+
+    @Test
+    void failedChunkReleasesItsPermit() {
+        var executor = new AdaptiveChunkExecutor(executorService, 1, 50, 1, 1);
+        var handled = ConcurrentHashMap.<String>newKeySet();
+        executor.submit(frames("failing", 3), chunk -> {
+            if (chunk.get(0).endsWith("-0")) {
+                throw new IllegalStateException("parse error");
+            }
+            handle(chunk, handled, 0);
+        });
+        executor.await();
+
+        assertEquals(2, handled.size());
+    }
+
+    private void handle(List<String> chunk, Set<String> handled, long nanosPerFrame) {
+        var current = running.incrementAndGet();
+        maxRunning.accumulateAndGet(current, Math::max);
+        chunkSizes.add(chunk.size());
+        try {
+            for (String frame : chunk) {
+                if (nanosPerFrame > 0) {
+                    spin(nanosPerFrame);
+                }
+                assertTrue(handled.add(frame), "frame handled twice: " + frame);
+            }
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static void spin(long nanos) {
+        var deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(Math.min(nanos, 100_000));
+        }
+    }
+
+    private static List<String> frames(String scene, int count) {
+        return IntStream.range(0, count).mapToObj(i -> scene + "-" + i).collect(Collectors.toList());
+    }
+
+    private String summary() {
+        synchronized (chunkSizes) {
+            return "count " + chunkSizes.size() + ", first " + chunkSizes.subList(0, Math.min(10, chunkSizes.size()))
+                    + ", last " + chunkSizes.subList(Math.max(0, chunkSizes.size() - 10), chunkSizes.size());
+        }
+    }
+
+    private void report(String shape, int frames, long startNanos) {
+        var millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        log.info("{}: {} frames in {}ms, {} frames/s, {} chunks", shape, frames, millis, frames * 1000L / millis,
+                chunkSizes.size());
+    }
+}
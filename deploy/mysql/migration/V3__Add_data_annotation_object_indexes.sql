@@ -0,0 +1,12 @@
+-- ----------------------------
+-- Indexes for data_annotation_object access paths, added in one statement so the table is rebuilt once
+-- ----------------------------
+ALTER TABLE `data_annotation_object`
+    -- findByDataIds / updateDataAnnotationObject / delete by data_id, optionally filtered by source_id
+    ADD KEY `idx_data_id_source_id` (`data_id`, `source_id`) USING BTREE,
+    -- Model metrics: data_id IN (...) AND source_type = 'GT'
+    ADD KEY `idx_data_id_source_type` (`data_id`, `source_type`) USING BTREE,
+    -- Scenario queries with dataset_id, dataset counts and dataset deletion, covers SELECT DISTINCT data_id
+    ADD KEY `idx_dataset_id_class_id_data_id` (`dataset_id`, `class_id`, `data_id`) USING BTREE,
+    -- Scenario queries without dataset_id
+    ADD KEY `idx_class_id_data_id` (`class_id`, `data_id`) USING BTREE;
@@ -0,0 +1,27 @@
+-- ----------------------------
+-- Table structure for dataset_delete_job
+-- ----------------------------
+-- One row per dataset deletion. A node claims a job by setting itself as owner and keeps its heartbeat while it runs,
+-- unfinished jobs whose heartbeat expired are claimed again until attempt_count reaches the limit. Every step of a job
+-- can be repeated, objects are removed before the rows they are resolved from.
+CREATE TABLE IF NOT EXISTS `dataset_delete_job`
+(
+    `id`                  bigint(20)   NOT NULL AUTO_INCREMENT COMMENT 'Primary key',
+    `dataset_id`          bigint(20)   NOT NULL COMMENT 'Dataset id',
+    `dataset_name`        varchar(255) NOT NULL COMMENT 'Dataset name, prefix of the dataset folder in MinIO',
+    `status`              enum ('SUBMITTED','REMOVING_OBJECTS','REMOVING_ROWS','COMPLETED','FAILED') CHARACTER SET utf8 NOT NULL DEFAULT 'SUBMITTED' COMMENT 'Status',
+    `failed_object_count` int(11)      NOT NULL DEFAULT '0' COMMENT 'Objects that could not be removed in the last run',
+    `error_message`       varchar(1000)         DEFAULT NULL COMMENT 'Error of the last failed run',
+    `attempt_count`       int(11)      NOT NULL DEFAULT '0' COMMENT 'Runs of the job',
+    `owner`               varchar(128)          DEFAULT NULL COMMENT 'Node running the job',
+    `heartbeat_at`        datetime              DEFAULT NULL COMMENT 'Last heartbeat of the owner',
+    `created_at`          datetime     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Create time',
+    `created_by`          bigint(20)   NOT NULL COMMENT 'Creator id',
+    `updated_at`          datetime              DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Update time',
+    `updated_by`          bigint(20)            DEFAULT NULL COMMENT 'Modify person id',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_dataset_id` (`dataset_id`) USING BTREE,
+    KEY `idx_status` (`status`) USING BTREE
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4 COMMENT ='Dataset delete job';
@@ -0,0 +1,48 @@
+-- ----------------------------
+-- Table structure for upload_checkpoint
+-- ----------------------------
+-- One row per running upload, removed when the upload completes or fails. The node running the upload keeps
+-- heartbeat_at fresh, an upload whose heartbeat expired is claimed by another node with a conditional update and
+-- resumed, from the decompressed folder if the stage is PARSING.
+CREATE TABLE IF NOT EXISTS `upload_checkpoint`
+(
+    `id`               bigint(20) NOT NULL AUTO_INCREMENT COMMENT 'Primary key',
+    `upload_record_id` bigint(20) NOT NULL COMMENT 'Upload record id',
+    `dataset_id`       bigint(20) NOT NULL COMMENT 'Dataset id',
+    `upload_param`     text       NOT NULL COMMENT 'Upload parameter json, with the download and decompression paths',
+    `stage`            enum ('DOWNLOADING','PARSING') CHARACTER SET utf8 NOT NULL DEFAULT 'DOWNLOADING' COMMENT 'Stage',
+    `attempt_count`    int(11)    NOT NULL DEFAULT '0' COMMENT 'Runs of the upload',
+    `owner`            varchar(128)        DEFAULT NULL COMMENT 'Node running the upload',
+    `heartbeat_at`     datetime            DEFAULT NULL COMMENT 'Last heartbeat of the owner',
+    `created_at`       datetime   NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Create time',
+    `created_by`       bigint(20) NOT NULL COMMENT 'Creator id',
+    `updated_at`       datetime            DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Update time',
+    `updated_by`       bigint(20)          DEFAULT NULL COMMENT 'Modify person id',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_upload_record_id` (`upload_record_id`) USING BTREE,
+    KEY `idx_heartbeat_at` (`heartbeat_at`) USING BTREE
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4 COMMENT ='Upload checkpoint';
+
+-- ----------------------------
+-- Table structure for upload_scene_checkpoint
+-- ----------------------------
+-- One row per scene of a running upload. The frames of an unfinished scene that are already in the data table
+-- are skipped when the upload is resumed.
+CREATE TABLE IF NOT EXISTS `upload_scene_checkpoint`
+(
+    `id`               bigint(20)   NOT NULL AUTO_INCREMENT COMMENT 'Primary key',
+    `upload_record_id` bigint(20)   NOT NULL COMMENT 'Upload record id',
+    `scene_path`       varchar(500) NOT NULL COMMENT 'Scene folder relative to the decompressed folder',
+    `scene_id`         bigint(20)   NOT NULL COMMENT 'Scene data id',
+    `is_completed`     bit(1)       NOT NULL DEFAULT b'0' COMMENT 'Whether all frames of the scene are parsed',
+    `created_at`       datetime     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Create time',
+    `created_by`       bigint(20)   NOT NULL COMMENT 'Creator id',
+    `updated_at`       datetime              DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Update time',
+    `updated_by`       bigint(20)            DEFAULT NULL COMMENT 'Modify person id',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_upload_record_id_scene_path` (`upload_record_id`, `scene_path`) USING BTREE
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4 COMMENT ='Upload scene checkpoint';